@@ -0,0 +1,690 @@
+package computer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Assembler turns MIPS assembly for the instructions Computer runs (add,
+ * and, addi, andi, lw, sw, ll, sc, beq, j, jr, syscall and nop) into
+ * machine words and loads them straight into a computer's instruction and
+ * data memory.
+ *
+ * Source is read through one fixed character buffer and encoded as it is
+ * read. A reference to a label that is not defined yet leaves a fixup, and
+ * the second pass patches the fixups once every label is known. The words
+ * are then copied into memory in bulk, one run per .text or .data.
+ *
+ * Registers are written $0 to $31 or by name ($zero, $at, $v0, $a0, $t0,
+ * $s0, $k0, $gp, $sp, $fp, $ra and so on). # starts a comment and "name:"
+ * defines a label. ".text n" and ".data n" switch segment and move to slot
+ * or address n, without n they continue where the segment left off; text
+ * starts at slot 0 and data at address 0. ".word" emits values or label
+ * addresses and ".space n" emits n zero words. A text label stands for its
+ * byte address, the value jr takes, and a data label for its word address,
+ * the value lw and sw take. A number given to j is a byte address and
+ * one given to beq is the offset in words. The PC is set to the label
+ * main, or to the first instruction if there is no main.
+ */
+public final class Assembler {
+
+    private final static int BUFFER_SIZE = 1 << 16;
+
+    private final static String REGISTER_NAMES[] = { "zero", "at", "v0", "v1",
+            "a0", "a1", "a2", "a3", "t0", "t1", "t2", "t3", "t4", "t5", "t6", "t7",
+            "s0", "s1", "s2", "s3", "s4", "s5", "s6", "s7", "t8", "t9", "k0", "k1",
+            "gp", "sp", "fp", "ra" };
+
+    private final static String MNEMONICS[] = { "add", "and", "addi", "andi", "lw", "sw",
+            "beq", "j", "jr", "syscall", "nop", "ll", "sc" };
+
+    // Opcodes of lw, sw, ll and sc, which all take imm($rs)
+    private final static int MEMORY_OPCODES[] = { 0x23, 0x2B, 0x30, 0x38 };
+
+    // Token types
+    private final static int WORD = 0;
+    private final static int COMMA = 1;
+    private final static int OPEN = 2;
+    private final static int CLOSE = 3;
+    private final static int END_OF_LINE = 4;
+    private final static int END_OF_FILE = 5;
+
+    // Fixup kinds
+    private final static int FIX_BRANCH = 0;
+    private final static int FIX_JUMP = 1;
+    private final static int FIX_IMMEDIATE = 2;
+    private final static int FIX_WORD = 3;
+
+    private final Reader mReader;
+    private final char mBuffer[] = new char[BUFFER_SIZE];
+    private int mPos;
+    private int mLimit;
+    private char mToken[] = new char[64];
+    private int mTokenLength;
+    private int mType;
+    private boolean mPeeked;
+    private int mLine = 1;
+
+    private final Segment mText = new Segment();
+    private final Segment mData = new Segment();
+    private Segment mSegment = mText;
+    private final HashMap<String, Integer> mTextLabels = new HashMap<>();
+    private final HashMap<String, Integer> mDataLabels = new HashMap<>();
+
+    // Fixups, one entry per label reference made before the label was known
+    private int mFixups;
+    private int mFixKind[] = new int[64];
+    private int mFixOffset[] = new int[64];
+    private int mFixLine[] = new int[64];
+    private boolean mFixInData[] = new boolean[64];
+    private String mFixLabel[] = new String[64];
+
+    private Assembler(Reader reader) {
+        mReader = reader;
+    }
+
+    /**
+     * Assembles a source file into a computer.
+     * @param file the source
+     * @param computer the computer to load
+     * @return the number of instruction words loaded
+     * @throws IOException if the file cannot be read or has an error, which
+     *         is reported with its line number
+     */
+    public static int assemble(Path file, Computer computer) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file),
+                StandardCharsets.UTF_8)) {
+            return assemble(reader, computer);
+        }
+    }
+
+    /**
+     * Assembles source into a computer. Only the slots and addresses the
+     * program emits are written.
+     * @param source the source, read to the end but not closed
+     * @param computer the computer to load
+     * @return the number of instruction words loaded
+     * @throws IOException if the source cannot be read or has an error,
+     *         which is reported with its line number
+     */
+    public static int assemble(Reader source, Computer computer) throws IOException {
+        if (source == null || computer == null) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        Assembler assembler = new Assembler(source);
+        assembler.readSource();
+        assembler.resolve();
+        return assembler.load(computer);
+    }
+
+    /**
+     * First pass: encodes every statement, leaving fixups for labels that
+     * are not defined yet.
+     */
+    private void readSource() throws IOException {
+        while (next() != END_OF_FILE) {
+            if (mType == END_OF_LINE) {
+                continue;
+            }
+            if (mType != WORD) {
+                throw error("statement expected");
+            }
+            if (mToken[mTokenLength - 1] == ':') {
+                defineLabel(new String(mToken, 0, mTokenLength - 1));
+                continue;
+            }
+            if (mToken[0] == '.') {
+                directive();
+            } else {
+                instruction();
+            }
+            if (next() != END_OF_LINE && mType != END_OF_FILE) {
+                throw error("unexpected " + tokenText());
+            }
+            if (mType == END_OF_FILE) {
+                break;
+            }
+        }
+    }
+
+    private void defineLabel(String label) throws IOException {
+        if (label.isEmpty() || mTextLabels.containsKey(label) || mDataLabels.containsKey(label)) {
+            throw error("label " + label + " is empty or defined twice");
+        }
+        (mSegment == mText ? mTextLabels : mDataLabels).put(label, mSegment.mAddress);
+    }
+
+    private void directive() throws IOException {
+        if (tokenIs(".text") || tokenIs(".data")) {
+            mSegment = tokenIs(".text") ? mText : mData;
+            if (peek() == WORD) {
+                next();
+                int address = number();
+                if (address < 0) {
+                    throw error("negative address");
+                }
+                mSegment.org(address);
+            }
+        } else if (tokenIs(".word")) {
+            do {
+                expect(WORD);
+                int offset = mSegment.mCount;
+                mSegment.emit(valueOrLabel(FIX_WORD, offset));
+            } while (peek() == COMMA && next() == COMMA);
+        } else if (tokenIs(".space")) {
+            expect(WORD);
+            int words = number();
+            if (words < 0) {
+                throw error("negative size");
+            }
+            for (int i = 0; i < words; i++) {
+                mSegment.emit(0);
+            }
+        } else {
+            throw error("unknown directive " + tokenText());
+        }
+    }
+
+    private void instruction() throws IOException {
+        if (mSegment != mText) {
+            throw error("instruction outside .text");
+        }
+        int mnemonic = -1;
+        for (int i = 0; i < MNEMONICS.length; i++) {
+            if (tokenIs(MNEMONICS[i])) {
+                mnemonic = i;
+                break;
+            }
+        }
+        int offset = mText.mCount;
+        int word;
+        switch (mnemonic) {
+            case 0:
+            case 1: {
+                int rd = register();
+                comma();
+                int rs = register();
+                comma();
+                int rt = register();
+                word = (rs << 21) | (rt << 16) | (rd << 11) | (mnemonic == 0 ? 0x20 : 0x24);
+                break;
+            }
+            case 2:
+            case 3: {
+                int rt = register();
+                comma();
+                int rs = register();
+                comma();
+                expect(WORD);
+                int imm = immediate(valueOrLabel(FIX_IMMEDIATE, offset), mnemonic == 3);
+                word = ((mnemonic == 2 ? 0x08 : 0x0C) << 26) | (rs << 21) | (rt << 16) | imm;
+                break;
+            }
+            case 4:
+            case 5:
+            case 11:
+            case 12: {
+                int rt = register();
+                comma();
+                // imm($rs), ($rs), label($rs), label or imm
+                int imm = 0;
+                if (peek() == WORD) {
+                    next();
+                    imm = immediate(valueOrLabel(FIX_IMMEDIATE, offset), false);
+                }
+                int rs = 0;
+                if (peek() == OPEN) {
+                    next();
+                    rs = register();
+                    expect(CLOSE);
+                }
+                int opcode = MEMORY_OPCODES[mnemonic < 11 ? mnemonic - 4 : mnemonic - 9];
+                word = (opcode << 26) | (rs << 21) | (rt << 16) | imm;
+                break;
+            }
+            case 6: {
+                int rs = register();
+                comma();
+                int rt = register();
+                comma();
+                expect(WORD);
+                int imm;
+                if (isNumber()) {
+                    imm = immediate(number(), false);
+                } else {
+                    Integer slot = mTextLabels.get(tokenText());
+                    if (slot == null) {
+                        addFixup(FIX_BRANCH, offset);
+                        imm = 0;
+                    } else {
+                        imm = branchOffset(slot, mText.mAddress + 1);
+                    }
+                }
+                word = (0x04 << 26) | (rs << 21) | (rt << 16) | imm;
+                break;
+            }
+            case 7: {
+                expect(WORD);
+                int slot;
+                if (isNumber()) {
+                    int address = number();
+                    if ((address & 3) != 0) {
+                        throw error("jump target " + address + " is not a word address");
+                    }
+                    slot = address >>> 2;
+                } else {
+                    Integer target = mTextLabels.get(tokenText());
+                    if (target == null) {
+                        addFixup(FIX_JUMP, offset);
+                        target = 0;
+                    }
+                    slot = target;
+                }
+                word = (0x02 << 26) | (slot & 0x03FFFFFF);
+                break;
+            }
+            case 8:
+                word = (register() << 21) | 0x08;
+                break;
+            case 9:
+                word = 0x0C;
+                break;
+            case 10:
+                word = 0;
+                break;
+            default:
+                throw error("unknown instruction " + tokenText());
+        }
+        mText.emit(word);
+    }
+
+    /**
+     * Returns the value of the current token, a number or a label. A label
+     * not defined yet leaves a fixup and counts as 0 for now.
+     */
+    private int valueOrLabel(int kind, int offset) throws IOException {
+        if (isNumber()) {
+            return number();
+        }
+        String label = tokenText();
+        Integer value = labelValue(label);
+        if (value == null) {
+            addFixup(kind, offset);
+            return 0;
+        }
+        return value;
+    }
+
+    private Integer labelValue(String label) {
+        Integer slot = mTextLabels.get(label);
+        if (slot != null) {
+            return slot * 4;
+        }
+        return mDataLabels.get(label);
+    }
+
+    private void addFixup(int kind, int offset) {
+        if (mFixups == mFixKind.length) {
+            int size = mFixups * 2;
+            mFixKind = Arrays.copyOf(mFixKind, size);
+            mFixOffset = Arrays.copyOf(mFixOffset, size);
+            mFixLine = Arrays.copyOf(mFixLine, size);
+            mFixInData = Arrays.copyOf(mFixInData, size);
+            mFixLabel = Arrays.copyOf(mFixLabel, size);
+        }
+        mFixKind[mFixups] = kind;
+        mFixOffset[mFixups] = offset;
+        mFixLine[mFixups] = mLine;
+        mFixInData[mFixups] = mSegment == mData;
+        mFixLabel[mFixups] = tokenText();
+        mFixups++;
+    }
+
+    /**
+     * Second pass: patches every fixup now that all labels are known.
+     */
+    private void resolve() throws IOException {
+        for (int i = 0; i < mFixups; i++) {
+            mLine = mFixLine[i];
+            String label = mFixLabel[i];
+            Segment segment = mFixInData[i] ? mData : mText;
+            int offset = mFixOffset[i];
+            int words[] = segment.mWords;
+            switch (mFixKind[i]) {
+                case FIX_BRANCH: {
+                    Integer slot = mTextLabels.get(label);
+                    if (slot == null) {
+                        throw error("undefined text label " + label);
+                    }
+                    words[offset] |= branchOffset(slot, segment.addressOf(offset) + 1);
+                    break;
+                }
+                case FIX_JUMP: {
+                    Integer slot = mTextLabels.get(label);
+                    if (slot == null) {
+                        throw error("undefined text label " + label);
+                    }
+                    words[offset] |= slot & 0x03FFFFFF;
+                    break;
+                }
+                case FIX_IMMEDIATE:
+                    words[offset] |= immediate(value(label), (words[offset] >>> 26) == 0x0C);
+                    break;
+                default:
+                    words[offset] = value(label);
+                    break;
+            }
+        }
+    }
+
+    private int value(String label) throws IOException {
+        Integer value = labelValue(label);
+        if (value == null) {
+            throw error("undefined label " + label);
+        }
+        return value;
+    }
+
+    /**
+     * Copies every run into memory and sets the PC.
+     * @return the number of instruction words loaded
+     */
+    private int load(Computer computer) {
+        mText.check("Text", computer.getInstrMemorySize());
+        mData.check("Data", computer.getDataMemorySize());
+        for (int run = 0; run < mText.mRuns; run++) {
+            computer.loadInstr(mText.mRunAddress[run], mText.run(run));
+        }
+        for (int run = 0; run < mData.mRuns; run++) {
+            computer.mMemory.store(mData.mRunAddress[run], mData.run(run));
+        }
+        Integer main = mTextLabels.get("main");
+        if (main != null) {
+            computer.mPC = main * 4;
+        } else {
+            computer.mPC = mText.mRuns > 0 ? mText.mRunAddress[0] * 4 : 0;
+        }
+        return mText.mCount;
+    }
+
+    private int branchOffset(int target, int next) throws IOException {
+        return immediate(target - next, false);
+    }
+
+    /**
+     * Checks that a value fits in the 16 bit immediate field.
+     * @param value the value
+     * @param unsigned true to also allow 32768 to 65535, as andi masks do
+     * @return the low 16 bits
+     */
+    private int immediate(int value, boolean unsigned) throws IOException {
+        if (value < Short.MIN_VALUE || value > (unsigned ? 0xFFFF : Short.MAX_VALUE)) {
+            throw error("immediate " + value + " does not fit in 16 bits");
+        }
+        return value & 0xFFFF;
+    }
+
+    private int register() throws IOException {
+        expect(WORD);
+        if (mToken[0] != '$' || mTokenLength < 2) {
+            throw error("register expected, found " + tokenText());
+        }
+        if (mToken[1] >= '0' && mToken[1] <= '9') {
+            int register = 0;
+            for (int i = 1; i < mTokenLength; i++) {
+                char c = mToken[i];
+                if (c < '0' || c > '9' || register > 31) {
+                    throw error("bad register " + tokenText());
+                }
+                register = register * 10 + (c - '0');
+            }
+            if (register > 31) {
+                throw error("bad register " + tokenText());
+            }
+            return register;
+        }
+        for (int i = 0; i < REGISTER_NAMES.length; i++) {
+            if (tokenIs(REGISTER_NAMES[i], 1)) {
+                return i;
+            }
+        }
+        throw error("bad register " + tokenText());
+    }
+
+    private void comma() throws IOException {
+        expect(COMMA);
+    }
+
+    private void expect(int type) throws IOException {
+        if (next() != type) {
+            throw error(type == WORD ? "operand expected"
+                    : type == COMMA ? "comma expected" : "parenthesis expected");
+        }
+    }
+
+    private boolean isNumber() {
+        char c = mToken[0];
+        return (c >= '0' && c <= '9') || (c == '-' && mTokenLength > 1);
+    }
+
+    /**
+     * Parses the current token as a decimal or 0x prefixed hex number.
+     */
+    private int number() throws IOException {
+        int i = 0;
+        boolean negative = mToken[0] == '-';
+        if (negative) {
+            i++;
+        }
+        int radix = 10;
+        if (mTokenLength - i > 2 && mToken[i] == '0' && (mToken[i + 1] | 0x20) == 'x') {
+            radix = 16;
+            i += 2;
+        }
+        if (i == mTokenLength) {
+            throw error("bad number " + tokenText());
+        }
+        long value = 0;
+        for (; i < mTokenLength; i++) {
+            int digit = Character.digit(mToken[i], radix);
+            if (digit < 0) {
+                throw error("bad number " + tokenText());
+            }
+            value = value * radix + digit;
+            if (value > (negative ? 0x80000000L : 0xFFFFFFFFL)) {
+                throw error("number " + tokenText() + " is larger than 32 bits");
+            }
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private boolean tokenIs(String text) {
+        return tokenIs(text, 0);
+    }
+
+    /**
+     * Compares the current token from an index on with some text, without
+     * building a String.
+     */
+    private boolean tokenIs(String text, int from) {
+        if (text.length() != mTokenLength - from) {
+            return false;
+        }
+        for (int i = from; i < mTokenLength; i++) {
+            if (mToken[i] != text.charAt(i - from)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String tokenText() {
+        switch (mType) {
+            case WORD:
+                return new String(mToken, 0, mTokenLength);
+            case COMMA:
+                return ",";
+            case OPEN:
+                return "(";
+            case CLOSE:
+                return ")";
+            default:
+                return "end of line";
+        }
+    }
+
+    private int peek() throws IOException {
+        if (!mPeeked) {
+            read();
+            mPeeked = true;
+        }
+        return mType;
+    }
+
+    private int next() throws IOException {
+        if (mPeeked) {
+            mPeeked = false;
+        } else {
+            read();
+        }
+        return mType;
+    }
+
+    /**
+     * Lexes the next token into mType and mToken.
+     */
+    private void read() throws IOException {
+        if (mType == END_OF_LINE) {
+            mLine++;
+        }
+        int c = nextChar();
+        while (c == ' ' || c == '\t' || c == '\r') {
+            c = nextChar();
+        }
+        if (c == '#') {
+            do {
+                c = nextChar();
+            } while (c != '\n' && c >= 0);
+        }
+        switch (c) {
+            case -1:
+                mType = END_OF_FILE;
+                return;
+            case '\n':
+                mType = END_OF_LINE;
+                return;
+            case ',':
+                mType = COMMA;
+                return;
+            case '(':
+                mType = OPEN;
+                return;
+            case ')':
+                mType = CLOSE;
+                return;
+            default:
+                break;
+        }
+        mType = WORD;
+        mTokenLength = 0;
+        while (c >= 0 && c != ' ' && c != '\t' && c != '\r' && c != '\n' && c != ','
+                && c != '(' && c != ')' && c != '#') {
+            if (mTokenLength == mToken.length) {
+                mToken = Arrays.copyOf(mToken, mTokenLength * 2);
+            }
+            mToken[mTokenLength++] = (char) c;
+            if (c == ':') {
+                // A label ends at its colon, even without a blank after it
+                return;
+            }
+            c = nextChar();
+        }
+        if (c >= 0) {
+            // Leave the delimiter for the next token
+            mPos--;
+        }
+    }
+
+    private int nextChar() throws IOException {
+        if (mPos == mLimit) {
+            mLimit = mReader.read(mBuffer, 0, mBuffer.length);
+            mPos = 0;
+            if (mLimit <= 0) {
+                mLimit = 0;
+                return -1;
+            }
+        }
+        return mBuffer[mPos++];
+    }
+
+    private IOException error(String message) {
+        return new IOException("Line " + mLine + ": " + message);
+    }
+
+    /**
+     * The words emitted to one segment, back to back, and the runs they
+     * form: each .text or .data with an address starts a new run.
+     */
+    private static final class Segment {
+        int mWords[] = new int[1024];
+        int mCount;
+        int mRunAddress[] = new int[4];
+        int mRunOffset[] = new int[4];
+        int mRuns;
+        // Slot or address of the next word
+        int mAddress;
+        private boolean mRunOpen;
+
+        void org(int address) {
+            mAddress = address;
+            mRunOpen = false;
+        }
+
+        void emit(int word) {
+            if (!mRunOpen) {
+                if (mRuns == mRunAddress.length) {
+                    mRunAddress = Arrays.copyOf(mRunAddress, mRuns * 2);
+                    mRunOffset = Arrays.copyOf(mRunOffset, mRuns * 2);
+                }
+                mRunAddress[mRuns] = mAddress;
+                mRunOffset[mRuns] = mCount;
+                mRuns++;
+                mRunOpen = true;
+            }
+            if (mCount == mWords.length) {
+                mWords = Arrays.copyOf(mWords, mCount * 2);
+            }
+            mWords[mCount++] = word;
+            mAddress++;
+        }
+
+        /** Returns the slot or address the word at an offset goes to. */
+        int addressOf(int offset) {
+            int run = mRuns - 1;
+            while (mRunOffset[run] > offset) {
+                run--;
+            }
+            return mRunAddress[run] + offset - mRunOffset[run];
+        }
+
+        IntBuffer run(int run) {
+            int end = run + 1 < mRuns ? mRunOffset[run + 1] : mCount;
+            return IntBuffer.wrap(mWords, mRunOffset[run], end - mRunOffset[run]);
+        }
+
+        void check(String name, int size) {
+            for (int run = 0; run < mRuns; run++) {
+                int end = run + 1 < mRuns ? mRunOffset[run + 1] : mCount;
+                if ((long) mRunAddress[run] + end - mRunOffset[run] > size) {
+                    throw new IllegalArgumentException(name + " segment does not fit in memory");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package computer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * BatchRunner runs one program on many independent computers, each
+ * starting from its own registers and data memory, the way Simulator sets
+ * up a single computer by hand. Runs are spread over a fixed pool of
+ * threads and their results are handed to a consumer as they finish.
+ *
+ * At most maxInFlight runs are started but not yet consumed at any time,
+ * so an endless stream of specs runs in bounded memory. With a parallelism
+ * of 1 everything runs on the calling thread in order.
+ *
+ * Each run is a fork of one computer with the program loaded, made on the
+ * calling thread. The runs share its instruction memory and, with the
+ * JIT, the blocks it compiles, so the warm-up is paid once per batch
+ * rather than once per run.
+ */
+public final class BatchRunner {
+
+    private final int mProgram[];
+    private final int mParallelism;
+    private final int mMaxInFlight;
+    // 0 until set, meaning the sizes of new Computer()
+    private int mInstrMemorySize;
+    private int mDataMemorySize;
+    private ExecutionEngine mEngine = ExecutionEngine.INTERPRETER;
+
+    /**
+     * Creates a runner using every core.
+     * @param program the instruction words, loaded from slot 0
+     */
+    public BatchRunner(int program[]) {
+        this(program, Runtime.getRuntime().availableProcessors(),
+                4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a runner.
+     * @param program the instruction words, loaded from slot 0
+     * @param parallelism number of threads running computers
+     * @param maxInFlight most runs started but not yet consumed
+     */
+    public BatchRunner(int program[], int parallelism, int maxInFlight) {
+        if (program == null || parallelism < 1 || maxInFlight < parallelism) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mProgram = program.clone();
+        mParallelism = parallelism;
+        mMaxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sets the memory sizes of each computer. Defaults to those of new Computer().
+     * @param instrMemorySize words of instruction memory
+     * @param dataMemorySize words of data memory
+     */
+    public void setMemorySizes(int instrMemorySize, int dataMemorySize) {
+        if (instrMemorySize < mProgram.length || dataMemorySize <= 0) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mInstrMemorySize = instrMemorySize;
+        mDataMemorySize = dataMemorySize;
+    }
+
+    /**
+     * Sets the engine each computer executes with.
+     * @param engine the execution engine
+     */
+    public void setExecutionEngine(ExecutionEngine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine must not be null");
+        }
+        mEngine = engine;
+    }
+
+    /**
+     * Runs every spec of a stream.
+     * @param specs initial states, one run each
+     * @param results receives each result on the calling thread
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public void run(Stream<Spec> specs, Consumer<Result> results) throws InterruptedException {
+        run(specs.iterator(), results);
+    }
+
+    /**
+     * Runs every spec of an iterator. Specs are only taken from the
+     * iterator when there is room for another run.
+     * @param specs initial states, one run each
+     * @param results receives each result on the calling thread
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public void run(Iterator<Spec> specs, Consumer<Result> results) throws InterruptedException {
+        Computer program = loadProgram();
+        if (mParallelism == 1) {
+            while (specs.hasNext()) {
+                results.accept(runOne(specs.next(), program.fork()));
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(mParallelism);
+        try {
+            CompletionService<Result> completed = new ExecutorCompletionService<>(executor);
+            int inFlight = 0;
+            while (specs.hasNext() || inFlight > 0) {
+                while (inFlight < mMaxInFlight && specs.hasNext()) {
+                    Spec spec = specs.next();
+                    Computer computer = program.fork();
+                    completed.submit(() -> runOne(spec, computer));
+                    inFlight++;
+                }
+                Result result;
+                try {
+                    result = completed.take().get();
+                } catch (ExecutionException e) {
+                    // runOne catches guest traps and bad specs, so this is a host error
+                    throw new IllegalStateException("Batch run failed", e.getCause());
+                }
+                inFlight--;
+                results.accept(result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the computer every run of a batch is forked from.
+     * @return a computer with the program loaded and nothing run
+     */
+    private Computer loadProgram() {
+        Computer computer = mInstrMemorySize == 0 ? new Computer()
+                : new Computer(mInstrMemorySize, mDataMemorySize);
+        computer.setExecutionEngine(mEngine);
+        for (int i = 0; i < mProgram.length; i++) {
+            computer.loadInstr(i, mProgram[i]);
+        }
+        return computer;
+    }
+
+    /**
+     * Sets up a computer from a spec and runs it to the end.
+     * @param spec the initial state
+     * @param computer a fork of the loaded program
+     * @return the final state
+     */
+    private Result runOne(Spec spec, Computer computer) {
+        int status = Computer.STATUS_RUNNING;
+        RuntimeException trap = null;
+        try {
+            // A word the spec cannot set fails this run like a guest trap
+            for (int i = 1; i < Spec.REGISTERS; i++) {
+                if (spec.mRegisterSet[i]) {
+                    computer.setRegister(i, spec.mRegisters[i]);
+                }
+            }
+            for (int i = 0; i < spec.mMemoryCount; i++) {
+                computer.setDataMemoryAdress(spec.mMemoryAddresses[i], spec.mMemoryValues[i]);
+            }
+            status = computer.execute();
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            trap = e;
+        }
+        return new Result(spec.mId, status, trap, computer);
+    }
+
+    /**
+     * The initial state of one run: register values and data memory words
+     * that differ from 0.
+     */
+    public static final class Spec {
+        private final static int REGISTERS = 32;
+
+        private final long mId;
+        private final int mRegisters[] = new int[REGISTERS];
+        private final boolean mRegisterSet[] = new boolean[REGISTERS];
+        private int mMemoryAddresses[] = new int[4];
+        private int mMemoryValues[] = new int[4];
+        private int mMemoryCount;
+
+        /**
+         * Creates a spec with every register and word 0.
+         * @param id identifies the run in its Result
+         */
+        public Spec(long id) {
+            mId = id;
+        }
+
+        /**
+         * Sets a register before the run.
+         * @param register 1 to 31
+         * @param value the value
+         * @return this spec
+         */
+        public Spec setRegister(int register, int value) {
+            if (register <= 0 || register >= REGISTERS) {
+                throw new IllegalArgumentException("Invalid Parameters");
+            }
+            mRegisters[register] = value;
+            mRegisterSet[register] = true;
+            return this;
+        }
+
+        /**
+         * Sets a data memory word before the run, as setDataMemoryAdress does.
+         * @param address the word address, at least 0
+         * @param value the value
+         * @return this spec
+         */
+        public Spec setDataMemory(int address, int value) {
+            if (address < 0) {
+                throw new IllegalArgumentException("Invalid Parameters");
+            }
+            if (mMemoryCount == mMemoryAddresses.length) {
+                mMemoryAddresses = Arrays.copyOf(mMemoryAddresses, mMemoryCount * 2);
+                mMemoryValues = Arrays.copyOf(mMemoryValues, mMemoryCount * 2);
+            }
+            mMemoryAddresses[mMemoryCount] = address;
+            mMemoryValues[mMemoryCount] = value;
+            mMemoryCount++;
+            return this;
+        }
+    }
+
+    /**
+     * The final state of one run.
+     */
+    public static final class Result {
+        private final long mId;
+        private final int mStatus;
+        private final RuntimeException mTrap;
+        private final Computer mComputer;
+
+        Result(long id, int status, RuntimeException trap, Computer computer) {
+            mId = id;
+            mStatus = status;
+            mTrap = trap;
+            mComputer = computer;
+        }
+
+        /** @return the id of the spec the run started from */
+        public long getId() {
+            return mId;
+        }
+
+        /** @return the status execute returned, STATUS_RUNNING if it trapped */
+        public int getStatus() {
+            return mStatus;
+        }
+
+        /** @return the exception the guest trapped with, or null */
+        public RuntimeException getTrap() {
+            return mTrap;
+        }
+
+        /** @return the computer in its final state */
+        public Computer getComputer() {
+            return mComputer;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package computer;
+
+import java.util.Arrays;
+
+/**
+ * A table of 2-bit saturating counters indexed by the low bits of the
+ * branch PC. Counters 0 and 1 predict not taken, 2 and 3 taken, and each
+ * outcome moves the counter one step towards it, so a loop branch costs
+ * one misprediction per exit rather than two.
+ */
+public final class BimodalPredictor implements BranchPredictor {
+
+    // Weakly not taken
+    private final static byte INITIAL = 1;
+
+    private final byte mCounters[];
+    private final int mMask;
+
+    /**
+     * Creates a predictor.
+     * @param entries number of counters, a power of two
+     */
+    public BimodalPredictor(int entries) {
+        if (entries <= 0 || Integer.bitCount(entries) != 1) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mCounters = new byte[entries];
+        mMask = entries - 1;
+        reset();
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        return mCounters[(pc >>> 2) & mMask] >= 2;
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+        mCounters[(pc >>> 2) & mMask] = train(mCounters[(pc >>> 2) & mMask], taken);
+    }
+
+    /**
+     * Moves a 2-bit counter one step towards an outcome.
+     * @param counter the counter, 0 to 3
+     * @param taken the outcome
+     * @return the new counter
+     */
+    static byte train(byte counter, boolean taken) {
+        if (taken) {
+            return counter < 3 ? (byte) (counter + 1) : counter;
+        }
+        return counter > 0 ? (byte) (counter - 1) : counter;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(mCounters, INITIAL);
+    }
+
+    @Override
+    public String getName() {
+        return "bimodal-" + mCounters.length;
+    }
+}
@@ -0,0 +1,411 @@
+package computer;
+
+/**
+ * A BitString class represents a series of 1s and 0s and can hold up to
+ * a maximum of 32 bits and also keeps track of the number of bits stored.
+ * It has operations to do various operations associated with 1s and 0s - 
+ * substring, append, copy, setting and getting 2s complement value, etc. 
+ * The bits are packed into a single int, the rightmost bit of the
+ * BitString being the lowest bit of the int.
+ *
+ * valueOf returns immutable 32 bit values, which every mutator refuses
+ * to change. The values from -128 to 1023 are cached, so the common
+ * words are shared rather than allocated. copy returns a mutable
+ * BitString with the same bits.
+ * 
+ * @author mmuppa
+ * @author aamado1
+ * @author zentm
+ */
+public class BitString {
+
+    // Constants for range checking
+    private final static int MAX_BITS = 32;
+
+    // Range of the values valueOf shares instead of allocating
+    private final static int CACHE_LOW = -128;
+    private final static int CACHE_HIGH = 1023;
+    private final static BitString CACHE[] = new BitString[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new BitString(CACHE_LOW + i);
+        }
+    }
+
+    private int mValue;
+    private int mLength;
+    private boolean mIsSet;
+    private boolean isRFormat;
+    private boolean isIFormat;
+    private boolean isJFormat;
+    private final boolean mImmutable;
+
+    /**
+     * This constructs a generic BitString object.
+     */
+    public BitString() {
+        isRFormat = false;
+        isIFormat = false;
+        isJFormat = false;
+        mImmutable = false;
+    }
+
+    /**
+     * Constructs an immutable 32 bit value, for valueOf.
+     * @param value the 2s complement value
+     */
+    private BitString(int value) {
+        mValue = value;
+        mLength = MAX_BITS;
+        mIsSet = true;
+        mImmutable = true;
+    }
+
+    /**
+     * Returns an immutable 32 bit BitString holding a value. Values from
+     * -128 to 1023 always return the same instance.
+     * @param value the 2s complement value
+     * @return the BitString
+     */
+    public static BitString valueOf(int value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[value - CACHE_LOW];
+        }
+        return new BitString(value);
+    }
+
+    /**
+     * Returns whether the BitString came from valueOf and cannot change.
+     * @return true if every mutator throws
+     */
+    public boolean isImmutable() {
+        return mImmutable;
+    }
+
+    private void checkMutable() {
+        if (mImmutable) {
+            throw new UnsupportedOperationException("BitString is immutable");
+        }
+    }
+
+    /**
+     * This constructs a BitString object specifying whether or not it this BitString
+     * is a R, I, or J-format instruction
+     * @param rFormat specifier for whether or not this BitString is a R-format instruction
+     * @param iFormat specifier for whether or not this BitString is a I-format instruction
+     * @param jFormat specifier for whether or not this BitString is a J-format instruction
+     */
+    public BitString(boolean rFormat, boolean iFormat, boolean jFormat) {
+        if (rFormat && iFormat == true || rFormat && jFormat == true 
+                || iFormat && jFormat == true) {
+            throw new IllegalArgumentException("Error: Bitstring must be either a R, J, or I format "
+                    + "instruction.");
+        }
+        isRFormat = rFormat;
+        isIFormat = iFormat;
+        isJFormat = jFormat;
+        mImmutable = false;
+    }
+
+    /**
+     * Returns a mask covering the low length bits of an int.
+     * @param length number of bits, 0 to 32
+     * @return the mask
+     */
+    private static int mask(int length) {
+        return (int) ((1L << length) - 1);
+    }
+
+    /**
+     * Sets the corresponding bits by copying and also sets the length
+     * of the BitString. 
+     * @param bits Array of bits 
+     */
+    public void setBits(char[] bits) {
+        if (bits == null || bits.length > MAX_BITS) {
+            throw new IllegalArgumentException("Invalid input: null or exceeds bit string length");
+        }
+        checkMutable();
+        int value = 0;
+        for (int i = 0; i < bits.length; i++) {
+            value = (value << 1) | (bits[i] == '1' ? 1 : 0);
+        }
+        mValue = value;
+        mLength = bits.length;
+        mIsSet = true;
+    }
+
+    /**
+     * Flips all the bits of the BitString. 
+     */
+    public void invert() {
+        if (!mIsSet) {
+            throw new IllegalArgumentException("Bit String must be set first.");
+        }
+        checkMutable();
+        mValue = ~mValue & mask(mLength);
+    }
+
+    /**
+     * Adds 1 to the BitString.
+     */
+    public void addOne() {
+        if (!mIsSet) {
+            throw new IllegalArgumentException("Bit String must be set first.");
+        }
+        checkMutable();
+        mValue = (mValue + 1) & mask(mLength);
+    }
+
+    /**
+     * Sets the unsigned binary representation of the input 
+     * decimal number 
+     * @param n the unsigned value
+     */
+    public void setValue(int n) {
+        // Every non-negative int fits in 32 unsigned bits
+        if (n < 0) {
+            throw new IllegalArgumentException("Cannot represent in "
+                    + MAX_BITS + " bits.");
+        }
+        checkMutable();
+        mValue = n;
+        mLength = MAX_BITS;
+        mIsSet = true;
+    }
+
+    /**
+     * Sets the 2s complement binary value of the input value
+     * @param n negative or positive decimal value
+     */
+    public void setValue2sComp(int n) {
+        checkMutable();
+        mValue = n;
+        mLength = MAX_BITS;
+        mIsSet = true;
+    }
+
+    /**
+     * Displays the BitString in groups of four or
+     * in one group of 32.
+     * @param groupsOfFour 
+     */
+    public void display(boolean groupsOfFour) {
+        StringBuilder bits = new StringBuilder(mLength + mLength / 4);
+        for (int i = 0; i < mLength; i++) {
+            if (groupsOfFour && (i % 4 == 0) && i != 0) {
+                bits.append(' ');
+            }
+            bits.append((char) ('0' + bitAt(i)));
+        }
+        System.out.print(bits);
+    }
+
+    /**
+     * Returns the bit at a position, counting from the leftmost bit.
+     * @param index position of the bit, 0 being the leftmost
+     * @return 0 or 1
+     */
+    private int bitAt(int index) {
+        return (mValue >>> (mLength - 1 - index)) & 1;
+    }
+
+    /**
+     * Creates a copy of the BitString and returns it. The copy is mutable
+     * even if this BitString is not.
+     * @return copy of BitString object
+     */
+    public BitString copy() {
+        if (!mIsSet) {
+            throw new IllegalArgumentException("Nothing to copy.");
+        }
+        BitString copy = new BitString(this.isRFormat, this.isIFormat, this.isJFormat);
+        copy.mLength = mLength;
+        copy.mValue = mValue;
+        copy.mIsSet = true;
+        return copy;
+    }
+
+    /**
+     * Returns the unsigned value of the BitString representation. 
+     * @return decimal unsigned value
+     */
+    public int getValue() {
+        if (!mIsSet) {
+            throw new IllegalArgumentException("Bit String must be set first.");
+        }
+        return mValue;
+    }
+
+    /**
+     * Returns the 2s complement value of the BitString representation. 
+     * @return decimal value
+     */
+    public int getValue2sComp() {
+        if (!mIsSet) {
+            throw new IllegalArgumentException("Bit String must be set first.");
+        }
+        if (mLength == 0) {
+            return 0;
+        }
+        // Shift the sign bit to the top and arithmetic shift back down
+        int shift = MAX_BITS - mLength;
+        return (mValue << shift) >> shift;
+    }
+
+    /**
+     * Returns a new BitString that is combination of this and the 
+     * other BitString appended to it. 
+     * @param other
+     * @return new BitString that combines both
+     */
+    public BitString append(BitString other) {
+        if (!mIsSet || other == null) {
+            throw new IllegalArgumentException("Bit String must be set first.");
+        }
+        BitString bitString = new BitString(this.isRFormat, this.isIFormat, this.isJFormat);
+        if (mLength + other.mLength > MAX_BITS) {
+            throw new IllegalArgumentException("Exceeds bit string length");
+        }
+        bitString.mValue = (int) (((long) mValue << other.mLength) | (other.mValue & 0xFFFFFFFFL));
+        bitString.mLength = mLength + other.mLength;
+        bitString.mIsSet = true;
+
+        return bitString;
+    }
+
+    /**
+     * Returns a substring of the given string. 
+     * @param start
+     * @param length
+     * @return A new BitString is created from the source starting at the index
+     *         and with the length.
+     */
+    public BitString substring(int start, int length) {
+        if (start < 0 || length < 0 || start + length > mLength) {
+            throw new ArrayIndexOutOfBoundsException("Substring out of range");
+        }
+        BitString subStr = new BitString(this.isRFormat, this.isIFormat, this.isJFormat);
+        subStr.mValue = (mValue >>> (mLength - start - length)) & mask(length);
+        subStr.mLength = length;
+        subStr.mIsSet = true;
+        return subStr;
+    }
+
+    /**
+     * Returns an array of the bits stored in the BitString
+     * @return character array of bits
+     */
+    public char[] getBits() {
+        if (!mIsSet) {
+            return null;
+        }
+        char[] bits = new char[mLength];
+        for (int i = 0; i < mLength; i++) {
+            bits[i] = bitAt(i) == 0 ? '0' : '1';
+        }
+        return bits;
+    }
+
+    /**
+     * Two BitStrings are equal when they hold the same bits, so views built
+     * by Computer compare equal to the BitString that was stored. Computer
+     * keeps raw words, so the views carry no instruction format, and
+     * neither the format nor whether either is immutable matters.
+     *
+     * Equality follows the current bits, so a BitString made with new
+     * moves to another hash bucket when it is changed. Do not change one
+     * while it is a key in a hash map or set; the values from valueOf
+     * never change and are safe as keys.
+     * @param other object to compare with
+     * @return true if other is a BitString with the same length and bits
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof BitString)) {
+            return false;
+        }
+        BitString bitString = (BitString) other;
+        return mIsSet == bitString.mIsSet && mLength == bitString.mLength
+                && mValue == bitString.mValue;
+    }
+
+    /**
+     * Returns a hash of the same state equals compares.
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return 31 * mLength + mValue;
+    }
+
+    /**
+     * Returns the length of the BitString
+     * @return length
+     */
+    public int getLength() {
+        return mLength;
+    }
+
+    public boolean isRFormat() {
+        return isRFormat;
+    }
+
+    public boolean isIFormat() {
+        return isIFormat;
+    }
+
+    public boolean isJFormat() {
+        return isJFormat;
+    }
+    
+    /**
+     * Reads a field of the BitString without building a substring.
+     * @param start index of the leftmost bit of the field
+     * @param length number of bits in the field
+     * @return unsigned value of the field
+     */
+    private int field(int start, int length) {
+        if (start < 0 || start + length > mLength) {
+            throw new ArrayIndexOutOfBoundsException("Field out of range");
+        }
+        return (mValue >>> (mLength - start - length)) & mask(length);
+    }
+
+    public int getOpcode() {
+        return field(0, 6);
+    }
+    
+    public int getRs() {
+        return field(6, 5);
+    }
+    
+    public int getRt() {
+        return field(11, 5);
+    }
+    
+    public int getRd() {
+        return field(16, 5);
+    }
+    
+    public int getShamt() {
+        return field(21, 5);
+    }
+    
+    public int getFunct() {
+        return field(26, 6);
+    }
+    
+    public int getImm() {
+        return (short) field(16, 16);
+    }
+    
+    public int getAddr() {
+        return (field(6, 26) << 6) >> 6;
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,548 @@
+package computer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BlockCompiler turns a basic block of predecoded instructions into a
+ * hidden JVM class implementing CompiledBlock. The class file is written
+ * by hand, so no bytecode library is needed.
+ *
+ * The generated code has no branches of its own. The checked operations
+ * (add, addi, lw, sw, beq, j, jr) call the same Computer methods as the
+ * interpreter handlers, so overflow traps and bounds checks are identical.
+ * Before each of them, and before an and/andi that writes $0, the PC and
+ * IR are stored, so a trap leaves the computer in the state the
+ * interpreter would have left it in. After each instruction retires the
+ * block calls Computer.recordRetired, so the flight recorder holds the
+ * same history as under the interpreter.
+ */
+final class BlockCompiler {
+
+    /** Longest block compiled, keeping the method small enough for HotSpot to compile. */
+    final static int MAX_BLOCK_LENGTH = 128;
+
+    private final static String COMPUTER = "computer/Computer";
+
+    // Bytecodes used by the generated code
+    private final static int ICONST_0 = 0x03;
+    private final static int BIPUSH = 0x10;
+    private final static int SIPUSH = 0x11;
+    private final static int LDC_W = 0x13;
+    private final static int ALOAD_0 = 0x2a;
+    private final static int ALOAD_1 = 0x2b;
+    private final static int ALOAD_2 = 0x2c;
+    private final static int IALOAD = 0x2e;
+    private final static int ASTORE_2 = 0x4d;
+    private final static int IASTORE = 0x4f;
+    private final static int IAND = 0x7e;
+    private final static int IRETURN = 0xac;
+    private final static int RETURN = 0xb1;
+    private final static int GETFIELD = 0xb4;
+    private final static int PUTFIELD = 0xb5;
+    private final static int INVOKEVIRTUAL = 0xb6;
+    private final static int INVOKESPECIAL = 0xb7;
+    private final static int INVOKESTATIC = 0xb8;
+
+    private final static MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private BlockCompiler() {
+    }
+
+    /**
+     * Returns true if the handler ends a basic block.
+     * @param handler the predecoded handler id
+     * @return true for beq, j, jr and syscall
+     */
+    static boolean endsBlock(int handler) {
+        return handler == Computer.HANDLER_BEQ || handler == Computer.HANDLER_JUMP
+                || handler == Computer.HANDLER_JUMP_REGISTER
+                || handler == Computer.HANDLER_SYSCALL;
+    }
+
+    /**
+     * Returns the slot after the last instruction of the block starting at
+     * a slot.
+     * @param computer the computer holding the instructions
+     * @param start the first slot of the block
+     * @return the exclusive end slot
+     */
+    static int blockEnd(Computer computer, int start) {
+        int limit = Math.min(computer.getInstrMemorySize(), start + MAX_BLOCK_LENGTH);
+        int slot = start;
+        while (slot < limit) {
+            if (endsBlock(computer.mDecHandler[slot++])) {
+                break;
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Compiles the block from start to end and loads it as a hidden class.
+     * @param computer the computer holding the instructions
+     * @param start the first slot of the block
+     * @param end the exclusive end slot from blockEnd
+     * @return the compiled block
+     */
+    static CompiledBlock compile(Computer computer, int start, int end) {
+        byte[] classFile = new BlockCompiler.ClassFile(computer, start, end).toBytes();
+        try {
+            MethodHandles.Lookup hidden = LOOKUP.defineHiddenClass(classFile, true);
+            return (CompiledBlock) hidden.findConstructor(hidden.lookupClass(),
+                    MethodType.methodType(void.class)).invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Could not load compiled block", t);
+        }
+    }
+
+    /**
+     * Writes the class file of one block.
+     */
+    private static final class ClassFile {
+
+        private final Computer mComputer;
+        private final int mStart;
+        private final int mEnd;
+        private final ByteArrayOutputStream mPoolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream mPool = new DataOutputStream(mPoolBytes);
+        private final Map<String, Integer> mPoolIndex = new HashMap<>();
+        private int mPoolCount = 1;
+        private final ByteArrayOutputStream mCode = new ByteArrayOutputStream();
+        // Operand stack change of each invoked method, by pool index, and
+        // the slots of each field
+        private final Map<Integer, Integer> mStackChange = new HashMap<>();
+        // The code has no branches, so the depth is known at every opcode
+        private int mDepth;
+        private int mMaxStack;
+
+        ClassFile(Computer computer, int start, int end) {
+            mComputer = computer;
+            mStart = start;
+            mEnd = end;
+        }
+
+        byte[] toBytes() {
+            try {
+                int thisClass = classRef("computer/Block");
+                int superClass = classRef("java/lang/Object");
+                int blockInterface = classRef("computer/CompiledBlock");
+                int objectInit = methodRef("java/lang/Object", "<init>", "()V", false);
+                int initName = utf8("<init>");
+                int initType = utf8("()V");
+                int runName = utf8("run");
+                int runType = utf8("(L" + COMPUTER + ";)I");
+                int codeName = utf8("Code");
+
+                byte[] initCode = { (byte) ALOAD_0, (byte) INVOKESPECIAL,
+                        (byte) (objectInit >> 8), (byte) objectInit, (byte) RETURN };
+                byte[] runCode = runCode();
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(52);
+                out.writeShort(mPoolCount);
+                mPool.flush();
+                mPoolBytes.writeTo(out);
+                out.writeShort(0x0030); // ACC_FINAL | ACC_SUPER
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(1);
+                out.writeShort(blockInterface);
+                out.writeShort(0); // fields
+                out.writeShort(2); // methods
+                writeMethod(out, 0x0001, initName, initType, codeName, 1, 1, initCode);
+                writeMethod(out, 0x0001, runName, runType, codeName, mMaxStack, 3, runCode);
+                out.writeShort(0); // attributes
+                out.flush();
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void writeMethod(DataOutputStream out, int access, int name, int type,
+                int codeName, int maxStack, int maxLocals, byte[] code) throws IOException {
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(type);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        }
+
+        /**
+         * Emits run(Computer). Local 1 is the computer and local 2 its
+         * register file.
+         */
+        private byte[] runCode() throws IOException {
+            int registers = fieldRef(COMPUTER, "mRegisters", "[I");
+            emit(ALOAD_1);
+            emitRef(GETFIELD, registers);
+            emit(ASTORE_2);
+            for (int slot = mStart; slot < mEnd; slot++) {
+                int pc = slot * 4;
+                int rs = mComputer.mDecRs[slot];
+                int rt = mComputer.mDecRt[slot];
+                int rd = mComputer.mDecRd[slot];
+                int imm = mComputer.mDecImm[slot];
+                switch (mComputer.mDecHandler[slot]) {
+                    case Computer.HANDLER_REG_ADD:
+                        storeFetchState(slot);
+                        beginRegisterWrite(rd);
+                        emit(ALOAD_1);
+                        loadRegister(rs);
+                        loadRegister(rt);
+                        emitRef(INVOKEVIRTUAL, methodRef(COMPUTER, "addRegisters", "(II)I", false));
+                        endRegisterWrite(rd);
+                        break;
+                    case Computer.HANDLER_REG_AND:
+                        if (rd == 0) {
+                            storeFetchState(slot);
+                        }
+                        beginRegisterWrite(rd);
+                        loadRegister(rs);
+                        loadRegister(rt);
+                        emit(IAND);
+                        endRegisterWrite(rd);
+                        break;
+                    case Computer.HANDLER_IMM_ADD:
+                        storeFetchState(slot);
+                        beginRegisterWrite(rt);
+                        emit(ALOAD_1);
+                        loadRegister(rs);
+                        pushInt(imm);
+                        emitRef(INVOKEVIRTUAL, methodRef(COMPUTER, "addImmediate", "(II)I", false));
+                        endRegisterWrite(rt);
+                        break;
+                    case Computer.HANDLER_IMM_AND:
+                        if (rt == 0) {
+                            storeFetchState(slot);
+                        }
+                        beginRegisterWrite(rt);
+                        loadRegister(rs);
+                        pushInt(imm);
+                        emit(IAND);
+                        endRegisterWrite(rt);
+                        break;
+                    case Computer.HANDLER_LOAD_WORD:
+                        storeFetchState(slot);
+                        beginRegisterWrite(rt);
+                        emit(ALOAD_1);
+                        loadRegister(rs);
+                        pushInt(imm);
+                        emitRef(INVOKEVIRTUAL, methodRef(COMPUTER, "loadWord", "(II)I", false));
+                        endRegisterWrite(rt);
+                        break;
+                    case Computer.HANDLER_STORE_WORD:
+                        storeFetchState(slot);
+                        emit(ALOAD_1);
+                        loadRegister(rs);
+                        pushInt(imm);
+                        loadRegister(rt);
+                        emitRef(INVOKEVIRTUAL, methodRef(COMPUTER, "storeWord", "(III)V", false));
+                        break;
+                    case Computer.HANDLER_LOAD_LINKED:
+                        storeFetchState(slot);
+                        beginRegisterWrite(rt);
+                        emit(ALOAD_1);
+                        loadRegister(rs);
+                        pushInt(imm);
+                        emitRef(INVOKEVIRTUAL, methodRef(COMPUTER, "loadLinked", "(II)I", false));
+                        endRegisterWrite(rt);
+                        break;
+                    case Computer.HANDLER_STORE_CONDITIONAL:
+                        storeFetchState(slot);
+                        beginRegisterWrite(rt);
+                        emit(ALOAD_1);
+                        loadRegister(rs);
+                        pushInt(imm);
+                        loadRegister(rt);
+                        emitRef(INVOKEVIRTUAL,
+                                methodRef(COMPUTER, "storeConditional", "(III)I", false));
+                        endRegisterWrite(rt);
+                        break;
+                    case Computer.HANDLER_BEQ:
+                        storeFetchState(slot);
+                        emit(ALOAD_1);
+                        pushInt(pc + 4);
+                        loadRegister(rs);
+                        loadRegister(rt);
+                        pushInt(imm);
+                        emitRef(INVOKEVIRTUAL, methodRef(COMPUTER, "branchIfEqual", "(IIII)I", false));
+                        recordRetired(slot);
+                        emit(IRETURN);
+                        return mCode.toByteArray();
+                    case Computer.HANDLER_JUMP:
+                        storeFetchState(slot);
+                        emit(ALOAD_1);
+                        pushInt(pc + 4);
+                        pushInt(mComputer.mDecTarget[slot]);
+                        emitRef(INVOKEVIRTUAL, methodRef(COMPUTER, "jumpTarget", "(II)I", false));
+                        recordRetired(slot);
+                        emit(IRETURN);
+                        return mCode.toByteArray();
+                    case Computer.HANDLER_JUMP_REGISTER:
+                        storeFetchState(slot);
+                        emit(ALOAD_1);
+                        loadRegister(rs);
+                        emitRef(INVOKEVIRTUAL, methodRef(COMPUTER, "jumpRegisterTarget", "(I)I", false));
+                        recordRetired(slot);
+                        emit(IRETURN);
+                        return mCode.toByteArray();
+                    case Computer.HANDLER_SYSCALL:
+                        storeFetchState(slot);
+                        recordRetired(slot);
+                        pushInt(CompiledBlock.HALTED);
+                        emit(IRETURN);
+                        return mCode.toByteArray();
+                    default:
+                        break;
+                }
+                recordRetired(slot);
+            }
+            // The block ran into the length limit or the end of memory
+            storeFetchState(mEnd - 1);
+            pushInt(mEnd * 4);
+            emit(IRETURN);
+            return mCode.toByteArray();
+        }
+
+        /** Stores the PC and IR the interpreter would hold after fetching a slot. */
+        private void storeFetchState(int slot) throws IOException {
+            emit(ALOAD_1);
+            pushInt(slot * 4 + 4);
+            emitRef(PUTFIELD, fieldRef(COMPUTER, "mPC", "I"));
+            emit(ALOAD_1);
+            pushInt(mComputer.mInstrMemory[slot]);
+            emitRef(PUTFIELD, fieldRef(COMPUTER, "mIR", "I"));
+        }
+
+        /** Records a slot in the flight recorder once its instruction has retired. */
+        private void recordRetired(int slot) throws IOException {
+            emit(ALOAD_1);
+            pushInt(slot * 4);
+            pushInt(mComputer.mInstrMemory[slot]);
+            pushInt(mComputer.mDecDest[slot]);
+            emitRef(INVOKEVIRTUAL, methodRef(COMPUTER, "recordRetired", "(III)V", false));
+        }
+
+        private void loadRegister(int register) {
+            emit(ALOAD_2);
+            pushInt(register);
+            emit(IALOAD);
+        }
+
+        /**
+         * Writes to $0 go through setRegister so they trap like the
+         * interpreter, every other register is stored straight into the
+         * register file.
+         */
+        private void beginRegisterWrite(int register) {
+            if (register == 0) {
+                emit(ALOAD_1);
+                emit(ICONST_0);
+            } else {
+                emit(ALOAD_2);
+                pushInt(register);
+            }
+        }
+
+        private void endRegisterWrite(int register) throws IOException {
+            if (register == 0) {
+                emitRef(INVOKEVIRTUAL, methodRef(COMPUTER, "writeRegister", "(II)V", false));
+            } else {
+                emit(IASTORE);
+            }
+        }
+
+        private void pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                emit(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                emit(BIPUSH);
+                mCode.write(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                emit(SIPUSH);
+                mCode.write(value >> 8);
+                mCode.write(value);
+            } else {
+                try {
+                    emitRef(LDC_W, integer(value));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        private void emit(int opcode) {
+            mCode.write(opcode);
+            switch (opcode) {
+                case IALOAD:
+                case ASTORE_2:
+                case IAND:
+                case IRETURN:
+                    stack(-1);
+                    break;
+                case IASTORE:
+                    stack(-3);
+                    break;
+                case RETURN:
+                    break;
+                default:
+                    // Constants and local loads
+                    if (opcode < ICONST_0 - 1 || opcode > ALOAD_2) {
+                        throw new IllegalStateException("Unknown opcode " + opcode);
+                    }
+                    stack(1);
+                    break;
+            }
+        }
+
+        private void emitRef(int opcode, int index) {
+            mCode.write(opcode);
+            mCode.write(index >> 8);
+            mCode.write(index);
+            if (opcode == LDC_W) {
+                stack(1);
+            } else if (opcode == GETFIELD) {
+                stack(mStackChange.get(index) - 1);
+            } else if (opcode == PUTFIELD) {
+                stack(-mStackChange.get(index) - 1);
+            } else {
+                stack(mStackChange.get(index));
+            }
+        }
+
+        private void stack(int change) {
+            mDepth += change;
+            mMaxStack = Math.max(mMaxStack, mDepth);
+        }
+
+        // Constant pool entries, each added once
+
+        private int utf8(String value) throws IOException {
+            Integer index = mPoolIndex.get("U" + value);
+            if (index == null) {
+                mPool.writeByte(1);
+                mPool.writeUTF(value);
+                index = add("U" + value);
+            }
+            return index;
+        }
+
+        private int integer(int value) throws IOException {
+            Integer index = mPoolIndex.get("I" + value);
+            if (index == null) {
+                mPool.writeByte(3);
+                mPool.writeInt(value);
+                index = add("I" + value);
+            }
+            return index;
+        }
+
+        private int classRef(String name) throws IOException {
+            Integer index = mPoolIndex.get("C" + name);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                mPool.writeByte(7);
+                mPool.writeShort(nameIndex);
+                index = add("C" + name);
+            }
+            return index;
+        }
+
+        private int nameAndType(String name, String type) throws IOException {
+            String key = "N" + name + ":" + type;
+            Integer index = mPoolIndex.get(key);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                int typeIndex = utf8(type);
+                mPool.writeByte(12);
+                mPool.writeShort(nameIndex);
+                mPool.writeShort(typeIndex);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int fieldRef(String owner, String name, String type) throws IOException {
+            int index = memberRef(9, owner, name, type);
+            mStackChange.put(index, slots(type, 0));
+            return index;
+        }
+
+        /**
+         * Adds a reference to an instance method, which is what every
+         * invoke in run calls.
+         */
+        private int methodRef(String owner, String name, String type, boolean isInterface)
+                throws IOException {
+            int index = memberRef(isInterface ? 11 : 10, owner, name, type);
+            int end = type.indexOf(')');
+            int arguments = 0;
+            for (int i = 1; i < end; i++) {
+                arguments += slots(type, i);
+                while (type.charAt(i) == '[') {
+                    i++;
+                }
+                if (type.charAt(i) == 'L') {
+                    i = type.indexOf(';', i);
+                }
+            }
+            mStackChange.put(index, slots(type, end + 1) - arguments - 1);
+            return index;
+        }
+
+        /**
+         * Returns the operand stack slots of the type starting at an index
+         * of a descriptor.
+         */
+        private static int slots(String descriptor, int index) {
+            switch (descriptor.charAt(index)) {
+                case 'V':
+                    return 0;
+                case 'J':
+                case 'D':
+                    return 2;
+                default:
+                    return 1;
+            }
+        }
+
+        private int memberRef(int tag, String owner, String name, String type) throws IOException {
+            String key = "M" + tag + owner + "." + name + ":" + type;
+            Integer index = mPoolIndex.get(key);
+            if (index == null) {
+                int ownerIndex = classRef(owner);
+                int nameAndTypeIndex = nameAndType(name, type);
+                mPool.writeByte(tag);
+                mPool.writeShort(ownerIndex);
+                mPool.writeShort(nameAndTypeIndex);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int add(String key) {
+            int index = mPoolCount++;
+            mPoolIndex.put(key, index);
+            return index;
+        }
+    }
+}
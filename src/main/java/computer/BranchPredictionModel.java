@@ -0,0 +1,265 @@
+package computer;
+
+import java.util.Arrays;
+
+/**
+ * Runs several branch predictors side by side over one execution, filled
+ * in by a Computer that has the model attached with
+ * setBranchPredictionModel. Before every beq retires each predictor is
+ * asked for a direction and then trained with the outcome, and every j
+ * and jr is looked up in the branch target buffer, if there is one, and
+ * then recorded in it.
+ *
+ * Mispredictions are counted per predictor and per branch PC in flat long
+ * arrays, so the branches a predictor gets wrong most can be found.
+ */
+public final class BranchPredictionModel {
+
+    private final BranchPredictor mPredictors[];
+    private final BranchTargetBuffer mTargetBuffer;
+    private final int mSlots;
+
+    private final long mBranches[];
+    // Indexed by predictor * mSlots + slot
+    private final long mMispredictions[];
+    private final long mJumps[];
+    private final long mTargetMisses[];
+
+    /**
+     * Creates a model.
+     * @param instrMemorySize number of instruction memory slots to count
+     * @param targetBuffer the buffer jumps are predicted with, or null to
+     *        not predict jumps
+     * @param predictors the beq predictors to compare, at least one
+     */
+    public BranchPredictionModel(int instrMemorySize, BranchTargetBuffer targetBuffer,
+            BranchPredictor... predictors) {
+        if (instrMemorySize <= 0 || predictors == null || predictors.length == 0) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        for (BranchPredictor predictor : predictors) {
+            if (predictor == null) {
+                throw new IllegalArgumentException("Invalid Parameters");
+            }
+        }
+        mPredictors = predictors.clone();
+        mTargetBuffer = targetBuffer;
+        mSlots = instrMemorySize;
+        mBranches = new long[instrMemorySize];
+        mMispredictions = new long[predictors.length * instrMemorySize];
+        mJumps = new long[instrMemorySize];
+        mTargetMisses = new long[instrMemorySize];
+    }
+
+    /**
+     * Predicts and trains one retired beq with every predictor.
+     * @param slot the instruction memory slot of the branch
+     * @param target byte address the branch goes to if taken
+     * @param taken whether it was taken
+     */
+    void branch(int slot, int target, boolean taken) {
+        int pc = slot * 4;
+        mBranches[slot]++;
+        for (int i = 0; i < mPredictors.length; i++) {
+            BranchPredictor predictor = mPredictors[i];
+            if (predictor.predict(pc, target) != taken) {
+                mMispredictions[i * mSlots + slot]++;
+            }
+            predictor.update(pc, target, taken);
+        }
+    }
+
+    /**
+     * Looks up and records one retired j or jr in the target buffer.
+     * @param slot the instruction memory slot of the jump
+     * @param target byte address it went to
+     */
+    void jump(int slot, int target) {
+        if (mTargetBuffer == null) {
+            return;
+        }
+        int pc = slot * 4;
+        mJumps[slot]++;
+        if (mTargetBuffer.predict(pc) != target) {
+            mTargetMisses[slot]++;
+        }
+        mTargetBuffer.update(pc, target);
+    }
+
+    /**
+     * Returns the number of instruction memory slots counted.
+     * @return the slot count
+     */
+    public int getInstrMemorySize() {
+        return mSlots;
+    }
+
+    /**
+     * Returns the number of predictors compared.
+     * @return the predictor count
+     */
+    public int getPredictorCount() {
+        return mPredictors.length;
+    }
+
+    /**
+     * Returns one of the predictors.
+     * @param index position of the predictor in the constructor
+     * @return the predictor
+     */
+    public BranchPredictor getPredictor(int index) {
+        return mPredictors[index];
+    }
+
+    /**
+     * Returns the branch target buffer.
+     * @return the buffer, or null if jumps are not predicted
+     */
+    public BranchTargetBuffer getTargetBuffer() {
+        return mTargetBuffer;
+    }
+
+    /**
+     * Returns the number of beq retired.
+     * @return the branch count
+     */
+    public long getBranches() {
+        return sum(mBranches, 0, mSlots);
+    }
+
+    /**
+     * Returns the number of times the beq at a PC retired.
+     * @param pc byte address of the branch
+     * @return the branch count for the PC
+     */
+    public long getBranches(int pc) {
+        return mBranches[slot(pc)];
+    }
+
+    /**
+     * Returns the number of beq a predictor got wrong.
+     * @param index position of the predictor in the constructor
+     * @return the misprediction count
+     */
+    public long getMispredictions(int index) {
+        checkPredictor(index);
+        return sum(mMispredictions, index * mSlots, mSlots);
+    }
+
+    /**
+     * Returns the number of times a predictor got the beq at a PC wrong.
+     * @param index position of the predictor in the constructor
+     * @param pc byte address of the branch
+     * @return the misprediction count for the PC
+     */
+    public long getMispredictions(int index, int pc) {
+        checkPredictor(index);
+        return mMispredictions[index * mSlots + slot(pc)];
+    }
+
+    /**
+     * Returns the fraction of beq a predictor got wrong.
+     * @param index position of the predictor in the constructor
+     * @return the misprediction rate, 0 before any branch
+     */
+    public double getMispredictionRate(int index) {
+        long branches = getBranches();
+        return branches == 0 ? 0 : (double) getMispredictions(index) / branches;
+    }
+
+    /**
+     * Returns the fraction of runs of the beq at a PC a predictor got
+     * wrong.
+     * @param index position of the predictor in the constructor
+     * @param pc byte address of the branch
+     * @return the misprediction rate, 0 if the branch never ran
+     */
+    public double getMispredictionRate(int index, int pc) {
+        long branches = getBranches(pc);
+        return branches == 0 ? 0 : (double) getMispredictions(index, pc) / branches;
+    }
+
+    /**
+     * Returns the number of j and jr looked up in the target buffer.
+     * @return the jump count
+     */
+    public long getJumps() {
+        return sum(mJumps, 0, mSlots);
+    }
+
+    /**
+     * Returns the number of jumps the target buffer had no or the wrong
+     * target for.
+     * @return the target miss count
+     */
+    public long getTargetMisses() {
+        return sum(mTargetMisses, 0, mSlots);
+    }
+
+    /**
+     * Returns the number of times the target buffer missed the jump at a
+     * PC.
+     * @param pc byte address of the jump
+     * @return the target miss count for the PC
+     */
+    public long getTargetMisses(int pc) {
+        return mTargetMisses[slot(pc)];
+    }
+
+    /**
+     * Resets every predictor and the target buffer and zeroes every
+     * counter.
+     */
+    public void reset() {
+        for (BranchPredictor predictor : mPredictors) {
+            predictor.reset();
+        }
+        if (mTargetBuffer != null) {
+            mTargetBuffer.reset();
+        }
+        Arrays.fill(mBranches, 0);
+        Arrays.fill(mMispredictions, 0);
+        Arrays.fill(mJumps, 0);
+        Arrays.fill(mTargetMisses, 0);
+    }
+
+    /**
+     * Returns the misprediction rate of each predictor, one per line.
+     * @return a report such as "bimodal-256 12/400 (3.00%)"
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        long branches = getBranches();
+        for (int i = 0; i < mPredictors.length; i++) {
+            sb.append(String.format("%-16s %d/%d (%.2f%%)%n", mPredictors[i].getName(),
+                    getMispredictions(i), branches, 100 * getMispredictionRate(i)));
+        }
+        if (mTargetBuffer != null) {
+            sb.append(String.format("%-16s %d/%d%n", "btb-" + mTargetBuffer.getEntries(),
+                    getTargetMisses(), getJumps()));
+        }
+        return sb.toString();
+    }
+
+    private int slot(int pc) {
+        if (pc < 0 || pc % 4 != 0 || pc / 4 >= mSlots) {
+            throw new ArrayIndexOutOfBoundsException("Invalid PC " + pc);
+        }
+        return pc / 4;
+    }
+
+    private void checkPredictor(int index) {
+        if (index < 0 || index >= mPredictors.length) {
+            throw new ArrayIndexOutOfBoundsException("Invalid predictor " + index);
+        }
+    }
+
+    private static long sum(long counts[], int from, int length) {
+        long total = 0;
+        for (int i = from; i < from + length; i++) {
+            total += counts[i];
+        }
+        return total;
+    }
+}
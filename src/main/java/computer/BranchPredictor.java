@@ -0,0 +1,36 @@
+package computer;
+
+/**
+ * A model of a conditional branch predictor. A BranchPredictionModel
+ * asks every predictor it holds for a direction before each beq retires,
+ * then tells it what the branch did.
+ */
+public interface BranchPredictor {
+
+    /**
+     * Predicts the direction of a beq.
+     * @param pc byte address of the branch
+     * @param target byte address the branch goes to if taken
+     * @return true to predict taken
+     */
+    boolean predict(int pc, int target);
+
+    /**
+     * Trains the predictor with the outcome of the branch just predicted.
+     * @param pc byte address of the branch
+     * @param target byte address the branch goes to if taken
+     * @param taken whether the branch was taken
+     */
+    void update(int pc, int target, boolean taken);
+
+    /**
+     * Forgets everything learned.
+     */
+    void reset();
+
+    /**
+     * Returns a short name for reports.
+     * @return the name
+     */
+    String getName();
+}
@@ -0,0 +1,67 @@
+package computer;
+
+import java.util.Arrays;
+
+/**
+ * A direct mapped branch target buffer for j and jr. Each entry holds the
+ * PC of a jump and the target it last went to; a fetch that finds its PC
+ * there can be redirected before the jump is decoded.
+ */
+public final class BranchTargetBuffer {
+
+    private final static int INVALID = -1;
+
+    private final int mTags[];
+    private final int mTargets[];
+    private final int mMask;
+
+    /**
+     * Creates an empty buffer.
+     * @param entries number of entries, a power of two
+     */
+    public BranchTargetBuffer(int entries) {
+        if (entries <= 0 || Integer.bitCount(entries) != 1) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mTags = new int[entries];
+        mTargets = new int[entries];
+        mMask = entries - 1;
+        reset();
+    }
+
+    /**
+     * Looks up the target of a jump.
+     * @param pc byte address of the jump
+     * @return the predicted target, or -1 if the jump is not in the buffer
+     */
+    public int predict(int pc) {
+        int index = (pc >>> 2) & mMask;
+        return mTags[index] == pc ? mTargets[index] : INVALID;
+    }
+
+    /**
+     * Records where a jump went.
+     * @param pc byte address of the jump
+     * @param target byte address it went to
+     */
+    public void update(int pc, int target) {
+        int index = (pc >>> 2) & mMask;
+        mTags[index] = pc;
+        mTargets[index] = target;
+    }
+
+    /**
+     * Empties the buffer.
+     */
+    public void reset() {
+        Arrays.fill(mTags, INVALID);
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return the entry count
+     */
+    public int getEntries() {
+        return mTags.length;
+    }
+}
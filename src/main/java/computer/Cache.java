@@ -0,0 +1,275 @@
+package computer;
+
+import java.util.Arrays;
+
+/**
+ * One level of a set-associative cache. Only the tags are modelled, the
+ * data still lives in the Computer. Every access either hits or misses
+ * and on a miss fills a line, evicting a valid one if the set is full and
+ * passing the access on to the next level if there is one. Writes are
+ * treated like reads, as in a write-allocate cache.
+ *
+ * The state of every line is kept in flat arrays indexed by
+ * set * ways + way: the tag, with -1 for an invalid line, and the time of
+ * its last use for LRU. Pseudo-LRU keeps one int of tree bits per set.
+ */
+public final class Cache {
+
+    /** How a victim is picked from a full set. */
+    public enum Replacement {
+        /** The least recently used line. */
+        LRU,
+        /** The line a binary tree of recently used bits points at. */
+        PLRU,
+        /** A pseudo random line. */
+        RANDOM
+    }
+
+    private final static int INVALID = -1;
+
+    private final int mSize;
+    private final int mLineSize;
+    private final int mWays;
+    private final int mSets;
+    private final Replacement mReplacement;
+    private final Cache mNext;
+
+    private final int mOffsetBits;
+    private final int mSetMask;
+    private final int mTagShift;
+    private final int mTreeLevels;
+
+    private final int mTags[];
+    private final long mLastUse[];
+    private final int mTree[];
+    private long mClock;
+    private int mRandom;
+
+    private long mHits;
+    private long mMisses;
+    private long mEvictions;
+
+    /**
+     * Creates an empty cache.
+     * @param size capacity in bytes
+     * @param lineSize bytes per line, a power of two of at least 4
+     * @param ways lines per set, a power of two of at most 32 for PLRU
+     * @param replacement how victims are picked
+     * @param next the level misses go to, or null for memory
+     */
+    public Cache(int size, int lineSize, int ways, Replacement replacement, Cache next) {
+        if (lineSize < 4 || Integer.bitCount(lineSize) != 1 || ways <= 0
+                || replacement == null || size <= 0 || size % (lineSize * ways) != 0
+                || Integer.bitCount(size / (lineSize * ways)) != 1
+                || (replacement == Replacement.PLRU
+                        && (ways > 32 || Integer.bitCount(ways) != 1))) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mSize = size;
+        mLineSize = lineSize;
+        mWays = ways;
+        mSets = size / (lineSize * ways);
+        mReplacement = replacement;
+        mNext = next;
+        mOffsetBits = Integer.numberOfTrailingZeros(lineSize);
+        mSetMask = mSets - 1;
+        mTagShift = mOffsetBits + Integer.numberOfTrailingZeros(mSets);
+        mTreeLevels = Integer.numberOfTrailingZeros(ways);
+        mTags = new int[mSets * ways];
+        mLastUse = replacement == Replacement.LRU ? new long[mSets * ways] : null;
+        mTree = replacement == Replacement.PLRU ? new int[mSets] : null;
+        reset();
+    }
+
+    /**
+     * Looks up the line holding a byte address, filling it on a miss.
+     * @param address the byte address
+     * @return true on a hit in this level
+     */
+    public boolean access(int address) {
+        int set = (address >>> mOffsetBits) & mSetMask;
+        int tag = address >>> mTagShift;
+        int base = set * mWays;
+        int free = -1;
+        for (int way = 0; way < mWays; way++) {
+            int line = mTags[base + way];
+            if (line == tag) {
+                mHits++;
+                touch(set, way);
+                return true;
+            }
+            if (line == INVALID && free < 0) {
+                free = way;
+            }
+        }
+        mMisses++;
+        if (free < 0) {
+            free = victim(set);
+            mEvictions++;
+        }
+        mTags[base + free] = tag;
+        touch(set, free);
+        if (mNext != null) {
+            mNext.access(address);
+        }
+        return false;
+    }
+
+    /**
+     * Marks a way as just used.
+     */
+    private void touch(int set, int way) {
+        if (mReplacement == Replacement.LRU) {
+            mLastUse[set * mWays + way] = ++mClock;
+        } else if (mReplacement == Replacement.PLRU) {
+            // Point every node on the path away from the way
+            int bits = mTree[set];
+            int node = 1;
+            for (int level = mTreeLevels - 1; level >= 0; level--) {
+                int branch = (way >>> level) & 1;
+                bits = (bits & ~(1 << node)) | ((branch ^ 1) << node);
+                node = node * 2 + branch;
+            }
+            mTree[set] = bits;
+        }
+    }
+
+    /**
+     * Picks the way to evict from a full set.
+     */
+    private int victim(int set) {
+        if (mReplacement == Replacement.LRU) {
+            int base = set * mWays;
+            int oldest = 0;
+            for (int way = 1; way < mWays; way++) {
+                if (mLastUse[base + way] < mLastUse[base + oldest]) {
+                    oldest = way;
+                }
+            }
+            return oldest;
+        }
+        if (mReplacement == Replacement.PLRU) {
+            int bits = mTree[set];
+            int node = 1;
+            for (int level = 0; level < mTreeLevels; level++) {
+                node = node * 2 + ((bits >>> node) & 1);
+            }
+            return node - mWays;
+        }
+        // xorshift, seeded in reset so runs repeat
+        mRandom ^= mRandom << 13;
+        mRandom ^= mRandom >>> 17;
+        mRandom ^= mRandom << 5;
+        return (mRandom >>> 1) % mWays;
+    }
+
+    /**
+     * Invalidates every line and zeroes the counters.
+     */
+    public void reset() {
+        Arrays.fill(mTags, INVALID);
+        if (mLastUse != null) {
+            Arrays.fill(mLastUse, 0);
+        }
+        if (mTree != null) {
+            Arrays.fill(mTree, 0);
+        }
+        mClock = 0;
+        mRandom = 0x9E3779B9;
+        mHits = 0;
+        mMisses = 0;
+        mEvictions = 0;
+    }
+
+    /**
+     * Returns the capacity.
+     * @return the size in bytes
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Returns the line size.
+     * @return bytes per line
+     */
+    public int getLineSize() {
+        return mLineSize;
+    }
+
+    /**
+     * Returns the associativity.
+     * @return lines per set
+     */
+    public int getWays() {
+        return mWays;
+    }
+
+    /**
+     * Returns the number of sets.
+     * @return the set count
+     */
+    public int getSets() {
+        return mSets;
+    }
+
+    /**
+     * Returns the replacement policy.
+     * @return the policy
+     */
+    public Replacement getReplacement() {
+        return mReplacement;
+    }
+
+    /**
+     * Returns the level misses go to.
+     * @return the next level, or null
+     */
+    public Cache getNext() {
+        return mNext;
+    }
+
+    /**
+     * Returns the number of accesses that hit.
+     * @return the hit count
+     */
+    public long getHits() {
+        return mHits;
+    }
+
+    /**
+     * Returns the number of accesses that missed.
+     * @return the miss count
+     */
+    public long getMisses() {
+        return mMisses;
+    }
+
+    /**
+     * Returns the number of valid lines replaced by a miss.
+     * @return the eviction count
+     */
+    public long getEvictions() {
+        return mEvictions;
+    }
+
+    /**
+     * Returns the fraction of accesses that missed.
+     * @return the miss rate, 0 before any access
+     */
+    public double getMissRate() {
+        long accesses = mHits + mMisses;
+        return accesses == 0 ? 0 : (double) mMisses / accesses;
+    }
+
+    /**
+     * Returns the geometry and counters on one line.
+     * @return a summary such as "4096B 2-way 16B lines LRU hits=..."
+     */
+    @Override
+    public String toString() {
+        return String.format("%dB %d-way %dB lines %s hits=%d misses=%d evictions=%d"
+                + " miss rate=%.4f", mSize, mWays, mLineSize, mReplacement, mHits, mMisses,
+                mEvictions, getMissRate());
+    }
+}
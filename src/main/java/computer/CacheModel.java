@@ -0,0 +1,158 @@
+package computer;
+
+import java.util.Arrays;
+
+/**
+ * Instruction and data caches filled in by a Computer that has the model
+ * attached with setCacheModel. Every retired instruction is fetched
+ * through the instruction cache and every lw and sw goes through the data
+ * cache. Both may share a second level by building them with the same
+ * next Cache. Instruction and data memory are separate here, so the caches
+ * see data memory placed after instruction memory: a data word is at byte
+ * address four times its address plus the first power of two not below
+ * the instruction memory size in bytes. Byte addresses are 32 bits, so a
+ * computer can only take the model if its data memory fits below 4 GB,
+ * see getMaxDataMemorySize.
+ *
+ * Besides the counters of each Cache the model keeps, per PC, the fetch
+ * misses and the data hits and misses of the instruction there, so the
+ * loads and stores that miss most can be found.
+ */
+public final class CacheModel {
+
+    private final Cache mInstrCache;
+    private final Cache mDataCache;
+    private final int mDataBase;
+    private final long mFetchMisses[];
+    private final long mDataHits[];
+    private final long mDataMisses[];
+
+    /**
+     * Creates a model.
+     * @param instrMemorySize number of instruction memory slots to count
+     * @param instrCache the L1 instruction cache
+     * @param dataCache the L1 data cache
+     */
+    public CacheModel(int instrMemorySize, Cache instrCache, Cache dataCache) {
+        if (instrMemorySize <= 0 || instrMemorySize > (1 << 28) || instrCache == null
+                || dataCache == null || instrCache == dataCache) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mInstrCache = instrCache;
+        mDataCache = dataCache;
+        // Aligned so data lines start where they would at address 0
+        mDataBase = Integer.highestOneBit(instrMemorySize * 4 * 2 - 1);
+        mFetchMisses = new long[instrMemorySize];
+        mDataHits = new long[instrMemorySize];
+        mDataMisses = new long[instrMemorySize];
+    }
+
+    /**
+     * Counts the fetch of one retired instruction.
+     * @param slot the instruction memory slot it was fetched from
+     */
+    void fetch(int slot) {
+        if (!mInstrCache.access(slot * 4)) {
+            mFetchMisses[slot]++;
+        }
+    }
+
+    /**
+     * Counts the data access of one retired lw or sw.
+     * @param slot the instruction memory slot of the instruction
+     * @param address the data memory word address it accessed
+     */
+    void data(int slot, int address) {
+        // Below 4 GB, so the unsigned byte address fits in an int
+        if (mDataCache.access((int) (mDataBase + address * 4L))) {
+            mDataHits[slot]++;
+        } else {
+            mDataMisses[slot]++;
+        }
+    }
+
+    /**
+     * Returns the number of instruction memory slots counted.
+     * @return the slot count
+     */
+    public int getInstrMemorySize() {
+        return mFetchMisses.length;
+    }
+
+    /**
+     * Returns the largest data memory, in words, whose byte addresses fit
+     * in 32 bits after instruction memory.
+     * @return the data memory size limit
+     */
+    public long getMaxDataMemorySize() {
+        return ((1L << 32) - mDataBase) / 4;
+    }
+
+    /**
+     * Returns the L1 instruction cache.
+     * @return the instruction cache
+     */
+    public Cache getInstrCache() {
+        return mInstrCache;
+    }
+
+    /**
+     * Returns the L1 data cache.
+     * @return the data cache
+     */
+    public Cache getDataCache() {
+        return mDataCache;
+    }
+
+    /**
+     * Returns how often fetching the instruction at a PC missed.
+     * @param pc byte address of the instruction
+     * @return the fetch misses for the PC
+     */
+    public long getFetchMisses(int pc) {
+        checkPC(pc);
+        return mFetchMisses[pc / 4];
+    }
+
+    /**
+     * Returns how often the data access of the instruction at a PC hit.
+     * @param pc byte address of the instruction
+     * @return the data hits for the PC
+     */
+    public long getDataHits(int pc) {
+        checkPC(pc);
+        return mDataHits[pc / 4];
+    }
+
+    /**
+     * Returns how often the data access of the instruction at a PC missed.
+     * @param pc byte address of the instruction
+     * @return the data misses for the PC
+     */
+    public long getDataMisses(int pc) {
+        checkPC(pc);
+        return mDataMisses[pc / 4];
+    }
+
+    private void checkPC(int pc) {
+        if (pc < 0 || pc % 4 != 0 || pc / 4 >= mFetchMisses.length) {
+            throw new ArrayIndexOutOfBoundsException("Invalid PC " + pc);
+        }
+    }
+
+    /**
+     * Empties the caches, including a second level, and zeroes every
+     * counter.
+     */
+    public void reset() {
+        for (Cache cache = mInstrCache; cache != null; cache = cache.getNext()) {
+            cache.reset();
+        }
+        for (Cache cache = mDataCache; cache != null; cache = cache.getNext()) {
+            cache.reset();
+        }
+        Arrays.fill(mFetchMisses, 0);
+        Arrays.fill(mDataHits, 0);
+        Arrays.fill(mDataMisses, 0);
+    }
+}
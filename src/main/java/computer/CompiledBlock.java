@@ -0,0 +1,18 @@
+package computer;
+
+/**
+ * A basic block of MIPS instructions compiled to a JVM class by
+ * BlockCompiler.
+ */
+interface CompiledBlock {
+
+    /** Returned by run when the block ended with a syscall. */
+    int HALTED = -1;
+
+    /**
+     * Runs the block on a computer whose PC is the start of the block.
+     * @param computer the computer to run on
+     * @return the PC of the next instruction, or HALTED
+     */
+    int run(Computer computer);
+}
@@ -0,0 +1,1562 @@
+package computer;
+
+import java.nio.IntBuffer;
+
+/**
+ * Computer class comprises of memory, registers, cc and
+ * can execute the instructions based on PC and IR 
+ * @author mmuppa
+ *
+ */
+public class Computer {
+
+  private final static int MAX_MEMORY = 500;
+  private final static int MAX_INSTR_MEMORY = 200;
+  private final static int MAX_REGISTERS = 32;
+  private final static int MAX_BITS = 32;
+
+    // Handler ids stored in the predecoded instruction table
+    final static int HANDLER_NOP = 0;
+    final static int HANDLER_REG_ADD = 1;
+    final static int HANDLER_REG_AND = 2;
+    final static int HANDLER_JUMP_REGISTER = 3;
+    final static int HANDLER_SYSCALL = 4;
+    final static int HANDLER_JUMP = 5;
+    final static int HANDLER_BEQ = 6;
+    final static int HANDLER_IMM_ADD = 7;
+    final static int HANDLER_IMM_AND = 8;
+    final static int HANDLER_LOAD_WORD = 9;
+    final static int HANDLER_STORE_WORD = 10;
+    final static int HANDLER_LOAD_LINKED = 11;
+    final static int HANDLER_STORE_CONDITIONAL = 12;
+
+    // Handler ids indexed by opcode, and by funct for R-format instructions
+    private final static int OPCODE_HANDLERS[] = new int[64];
+    private final static int FUNCT_HANDLERS[] = new int[64];
+
+    static {
+        FUNCT_HANDLERS[8] = HANDLER_JUMP_REGISTER;
+        FUNCT_HANDLERS[12] = HANDLER_SYSCALL;
+        FUNCT_HANDLERS[32] = HANDLER_REG_ADD;
+        FUNCT_HANDLERS[36] = HANDLER_REG_AND;
+        OPCODE_HANDLERS[2] = HANDLER_JUMP;
+        OPCODE_HANDLERS[4] = HANDLER_BEQ;
+        OPCODE_HANDLERS[8] = HANDLER_IMM_ADD;
+        OPCODE_HANDLERS[12] = HANDLER_IMM_AND;
+        OPCODE_HANDLERS[35] = HANDLER_LOAD_WORD;
+        OPCODE_HANDLERS[43] = HANDLER_STORE_WORD;
+        OPCODE_HANDLERS[48] = HANDLER_LOAD_LINKED;
+        OPCODE_HANDLERS[56] = HANDLER_STORE_CONDITIONAL;
+    }
+
+    // Status values returned by execute and step
+    public final static int STATUS_RUNNING = 0;
+    public final static int STATUS_HALTED = 1;
+    /** Returned in trap mode when a guest fault stops execution. */
+    public final static int STATUS_TRAPPED = 2;
+
+    // Trap causes, numbered like ExcCode in the MIPS Cause register
+    /** No trap has been taken. */
+    public final static int CAUSE_NONE = 0;
+    /** A fetch, lw, ll, branch or jump outside memory (AdEL). */
+    public final static int CAUSE_ADDRESS_LOAD = 4;
+    /** A sw or sc outside data memory (AdES). */
+    public final static int CAUSE_ADDRESS_STORE = 5;
+    /** An instruction that writes $0, which this machine does not allow (RI). */
+    public final static int CAUSE_REGISTER_ZERO = 10;
+    /** Signed overflow in add or addi (Ov). */
+    public final static int CAUSE_OVERFLOW = 12;
+
+    /** Exception vector value meaning traps stop execution. */
+    public final static int NO_EXCEPTION_VECTOR = -1;
+
+    // $k0 and $k1, which get the EPC and cause when the vector is entered
+    final static int EPC_REGISTER = 26;
+    final static int CAUSE_REGISTER = 27;
+
+    // Thrown by every guest fault in trap mode and caught by execute and
+    // step. It is shared and has no stack trace, so a fault allocates
+    // nothing and walks no stack.
+    private final static RuntimeException TRAP = new GuestTrap();
+
+    // Machine state is kept as raw 32 bit words; immutable BitString views
+    // are only handed out when a caller asks for one. State that the execution engines
+    // in this package work on directly is package-private.
+    int mRegisters[];
+    DataMemory mMemory;
+    int mInstrMemory[];
+    private final int mInstrMemorySize;
+    private final int mDataMemorySize;
+    int mPC;
+    int mIR;
+
+    // Predecoded fields of every instruction memory slot, kept in step
+    // with mInstrMemory by loadInstr so execute never parses bits.
+    int mDecOpcode[];
+    int mDecRs[];
+    int mDecRt[];
+    int mDecRd[];
+    int mDecFunct[];
+    int mDecImm[];
+    int mDecTarget[];
+    int mDecHandler[];
+    // Register each slot writes, 0 when it writes none
+    int mDecDest[];
+    // True while mInstrMemory and the predecoded tables are shared with a
+    // fork, so the next loadInstr has to copy them first
+    private boolean mInstrShared;
+    // Instruction memory slot of the instruction being executed
+    private int mSlot;
+    int mStatus;
+    // Word address an ll linked and the value it read, see storeConditional
+    private int mLinkAddress = NO_LINK;
+    private int mLinkValue;
+    private final static int NO_LINK = -1;
+    // Trap mode and the registers it fills, see setTrapMode
+    private boolean mTrapMode;
+    private int mExceptionVector = NO_EXCEPTION_VECTOR;
+    private int mCause;
+    private int mEPC;
+    private int mBadAddress;
+    // IR before the instrumented step that faulted, for the journal
+    private int mTrapIR;
+
+    private ExecutionEngine mEngine = ExecutionEngine.INTERPRETER;
+    private JitEngine mJit;
+    private ThreadedEngine mThreaded;
+    private ExecutionProfile mProfile;
+    private TraceWriter mTrace;
+    private UndoJournal mJournal;
+    private PipelineModel mPipeline;
+    private CacheModel mCache;
+    private BranchPredictionModel mBranchPrediction;
+    private FlightRecorder mRecorder = new FlightRecorder(FlightRecorder.DEFAULT_CAPACITY);
+
+    /**
+     * Initializes all the memory to 0, registers to 0 to 31,
+     * PC, and IR to 32 bit 0s.
+     * Represents the initial state 
+     */
+    public Computer() {
+        this(MAX_INSTR_MEMORY, MAX_MEMORY);
+    }
+
+    /**
+     * Initializes a computer with the given memory sizes. Data memory is
+     * paged, so a size as large as Integer.MAX_VALUE only costs memory for
+     * the pages the program writes.
+     * @param instrMemorySize number of words of instruction memory
+     * @param dataMemorySize number of words of data memory
+     */
+    public Computer(int instrMemorySize, int dataMemorySize) {
+        this(instrMemorySize, new PagedMemory(dataMemorySize));
+    }
+
+    /**
+     * Initializes a computer on top of an existing data memory, for
+     * example a MappedMemory over a large image file.
+     * @param instrMemorySize number of words of instruction memory
+     * @param dataMemory the data memory, which is used without copying
+     */
+    public Computer(int instrMemorySize, DataMemory dataMemory) {
+        if (instrMemorySize <= 0 || dataMemory == null) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mInstrMemorySize = instrMemorySize;
+        mDataMemorySize = dataMemory.size();
+        mPC = 0;
+        mIR = 0;
+        mRegisters = new int[MAX_REGISTERS];
+        mMemory = dataMemory;
+        // An all zero word predecodes to all zero fields, so the new
+        // tables already describe the empty instruction memory
+        mInstrMemory = new int[instrMemorySize];
+        mDecOpcode = new int[instrMemorySize];
+        mDecRs = new int[instrMemorySize];
+        mDecRt = new int[instrMemorySize];
+        mDecRd = new int[instrMemorySize];
+        mDecFunct = new int[instrMemorySize];
+        mDecImm = new int[instrMemorySize];
+        mDecTarget = new int[instrMemorySize];
+        mDecHandler = new int[instrMemorySize];
+        mDecDest = new int[instrMemorySize];
+    }
+
+    /**
+     * Initializes a fork of another computer. The instruction memory and
+     * predecoded tables are shared with the parent until either one loads
+     * an instruction.
+     * @param parent the computer to fork
+     * @param dataMemory the fork of the parent's data memory
+     */
+    private Computer(Computer parent, DataMemory dataMemory) {
+        mInstrMemorySize = parent.mInstrMemorySize;
+        mDataMemorySize = parent.mDataMemorySize;
+        mPC = parent.mPC;
+        mIR = parent.mIR;
+        mStatus = parent.mStatus;
+        mSlot = parent.mSlot;
+        mRegisters = parent.mRegisters.clone();
+        mMemory = dataMemory;
+        mInstrMemory = parent.mInstrMemory;
+        mDecOpcode = parent.mDecOpcode;
+        mDecRs = parent.mDecRs;
+        mDecRt = parent.mDecRt;
+        mDecRd = parent.mDecRd;
+        mDecFunct = parent.mDecFunct;
+        mDecImm = parent.mDecImm;
+        mDecTarget = parent.mDecTarget;
+        mDecHandler = parent.mDecHandler;
+        mDecDest = parent.mDecDest;
+        mInstrShared = true;
+        parent.mInstrShared = true;
+        mTrapMode = parent.mTrapMode;
+        mExceptionVector = parent.mExceptionVector;
+        mCause = parent.mCause;
+        mEPC = parent.mEPC;
+        mBadAddress = parent.mBadAddress;
+        if (parent.mRecorder != null) {
+            mRecorder = parent.mRecorder.copy();
+        } else {
+            mRecorder = null;
+        }
+        if (parent.mJit != null) {
+            mJit = new JitEngine(this, parent.mJit);
+        }
+        setExecutionEngine(parent.mEngine);
+    }
+
+    /**
+     * Creates an independent copy of this computer in its current state.
+     * Instruction memory and data memory pages are shared with the copy
+     * and only copied when one of the two writes them, so a fork costs
+     * little more than the registers. The fork uses the same engine, shares
+     * the blocks the JIT has compiled and starts with a copy of the flight
+     * recorder, but no profile or trace.
+     * @return the fork
+     * @throws UnsupportedOperationException if the data memory cannot fork
+     */
+    public Computer fork() {
+        return new Computer(this, mMemory.fork());
+    }
+
+    /**
+     * Creates another computer on the same data memory, for example one
+     * more core of a MultiCore. It starts as a fork would, except that
+     * both keep using this computer's data memory.
+     * @return the new computer
+     */
+    Computer sibling() {
+        return new Computer(this, mMemory);
+    }
+
+    /**
+     * Gives this computer its own copy of instruction memory and the
+     * predecoded tables if they are still shared with a fork.
+     */
+    void ownInstrMemory() {
+        if (mInstrShared) {
+            mInstrMemory = mInstrMemory.clone();
+            mDecOpcode = mDecOpcode.clone();
+            mDecRs = mDecRs.clone();
+            mDecRt = mDecRt.clone();
+            mDecRd = mDecRd.clone();
+            mDecFunct = mDecFunct.clone();
+            mDecImm = mDecImm.clone();
+            mDecTarget = mDecTarget.clone();
+            mDecHandler = mDecHandler.clone();
+            mDecDest = mDecDest.clone();
+            mInstrShared = false;
+        }
+    }
+
+    /**
+     * Fills the predecoded table entry of an instruction memory slot.
+     * @param slot the instruction memory slot
+     * @param word the 32 bit instruction stored in the slot
+     */
+    private void predecode(int slot, int word) {
+        int opcode = word >>> 26;
+        int funct = word & 0x3F;
+        mDecOpcode[slot] = opcode;
+        mDecRs[slot] = (word >>> 21) & 0x1F;
+        mDecRt[slot] = (word >>> 16) & 0x1F;
+        mDecRd[slot] = (word >>> 11) & 0x1F;
+        mDecFunct[slot] = funct;
+        mDecImm[slot] = (short) word;
+        mDecTarget[slot] = (word & 0x03FFFFFF) << 2;
+        mDecHandler[slot] = opcode == 0 ? FUNCT_HANDLERS[funct] : OPCODE_HANDLERS[opcode];
+        switch (mDecHandler[slot]) {
+            case HANDLER_REG_ADD:
+            case HANDLER_REG_AND:
+                mDecDest[slot] = mDecRd[slot];
+                break;
+            case HANDLER_IMM_ADD:
+            case HANDLER_IMM_AND:
+            case HANDLER_LOAD_WORD:
+            case HANDLER_LOAD_LINKED:
+            case HANDLER_STORE_CONDITIONAL:
+                mDecDest[slot] = mDecRt[slot];
+                break;
+            default:
+                mDecDest[slot] = 0;
+                break;
+        }
+    }
+
+    /**
+     * This method will execute all the instructions starting at address 0 
+     * till HALT instruction is encountered. 
+     * In trap mode a guest fault either stops execution with
+     * STATUS_TRAPPED or enters the exception vector and carries on.
+     * @return the status that stopped execution
+     */
+    public int execute() {
+        while (true) {
+            try {
+                return run();
+            } catch (GuestTrap trap) {
+                if (enterTrap() == STATUS_TRAPPED) {
+                    return STATUS_TRAPPED;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the selected engine until a syscall or a fault.
+     * @return the status that stopped execution
+     */
+    private int run() {
+        try {
+            if (isInstrumented()) {
+                return executeInstrumented();
+            } else if (mEngine == ExecutionEngine.JIT) {
+                return mJit.execute();
+            } else if (mEngine == ExecutionEngine.THREADED) {
+                return mThreaded.execute();
+            }
+            if (mRecorder == null) {
+                mStatus = STATUS_RUNNING;
+                while (mStatus == STATUS_RUNNING) {
+                    executeNext();
+                }
+                return mStatus;
+            }
+            return executeRecorded();
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw attachHistory(e);
+        }
+    }
+
+    /**
+     * Executes only the instruction at the PC.
+     * @return STATUS_HALTED if it was a syscall, STATUS_TRAPPED if it
+     *         faulted in trap mode with no exception vector, otherwise
+     *         STATUS_RUNNING
+     */
+    public int step() {
+        mStatus = STATUS_RUNNING;
+        try {
+            if (isInstrumented()) {
+                executeNextInstrumented();
+            } else {
+                executeNextRecorded();
+            }
+        } catch (GuestTrap trap) {
+            return enterTrap();
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw attachHistory(e);
+        }
+        return mStatus;
+    }
+
+    /**
+     * Finishes a trap that unwound to execute or step. EPC is set to the
+     * faulting instruction. With no exception vector the PC is left there
+     * and execution stops; otherwise $k0 gets the EPC, $k1 the cause and
+     * the PC the vector. Entering the vector retires the faulting
+     * instruction, so it is traced and journaled.
+     * @return STATUS_TRAPPED, or STATUS_RUNNING after entering the vector
+     */
+    private int enterTrap() {
+        mEPC = faultingPC();
+        if (mExceptionVector == NO_EXCEPTION_VECTOR) {
+            mPC = mEPC;
+            mStatus = STATUS_TRAPPED;
+        } else {
+            int oldEPC = mRegisters[EPC_REGISTER];
+            int oldCause = mRegisters[CAUSE_REGISTER];
+            mRegisters[EPC_REGISTER] = mEPC;
+            mRegisters[CAUSE_REGISTER] = mCause;
+            mPC = mExceptionVector;
+            mStatus = STATUS_RUNNING;
+            if (mTrace != null) {
+                mTrace.recordTrap(mEPC, mCause, mExceptionVector);
+            }
+            if (mJournal != null) {
+                // After the writes, as the journal may take a checkpoint
+                mJournal.record(mEPC, mTrapIR, ~EPC_REGISTER, oldEPC, ~CAUSE_REGISTER,
+                        oldCause);
+            }
+        }
+        return mStatus;
+    }
+
+    /**
+     * Returns the PC of the instruction that faulted. Every engine leaves
+     * mPC and mIR as the fetch left them, so it is the one before mPC,
+     * unless mPC itself could not be fetched. A failed fetch always goes
+     * through executeNext, which leaves mSlot at the slot it tried.
+     * @return byte address of the faulting instruction
+     */
+    private int faultingPC() {
+        int slot = mPC / 4;
+        boolean fetched = mPC >= 4 && (slot < mInstrMemorySize
+                || (slot == mInstrMemorySize && mSlot != slot));
+        return fetched ? mPC - 4 : mPC;
+    }
+
+    /**
+     * Records a guest fault in trap mode.
+     * @param cause one of the CAUSE constants
+     * @param badAddress the address that faulted, or 0 for overflow and $0
+     * @return the shared trap to throw
+     */
+    private RuntimeException trap(int cause, int badAddress) {
+        mCause = cause;
+        mBadAddress = badAddress;
+        return TRAP;
+    }
+
+    /**
+     * Turns trap mode on or off. With it off, the default, a guest fault
+     * throws an IllegalArgumentException or ArrayIndexOutOfBoundsException
+     * carrying the flight recorder history. With it on, a fault sets the
+     * cause, EPC and bad address and is handled as setExceptionVector
+     * says, without building an exception, so workloads that fault often
+     * run far faster. The flight recorder still holds the instructions
+     * before the fault.
+     * @param trapMode true to report guest faults through the trap state
+     */
+    public void setTrapMode(boolean trapMode) {
+        mTrapMode = trapMode;
+    }
+
+    /**
+     * Returns whether guest faults are trapped rather than thrown.
+     * @return true in trap mode
+     */
+    public boolean isTrapMode() {
+        return mTrapMode;
+    }
+
+    /**
+     * Sets where a fault goes in trap mode. With NO_EXCEPTION_VECTOR, the
+     * default, execute and step return STATUS_TRAPPED with the PC at the
+     * faulting instruction. Otherwise the guest handler at the vector is
+     * entered with the EPC in $k0 and the cause in $k1, and can return
+     * past the fault with "addi $k0, $k0, 4" and "jr $k0". A fault in the
+     * handler enters it again.
+     * @param pc byte address of the handler, or NO_EXCEPTION_VECTOR
+     */
+    public void setExceptionVector(int pc) {
+        if (pc != NO_EXCEPTION_VECTOR
+                && (pc < 0 || pc % 4 != 0 || pc / 4 >= mInstrMemorySize)) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mExceptionVector = pc;
+    }
+
+    /**
+     * Returns the exception vector.
+     * @return byte address of the handler, or NO_EXCEPTION_VECTOR
+     */
+    public int getExceptionVector() {
+        return mExceptionVector;
+    }
+
+    /**
+     * Returns the cause of the last trap, like the MIPS Cause register.
+     * @return one of the CAUSE constants, CAUSE_NONE before any trap
+     */
+    public int getTrapCause() {
+        return mCause;
+    }
+
+    /**
+     * Returns the PC of the instruction that caused the last trap.
+     * @return the EPC
+     */
+    public int getEPC() {
+        return mEPC;
+    }
+
+    /**
+     * Sets the trap registers, as when a snapshot is restored.
+     * @param cause one of the CAUSE constants
+     * @param epc the EPC
+     * @param badAddress the bad address
+     */
+    void setTrapState(int cause, int epc, int badAddress) {
+        mCause = cause;
+        mEPC = epc;
+        mBadAddress = badAddress;
+    }
+
+    /**
+     * Returns the address that caused the last address trap, like the
+     * MIPS BadVAddr register: the PC for a fetch, branch or jump and the
+     * word address for a load or store.
+     * @return the bad address, 0 for overflow and $0 traps
+     */
+    public int getBadAddress() {
+        return mBadAddress;
+    }
+
+    /**
+     * Adds the flight recorder history to a trap thrown by the instruction
+     * at faultingPC.
+     * @param trap the exception thrown by an instruction
+     * @return trap, for rethrowing
+     */
+    private RuntimeException attachHistory(RuntimeException trap) {
+        int pc = faultingPC();
+        if (mRecorder != null) {
+            trap.addSuppressed(mRecorder.trap(pc, mIR, pc != mPC));
+        }
+        return trap;
+    }
+
+    /**
+     * Replaces the flight recorder, for example with one of a different
+     * capacity. Recording costs every engine a few array stores per
+     * instruction; a null recorder turns it off.
+     * @param recorder the new recorder, or null for none
+     */
+    public void setFlightRecorder(FlightRecorder recorder) {
+        mRecorder = recorder;
+    }
+
+    /**
+     * Returns the recorder holding the last instructions this computer
+     * retired. Every engine records each instruction it retires, compiled
+     * blocks and threaded nodes included.
+     * @return the flight recorder, or null if recording is off
+     */
+    public FlightRecorder getFlightRecorder() {
+        return mRecorder;
+    }
+
+    /**
+     * Returns whether anything that watches single instructions is
+     * attached, so execute and step have to go through
+     * executeNextInstrumented.
+     * @return true if a profile, trace, journal, pipeline, cache or branch
+     *         prediction model is attached
+     */
+    private boolean isInstrumented() {
+        return mProfile != null || mTrace != null || mJournal != null || mPipeline != null
+                || mCache != null || mBranchPrediction != null;
+    }
+
+    /**
+     * The execute loop used while a profile, trace writer, undo journal,
+     * pipeline, cache or branch prediction model is attached.
+     * It is kept apart from the plain loop so that loop compiles exactly
+     * as it would without them.
+     * @return the status that stopped execution
+     */
+    private int executeInstrumented() {
+        mStatus = STATUS_RUNNING;
+        while (mStatus == STATUS_RUNNING) {
+            executeNextInstrumented();
+        }
+        return mStatus;
+    }
+
+    /**
+     * Runs executeNext and, once the instruction has retired, counts it in
+     * the profile, writes it to the trace, journals what it overwrote,
+     * times it in the pipeline model, runs its accesses through the caches
+     * and predicts it if it is a branch or jump.
+     */
+    private void executeNextInstrumented() {
+        int pc = mPC;
+        int ir = mIR;
+        int slot = pc / 4;
+        // Registers and memory words the instruction is about to
+        // overwrite, see UndoJournal.record
+        int target = UndoJournal.NO_TARGET;
+        int old = 0;
+        int second = UndoJournal.NO_TARGET;
+        int secondOld = 0;
+        if (mJournal != null && pc >= 0 && slot < mInstrMemorySize) {
+            int journaled = mDecHandler[slot];
+            if (journaled == HANDLER_STORE_WORD || journaled == HANDLER_STORE_CONDITIONAL) {
+                target = mRegisters[mDecRs[slot]] + mDecImm[slot];
+                // A store outside memory traps before it is journaled
+                if (target >= 0 && target < mDataMemorySize) {
+                    old = mMemory.load(target);
+                }
+                // An sc also sets rt to whether it stored
+                second = ~mDecDest[slot];
+                secondOld = mRegisters[mDecDest[slot]];
+            } else {
+                target = ~mDecDest[slot];
+                old = mRegisters[mDecDest[slot]];
+            }
+        }
+        // Word a load or store accesses and the value a store writes, taken
+        // before a lw, ll or sc can overwrite its registers
+        int address = 0;
+        int value = 0;
+        if ((mCache != null || mTrace != null) && pc >= 0 && slot < mInstrMemorySize) {
+            address = mRegisters[mDecRs[slot]] + mDecImm[slot];
+            value = mRegisters[mDecRt[slot]];
+        }
+        try {
+            executeNextRecorded();
+        } catch (GuestTrap trap) {
+            mTrapIR = ir;
+            throw trap;
+        }
+        if (mJournal != null) {
+            if (mDecHandler[slot] == HANDLER_STORE_CONDITIONAL
+                    && mRegisters[mDecDest[slot]] != 1) {
+                // A failed sc wrote only its register
+                target = UndoJournal.NO_TARGET;
+                old = 0;
+            }
+            mJournal.record(pc, ir, target, old, second, secondOld);
+        }
+        if (mPipeline != null) {
+            mPipeline.retire(this, slot);
+        }
+        int handler = mDecHandler[slot];
+        if (mCache != null) {
+            mCache.fetch(slot);
+            if (handler == HANDLER_LOAD_WORD || handler == HANDLER_STORE_WORD
+                    || handler == HANDLER_LOAD_LINKED || handler == HANDLER_STORE_CONDITIONAL) {
+                mCache.data(slot, address);
+            }
+        }
+        if (mBranchPrediction != null) {
+            if (handler == HANDLER_BEQ) {
+                mBranchPrediction.branch(slot, (slot + 1 + mDecImm[slot]) * 4,
+                        mRegisters[mDecRs[slot]] == mRegisters[mDecRt[slot]]);
+            } else if (handler == HANDLER_JUMP || handler == HANDLER_JUMP_REGISTER) {
+                mBranchPrediction.jump(slot, mPC);
+            }
+        }
+        if (mProfile != null) {
+            mProfile.retire(slot, handler);
+            if (handler == HANDLER_BEQ) {
+                // beq writes no registers, so the operands still decide it
+                mProfile.branch(mRegisters[mDecRs[slot]] == mRegisters[mDecRt[slot]]);
+            }
+        }
+        if (mTrace != null) {
+            if (handler == HANDLER_STORE_WORD) {
+                mTrace.recordStore(slot * 4, address, value);
+            } else if (handler == HANDLER_STORE_CONDITIONAL) {
+                int rt = mDecRt[slot];
+                mTrace.recordStoreConditional(slot * 4, rt, mRegisters[rt], address, value);
+            } else {
+                int dest = mDecDest[slot];
+                mTrace.record(slot * 4, dest, mRegisters[dest]);
+            }
+        }
+    }
+
+    /**
+     * Streams every instruction execute and step retire from now on to a
+     * trace file. Like profiling, tracing makes execute interpret whatever
+     * engine is selected. The writer records the current PC and registers
+     * as the start of the trace, so it can only be attached once.
+     * @param trace the writer, or null to stop tracing; detaching does not
+     *        close the writer
+     */
+    public void setTraceWriter(TraceWriter trace) {
+        if (trace != null) {
+            trace.start(this);
+        }
+        mTrace = trace;
+    }
+
+    /**
+     * Returns the attached trace writer.
+     * @return the writer, or null when tracing is off
+     */
+    public TraceWriter getTraceWriter() {
+        return mTrace;
+    }
+
+    /**
+     * Starts journaling every instruction execute and step retire, so the
+     * computer can be stepped backwards. Like profiling, journaling makes
+     * execute interpret whatever engine is selected.
+     * @param journal a journal not attached before, or null to stop
+     *        journaling
+     * @throws UnsupportedOperationException if the journal takes
+     *         checkpoints and the data memory cannot fork
+     */
+    public void setUndoJournal(UndoJournal journal) {
+        if (journal != null) {
+            journal.start(this);
+        }
+        mJournal = journal;
+    }
+
+    /**
+     * Returns the attached undo journal.
+     * @return the journal, or null when journaling is off
+     */
+    public UndoJournal getUndoJournal() {
+        return mJournal;
+    }
+
+    /**
+     * Undoes the last instructions retired while the undo journal was
+     * attached.
+     * @param n number of instructions to undo
+     */
+    public void stepBack(long n) {
+        journal().stepBack(n);
+    }
+
+    /**
+     * Undoes instructions up to and including the last one that wrote a
+     * register, leaving the PC at that instruction.
+     * @param register the register, 1 to 31
+     * @return the number of instructions undone, or -1 if the journal holds
+     *         no write to the register, in which case nothing changes
+     */
+    public long runBackToRegisterWrite(int register) {
+        return journal().runBackToRegisterWrite(register);
+    }
+
+    /**
+     * Undoes instructions up to and including the last sw to a data memory
+     * word, leaving the PC at that sw.
+     * @param address the word address
+     * @return the number of instructions undone, or -1 if the journal holds
+     *         no write to the word, in which case nothing changes
+     */
+    public long runBackToMemoryWrite(int address) {
+        return journal().runBackToMemoryWrite(address);
+    }
+
+    private UndoJournal journal() {
+        if (mJournal == null) {
+            throw new IllegalStateException("No undo journal attached");
+        }
+        return mJournal;
+    }
+
+    /**
+     * Steps forward for the undo journal after it restored a checkpoint,
+     * until it is back at a step. The replayed instructions are journaled
+     * again but nothing else sees them: the profile, trace, models and
+     * flight recorder already counted them and are detached meanwhile.
+     * @param step the journal step to stop at
+     */
+    void replayTo(long step) {
+        ExecutionProfile profile = mProfile;
+        TraceWriter trace = mTrace;
+        PipelineModel pipeline = mPipeline;
+        CacheModel cache = mCache;
+        BranchPredictionModel branchPrediction = mBranchPrediction;
+        FlightRecorder recorder = mRecorder;
+        mProfile = null;
+        mTrace = null;
+        mPipeline = null;
+        mCache = null;
+        mBranchPrediction = null;
+        mRecorder = null;
+        try {
+            while (mJournal.getStep() < step) {
+                step();
+            }
+        } finally {
+            mProfile = profile;
+            mTrace = trace;
+            mPipeline = pipeline;
+            mCache = cache;
+            mBranchPrediction = branchPrediction;
+            mRecorder = recorder;
+        }
+    }
+
+    /**
+     * Puts this computer in the state of a checkpoint, which is left
+     * unchanged.
+     * @param checkpoint a fork of this computer
+     */
+    void restoreFrom(Computer checkpoint) {
+        System.arraycopy(checkpoint.mRegisters, 0, mRegisters, 0, MAX_REGISTERS);
+        mPC = checkpoint.mPC;
+        mIR = checkpoint.mIR;
+        mStatus = checkpoint.mStatus;
+        mSlot = checkpoint.mSlot;
+        mCause = checkpoint.mCause;
+        mEPC = checkpoint.mEPC;
+        mBadAddress = checkpoint.mBadAddress;
+        clearLink();
+        mMemory = checkpoint.mMemory.fork();
+        if (checkpoint.mInstrMemory != mInstrMemory) {
+            ownInstrMemory();
+            System.arraycopy(checkpoint.mInstrMemory, 0, mInstrMemory, 0, mInstrMemorySize);
+            instrMemoryReplaced();
+        }
+    }
+
+    /**
+     * Attaches a branch prediction model that predicts every beq, j and jr
+     * execute and step run. Like profiling, it makes execute interpret
+     * whatever engine is selected.
+     * @param branchPrediction the model to fill, or null to stop predicting
+     */
+    public void setBranchPredictionModel(BranchPredictionModel branchPrediction) {
+        if (branchPrediction != null
+                && branchPrediction.getInstrMemorySize() < mInstrMemorySize) {
+            throw new IllegalArgumentException(
+                    "Branch prediction model is smaller than instruction memory");
+        }
+        mBranchPrediction = branchPrediction;
+    }
+
+    /**
+     * Returns the attached branch prediction model.
+     * @return the model, or null when branches are not predicted
+     */
+    public BranchPredictionModel getBranchPredictionModel() {
+        return mBranchPrediction;
+    }
+
+    /**
+     * Attaches a cache model that every instruction execute and step run
+     * is fetched through, along with the data of each lw and sw. Like
+     * profiling, it makes execute interpret whatever engine is selected.
+     * The data memory has to fit the model, see
+     * CacheModel.getMaxDataMemorySize.
+     * @param cache the model to fill, or null to stop simulating caches
+     */
+    public void setCacheModel(CacheModel cache) {
+        if (cache != null && cache.getInstrMemorySize() < mInstrMemorySize) {
+            throw new IllegalArgumentException("Cache model is smaller than instruction memory");
+        }
+        if (cache != null && mDataMemorySize > cache.getMaxDataMemorySize()) {
+            throw new IllegalArgumentException("Data memory is too large for the cache model");
+        }
+        mCache = cache;
+    }
+
+    /**
+     * Returns the attached cache model.
+     * @return the model, or null when caches are not simulated
+     */
+    public CacheModel getCacheModel() {
+        return mCache;
+    }
+
+    /**
+     * Attaches a pipeline model that times every instruction execute and
+     * step run. Like profiling, it makes execute interpret whatever engine
+     * is selected.
+     * @param pipeline the model to fill, or null to stop timing
+     */
+    public void setPipelineModel(PipelineModel pipeline) {
+        mPipeline = pipeline;
+    }
+
+    /**
+     * Returns the attached pipeline model.
+     * @return the model, or null when timing is off
+     */
+    public PipelineModel getPipelineModel() {
+        return mPipeline;
+    }
+
+    /**
+     * Attaches a profile that counts every instruction execute and step
+     * run. While a profile is attached execute always interprets, whatever
+     * engine is selected, since compiled code does not retire instructions
+     * one at a time.
+     * @param profile the profile to fill, or null to stop profiling
+     */
+    public void setProfile(ExecutionProfile profile) {
+        if (profile != null && profile.getInstrMemorySize() < mInstrMemorySize) {
+            throw new IllegalArgumentException("Profile is smaller than instruction memory");
+        }
+        mProfile = profile;
+    }
+
+    /**
+     * Returns the attached profile.
+     * @return the profile, or null when profiling is off
+     */
+    public ExecutionProfile getProfile() {
+        return mProfile;
+    }
+
+    /**
+     * Selects the engine used by execute. The engines give the same
+     * results, the JIT compiles hot basic blocks to JVM bytecode and the
+     * threaded engine runs a chain of prebuilt instruction nodes.
+     * @param engine the engine to use
+     */
+    public void setExecutionEngine(ExecutionEngine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Engine must not be null");
+        }
+        if (engine == ExecutionEngine.JIT && mJit == null) {
+            mJit = new JitEngine(this);
+        } else if (engine == ExecutionEngine.THREADED && mThreaded == null) {
+            mThreaded = new ThreadedEngine(this);
+        }
+        mEngine = engine;
+    }
+
+    /**
+     * Returns the engine used by execute.
+     * @return the execution engine
+     */
+    public ExecutionEngine getExecutionEngine() {
+        return mEngine;
+    }
+
+    /**
+     * Returns the number of basic blocks the JIT engine holds compiled.
+     * @return the compiled block count, 0 if the JIT was never selected
+     */
+    public int getCompiledBlockCount() {
+        return mJit == null ? 0 : mJit.getCompiledBlockCount();
+    }
+
+    /**
+     * Returns the number of instruction memory slots.
+     * @return instruction memory size in words
+     */
+    public int getInstrMemorySize() {
+        return mInstrMemorySize;
+    }
+
+    /**
+     * Returns the number of data memory words.
+     * @return data memory size in words
+     */
+    public int getDataMemorySize() {
+        return mDataMemorySize;
+    }
+
+    /**
+     * Fetches the instruction at the PC, increments the PC and runs the
+     * handler of the instruction through a switch over the predecoded
+     * handler id.
+     */
+    void executeNext() {
+        mSlot = mPC / 4;
+        if (Integer.compareUnsigned(mSlot, mInstrMemorySize) >= 0) {
+            if (mTrapMode) {
+                throw trap(CAUSE_ADDRESS_LOAD, mPC);
+            }
+            throw new ArrayIndexOutOfBoundsException("Index " + mSlot
+                    + " out of bounds for length " + mInstrMemorySize);
+        }
+        mIR = mInstrMemory[mSlot];
+        mPC += 4;
+        switch (mDecHandler[mSlot]) {
+            case HANDLER_REG_ADD:
+                executeRegAdd();
+                break;
+            case HANDLER_REG_AND:
+                executeRegAnd();
+                break;
+            case HANDLER_JUMP_REGISTER:
+                executeJJumpRegister();
+                break;
+            case HANDLER_SYSCALL:
+                // Syscall, since we didn't need to implement it for the assignment
+                // requirements, for our purposes it will assume v0 is 10 and that
+                // we are halting
+                mStatus = STATUS_HALTED;
+                break;
+            case HANDLER_JUMP:
+                executeJJump();
+                break;
+            case HANDLER_BEQ:
+                executeImmBEQ();
+                break;
+            case HANDLER_IMM_ADD:
+                executeImmAdd();
+                break;
+            case HANDLER_IMM_AND:
+                executeImmAnd();
+                break;
+            case HANDLER_LOAD_WORD:
+                executeImmLoadWord();
+                break;
+            case HANDLER_STORE_WORD:
+                executeImmStoreWord();
+                break;
+            case HANDLER_LOAD_LINKED:
+                executeImmLoadLinked();
+                break;
+            case HANDLER_STORE_CONDITIONAL:
+                executeImmStoreConditional();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * The interpreter loop. It writes the flight recorder itself, keeping
+     * the ring buffer position in a local rather than a field.
+     * @return the status that stopped execution
+     */
+    private int executeRecorded() {
+        FlightRecorder recorder = mRecorder;
+        long entries[] = recorder.mEntries;
+        int mask = recorder.mMask;
+        long recorded = recorder.mRecorded;
+        mStatus = STATUS_RUNNING;
+        try {
+            while (mStatus == STATUS_RUNNING) {
+                executeNext();
+                int slot = mSlot;
+                int dest = mDecDest[slot];
+                int base = ((int) recorded & mask) * FlightRecorder.ENTRY;
+                recorded++;
+                entries[base] = FlightRecorder.pack(slot * 4, mIR);
+                entries[base + 1] = FlightRecorder.pack(dest, mRegisters[dest]);
+            }
+        } finally {
+            recorder.mRecorded = recorded;
+        }
+        return mStatus;
+    }
+
+    /**
+     * Records a retired instruction for compiled blocks, which know its
+     * PC, word and destination when they are compiled.
+     * @param pc byte address of the instruction
+     * @param word the instruction word
+     * @param dest the register it wrote, or 0 for none
+     */
+    void recordRetired(int pc, int word, int dest) {
+        FlightRecorder recorder = mRecorder;
+        if (recorder != null) {
+            recorder.record(pc, word, dest, mRegisters[dest]);
+        }
+    }
+
+    /**
+     * Runs executeNext and records the instruction once it has retired.
+     */
+    void executeNextRecorded() {
+        executeNext();
+        if (mRecorder != null) {
+            int dest = mDecDest[mSlot];
+            mRecorder.record(mSlot * 4, mIR, dest, mRegisters[dest]);
+        }
+    }
+    
+    /**
+     * Does a register add of the values in Rs and Rt into Rd.
+     */
+    public void executeRegAdd() {
+        int sum = addRegisters(mRegisters[mDecRs[mSlot]], mRegisters[mDecRt[mSlot]]);
+        writeRegister(mDecRd[mSlot], sum);
+    }
+    
+    /**
+     * Does a bitwise and of values in Rs and Rt and puts it in Rd.
+     */
+    public void executeRegAnd() {
+        int rs = mDecRs[mSlot];
+        int rt = mDecRt[mSlot];
+        int rd = mDecRd[mSlot];
+        int and = mRegisters[rs] & mRegisters[rt];
+        writeRegister(rd, and);
+    }
+    
+    /**
+     * Does an add immediate operation storing R[rt] with R[rs] + SignExtImm
+     */
+    public void executeImmAdd() {
+        int sum = addImmediate(mRegisters[mDecRs[mSlot]], mDecImm[mSlot]);
+        writeRegister(mDecRt[mSlot], sum);
+    }
+    
+    /**
+     * Does an add immediate operation storing R[rt] = R[rs] and SignExtImm
+     */
+     public void executeImmAnd() {
+         int rs = mDecRs[mSlot];
+         int rt = mDecRt[mSlot];
+         int imm = mDecImm[mSlot];
+         int valueRs = mRegisters[rs];
+         int and = valueRs & imm;
+         writeRegister(rt, and);
+     }
+
+    /**
+     * Does an immediate load word operation storing R[rt] with
+     * M[R[rs] + SignExtImm]
+     */
+    public void executeImmLoadWord() {
+        int word = loadWord(mRegisters[mDecRs[mSlot]], mDecImm[mSlot]);
+        // Load the word into register
+        writeRegister(mDecRt[mSlot], word);
+    }
+    
+    /** 
+     * Set the value at a data memory address to the word at Rt.
+     * R[rt] = M[R[rs] + SignExtImm]
+     */
+    public void executeImmStoreWord() {
+        storeWord(mRegisters[mDecRs[mSlot]], mDecImm[mSlot], mRegisters[mDecRt[mSlot]]);
+    }
+
+    /**
+     * Does a load linked, a lw that also links this computer to the word
+     * for a following sc.
+     * R[rt] = M[R[rs] + SignExtImm]
+     */
+    public void executeImmLoadLinked() {
+        writeRegister(mDecRt[mSlot], loadLinked(mRegisters[mDecRs[mSlot]], mDecImm[mSlot]));
+    }
+
+    /**
+     * Does a store conditional, storing the word at Rt only if the word is
+     * still linked, and sets Rt to 1 if it stored and to 0 if not.
+     * M[R[rs] + SignExtImm] = R[rt]; R[rt] = stored ? 1 : 0
+     */
+    public void executeImmStoreConditional() {
+        writeRegister(mDecRt[mSlot], storeConditional(mRegisters[mDecRs[mSlot]],
+                mDecImm[mSlot], mRegisters[mDecRt[mSlot]]));
+    }
+
+    /**
+     * Does an immediate branch on equal operation storing PC with PC + 4 +
+     * BranchAddr if R[rs] == R[rt]
+     */
+    public void executeImmBEQ() {
+        mPC = branchIfEqual(mPC, mRegisters[mDecRs[mSlot]], mRegisters[mDecRt[mSlot]],
+                mDecImm[mSlot]);
+    }
+
+    /**
+     * Does an jump operation storing PC with JumpAddr
+     */
+    public void executeJJump() {
+        mPC = jumpTarget(mPC, mDecTarget[mSlot]);
+    }
+    
+    /**
+     * Does a jump operation to a register.
+     */
+    public void executeJJumpRegister() {
+       mPC = jumpRegisterTarget(mRegisters[mDecRs[mSlot]]);
+    }
+
+    /**
+     * Writes a register for an instruction, which faults on $0.
+     * @param register the register, 0 to 31
+     * @param value the value
+     */
+    void writeRegister(int register, int value) {
+        if (register == 0) {
+            if (mTrapMode) {
+                throw trap(CAUSE_REGISTER_ZERO, 0);
+            }
+            throw new IllegalArgumentException("Cannot change the value in register 0!");
+        }
+        mRegisters[register] = value;
+    }
+
+    /*
+     * The checked operations below are shared by the handlers above and by
+     * the code that JitEngine generates, so both trap in exactly the same way.
+     */
+
+    /**
+     * Adds two register values for add.
+     * @param rs value of R[rs]
+     * @param rt value of R[rt]
+     * @return the sum
+     */
+    int addRegisters(int rs, int rt) {
+        int sum = rs + rt;
+        if ((rs > 0 && rt > 0 && sum < 0) || (rs < 0 && rt < 0 && sum > 0)) {
+            if (mTrapMode) {
+                throw trap(CAUSE_OVERFLOW, 0);
+            }
+            throw new IllegalArgumentException("Arithmetic Overflow from register add.");
+        }
+        return sum;
+    }
+
+    /**
+     * Adds a register value and a sign extended immediate for addi.
+     * @param valueRs value of R[rs]
+     * @param imm the sign extended immediate
+     * @return the sum
+     */
+    int addImmediate(int valueRs, int imm) {
+        int sum = valueRs + imm;
+        if ((valueRs > 0 && imm > 0 && sum < 0) || (valueRs < 0 && imm < 0 && sum > 0)) {
+            if (mTrapMode) {
+                throw trap(CAUSE_OVERFLOW, 0);
+            }
+            throw new IllegalArgumentException("Arithmetic Overflow from immediate add.");
+        }
+        return sum;
+    }
+
+    /**
+     * Reads M[R[rs] + SignExtImm] for lw.
+     * @param valueRs value of R[rs]
+     * @param imm the sign extended immediate
+     * @return the word in data memory
+     */
+    int loadWord(int valueRs, int imm) {
+        // Calculate target address
+        int offset = valueRs + imm;
+        // Check if R[rs] + SignExtImm creates arithmetic overflow
+        if ((valueRs > 0 && imm > 0 && offset < 0)
+                || (valueRs < 0 && imm < 0 && offset > 0)) {
+            if (mTrapMode) {
+                throw trap(CAUSE_ADDRESS_LOAD, offset);
+            }
+            throw new IllegalArgumentException("Arithmetic Overflow from offset add.");
+        }
+
+        // Check if R[rs] + SignExtImm is out of bounds of mMemory
+        if (offset >= mDataMemorySize || offset < 0) {
+            if (mTrapMode) {
+                throw trap(CAUSE_ADDRESS_LOAD, offset);
+            }
+            throw new ArrayIndexOutOfBoundsException("Offset to large/small");
+        }
+        return mMemory.load(offset);
+    }
+
+    /**
+     * Writes M[R[rs] + SignExtImm] for sw.
+     * @param rs value of R[rs]
+     * @param imm the sign extended immediate
+     * @param value the word to store
+     */
+    void storeWord(int rs, int imm, int value) {
+        mMemory.store(storeAddress(rs, imm), value);
+    }
+
+    /**
+     * Checks the address R[rs] + SignExtImm of a sw or sc.
+     * @param rs value of R[rs]
+     * @param imm the sign extended immediate
+     * @return the word address
+     */
+    private int storeAddress(int rs, int imm) {
+        int memoryAddress = rs + imm;
+        // Check if R[rs] + SignExtImm creates arithmetic overflow
+        if ((rs > 0 && imm > 0 && memoryAddress < 0)
+                || (rs < 0 && imm < 0 && memoryAddress > 0)) {
+            if (mTrapMode) {
+                throw trap(CAUSE_ADDRESS_STORE, memoryAddress);
+            }
+            throw new IllegalArgumentException("Arithmetic Overflow from offset add.");
+        }
+        if (memoryAddress < 0 || memoryAddress >= mDataMemorySize) {
+            if (mTrapMode) {
+                throw trap(CAUSE_ADDRESS_STORE, memoryAddress);
+            }
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        return memoryAddress;
+    }
+
+    /**
+     * Reads M[R[rs] + SignExtImm] for ll and links the word.
+     * @param valueRs value of R[rs]
+     * @param imm the sign extended immediate
+     * @return the word in data memory
+     */
+    int loadLinked(int valueRs, int imm) {
+        int word = loadWord(valueRs, imm);
+        mLinkAddress = valueRs + imm;
+        mLinkValue = word;
+        return word;
+    }
+
+    /**
+     * Writes M[R[rs] + SignExtImm] for sc if it is the word the last ll
+     * linked and still holds the value the ll read. The check and the
+     * write are one compareAndSet on the data memory, so on a
+     * SharedMemory an sc fails if another core changed the word in
+     * between. A store that puts back the same value goes unnoticed,
+     * unlike on hardware that watches the cache line. Either way the link
+     * is used up.
+     * @param rs value of R[rs]
+     * @param imm the sign extended immediate
+     * @param value the word to store
+     * @return 1 if the word was stored, 0 if not
+     */
+    int storeConditional(int rs, int imm, int value) {
+        int memoryAddress = storeAddress(rs, imm);
+        boolean linked = mLinkAddress == memoryAddress;
+        mLinkAddress = NO_LINK;
+        return linked && mMemory.compareAndSet(memoryAddress, mLinkValue, value) ? 1 : 0;
+    }
+
+    /**
+     * Drops the link of the last ll, so the next sc fails unless another
+     * ll comes first. Used when the state is replaced wholesale.
+     */
+    void clearLink() {
+        mLinkAddress = NO_LINK;
+    }
+
+    /**
+     * Returns the PC after a beq.
+     * @param pc the already incremented PC
+     * @param valueRs value of R[rs]
+     * @param valueRt value of R[rt]
+     * @param imm the sign extended branch offset in words
+     * @return PC + BranchAddr if the values are equal, otherwise pc
+     */
+    int branchIfEqual(int pc, int valueRs, int valueRt, int imm) {
+        if (valueRs != valueRt) {
+            return pc;
+        }
+        int newPC = pc + (imm * 4);
+        if (newPC < 0 || newPC / 4 >= mInstrMemorySize) {
+            if (mTrapMode) {
+                throw trap(CAUSE_ADDRESS_LOAD, newPC);
+            }
+            throw new ArrayIndexOutOfBoundsException("PC is too large/small");
+        }
+        return newPC;
+    }
+
+    /**
+     * Returns the PC after a j.
+     * @param pc the already incremented PC
+     * @param target the 26 bit address shifted left by two
+     * @return the top 4 bits of PC followed by the target
+     */
+    int jumpTarget(int pc, int target) {
+        int newPC = (pc & 0xF0000000) | target;
+        if (newPC < 0 || newPC / 4 >= mInstrMemorySize) {
+            if (mTrapMode) {
+                throw trap(CAUSE_ADDRESS_LOAD, newPC);
+            }
+            throw new ArrayIndexOutOfBoundsException("Offset to large/small");
+        }
+        return newPC;
+    }
+
+    /**
+     * Returns the PC after a jr.
+     * @param rsValue value of R[rs]
+     * @return the new PC
+     */
+    int jumpRegisterTarget(int rsValue) {
+        if (rsValue / 4 >= mInstrMemorySize || rsValue < 0 || rsValue % 4 != 0) {
+            if (mTrapMode) {
+                throw trap(CAUSE_ADDRESS_LOAD, rsValue);
+            }
+            throw new ArrayIndexOutOfBoundsException("Invalid JR input");
+        }
+        return rsValue;
+    }
+
+    /**
+     * Returns an immutable 32 bit BitString view of a raw word. Common
+     * words share a cached instance.
+     * @param word the raw word
+     * @return a BitString holding the word
+     */
+    private static BitString view(int word) {
+        return BitString.valueOf(word);
+    }
+    
+    /** 
+     * Returns the PC value. 
+     */
+    public BitString getMyPC() {
+        return view(mPC);
+    }
+
+    /** 
+     * Returns 32 bits within an inputted register
+     * @param register
+     * @return the 32 character BitString in the register
+     */
+    public BitString getRegister(int register) {
+        if (register < 0 || register >= MAX_REGISTERS) {
+            throw new IllegalArgumentException();
+        }
+        return view(mRegisters[register]);
+    }
+
+    /**
+     * Sets the value within a register.
+     * @param register to change value
+     * @param value to change register to
+     */
+    public void setRegister(int register, int value) {
+        if (register < 0 || register >= MAX_REGISTERS) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        if (register == 0) {
+            throw new IllegalArgumentException("Cannot change the value in register 0!");
+        }
+        mRegisters[register] = value;
+    }
+
+    /**
+     * Sets the value within a register directly to a BitString.
+     * @param register to change value
+     * @param value to change register to a given BitString
+     */
+    public void setRegister(int register, BitString value) {
+        setRegister(register, value.getValue2sComp());
+    }
+
+    /**
+     * Gets the instruction memory at a certain address.
+     * @param memoryAddress to get value from
+     * @return the BitString at the memory address
+     */
+    public BitString getInstr(int memoryAddress) {
+        if (memoryAddress < 0 || memoryAddress >= mInstrMemorySize) {
+            throw new IllegalArgumentException();
+        }
+        return view(mInstrMemory[memoryAddress]);
+    }
+
+    /**
+     * Sets an instruction memory address to a word. The bits are copied,
+     * so later changes to the BitString object are not seen by execute.
+     * @param memoryAddress is the address to change
+     * @param word is the new number to store at that address
+     */
+    public void loadInstr(int memoryAddress, BitString word) {
+        if (word.getLength() != MAX_BITS) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        loadInstr(memoryAddress, word.getValue());
+    }
+
+    /**
+     * Sets an instruction memory address to a raw 32 bit word.
+     * @param memoryAddress is the address to change
+     * @param word is the instruction to store at that address
+     */
+    public void loadInstr(int memoryAddress, int word) {
+        if (memoryAddress < 0 || memoryAddress >= mInstrMemorySize) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        ownInstrMemory();
+        mInstrMemory[memoryAddress] = word;
+        predecode(memoryAddress, word);
+        if (mJit != null) {
+            mJit.invalidate(memoryAddress);
+        }
+        if (mThreaded != null) {
+            mThreaded.invalidate(memoryAddress);
+        }
+    }
+
+    /**
+     * Copies a run of instruction words into instruction memory in one
+     * pass, for example straight from a mapped program image.
+     * @param memoryAddress the slot of the first word
+     * @param words the words from the position to the limit, which the
+     *        buffer is advanced past
+     */
+    public void loadInstr(int memoryAddress, IntBuffer words) {
+        int count = words.remaining();
+        if (memoryAddress < 0 || count > mInstrMemorySize - memoryAddress) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        ownInstrMemory();
+        words.get(mInstrMemory, memoryAddress, count);
+        instrMemoryReplaced(memoryAddress, memoryAddress + count);
+    }
+
+    /**
+     * Predecodes every slot after instruction memory was replaced in bulk
+     * and drops any code compiled from the old contents.
+     */
+    void instrMemoryReplaced() {
+        instrMemoryReplaced(0, mInstrMemorySize);
+    }
+
+    /**
+     * Predecodes a run of slots after they were replaced in bulk and drops
+     * any code compiled from the old contents.
+     * @param from the first slot replaced
+     * @param to the slot after the last one replaced
+     */
+    private void instrMemoryReplaced(int from, int to) {
+        for (int slot = from; slot < to; slot++) {
+            predecode(slot, mInstrMemory[slot]);
+        }
+        if (mJit != null) {
+            mJit = new JitEngine(this);
+        }
+        if (mThreaded != null) {
+            mThreaded.invalidate(0);
+        }
+    }
+
+    /**
+     * Returns the BitString located at a calculated target address in the
+     * Data Memory unit
+     * @param offset the calculated target address
+     * @return BitString located at calculated target address
+     */
+    public BitString getDataMemoryAddress(int offset) {
+        if (offset < 0 || offset >= mDataMemorySize) {
+            throw new IllegalArgumentException("Offset too large/small");
+        }
+        return view(mMemory.load(offset));
+    }
+
+    public void setDataMemoryAdress(int offset, int value) {
+        if (offset < 0 || offset >= mDataMemorySize) {
+            throw new IllegalArgumentException("Offset too large/small");
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("Cannot represent in "
+                    + MAX_BITS + " bits.");
+        }
+        mMemory.store(offset, value);
+    }
+    
+    /**
+     * Displays the computer's state on the console.
+     * @param maxInstr number of instruction memory slots to show
+     * @param maxData number of data memory words to show
+     */
+    public void display(int maxInstr, int maxData) {
+        new StateRenderer(System.out).render(this, maxInstr, maxData);
+    }
+
+    /**
+     * The signal a guest fault unwinds to execute or step with in trap
+     * mode. It is never seen outside this class.
+     */
+    private static final class GuestTrap extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        GuestTrap() {
+            super("Guest trap", null, false, false);
+        }
+    }
+}
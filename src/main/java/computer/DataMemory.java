@@ -0,0 +1,73 @@
+package computer;
+
+import java.nio.IntBuffer;
+
+/**
+ * The data memory of a Computer, addressed by word. Computer does its own
+ * range checks before calling load and store.
+ */
+public interface DataMemory {
+
+    /**
+     * Returns the number of addressable words.
+     * @return the size
+     */
+    int size();
+
+    /**
+     * Reads a word.
+     * @param address the word address
+     * @return the word
+     */
+    int load(int address);
+
+    /**
+     * Writes a word.
+     * @param address the word address
+     * @param value the word
+     */
+    void store(int address, int value);
+
+    /**
+     * Writes a word if it still holds an expected value. The default reads
+     * and then writes, which is only atomic if a single thread uses the
+     * memory; SharedMemory does it in one step.
+     * @param address the word address
+     * @param expected the value the word must hold
+     * @param value the word to write
+     * @return true if the word was written
+     */
+    default boolean compareAndSet(int address, int expected, int value) {
+        if (load(address) != expected) {
+            return false;
+        }
+        store(address, value);
+        return true;
+    }
+
+    /**
+     * Writes a run of words. Implementations may copy them in bulk.
+     * @param address the address of the first word
+     * @param words the words from the position to the limit, which the
+     *        buffer is advanced past
+     */
+    default void store(int address, IntBuffer words) {
+        int count = words.remaining();
+        if (address < 0 || count > size() - address) {
+            throw new ArrayIndexOutOfBoundsException(address);
+        }
+        for (int i = 0; i < count; i++) {
+            store(address + i, words.get());
+        }
+    }
+
+    /**
+     * Returns a copy of this memory that changes independently of it from
+     * now on. Implementations may share storage until it is written.
+     * @return the copy
+     * @throws UnsupportedOperationException if the memory cannot be copied
+     */
+    default DataMemory fork() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot fork");
+    }
+}
@@ -0,0 +1,64 @@
+package computer;
+
+/**
+ * Turns 32 bit instruction words back into assembly text for the
+ * instructions the simulator implements.
+ */
+public final class Disassembler {
+
+    private Disassembler() {
+    }
+
+    /**
+     * Returns the assembly text of an instruction word, for example
+     * "addi $8, $8, -1". Branch offsets are printed in words, jump targets
+     * as byte addresses. Words that are not an implemented instruction are
+     * printed as ".word 0x...".
+     * @param word the instruction word
+     * @return the assembly text
+     */
+    public static String disassemble(int word) {
+        int opcode = word >>> 26;
+        int rs = (word >>> 21) & 0x1F;
+        int rt = (word >>> 16) & 0x1F;
+        int rd = (word >>> 11) & 0x1F;
+        int imm = (short) word;
+        switch (opcode) {
+            case 0:
+                switch (word & 0x3F) {
+                    case 0x20:
+                        return "add $" + rd + ", $" + rs + ", $" + rt;
+                    case 0x24:
+                        return "and $" + rd + ", $" + rs + ", $" + rt;
+                    case 0x08:
+                        return "jr $" + rs;
+                    case 0x0C:
+                        return "syscall";
+                    default:
+                        return dataWord(word);
+                }
+            case 0x02:
+                return String.format("j 0x%04x", (word & 0x03FFFFFF) << 2);
+            case 0x04:
+                return "beq $" + rs + ", $" + rt + ", " + imm;
+            case 0x08:
+                return "addi $" + rt + ", $" + rs + ", " + imm;
+            case 0x0C:
+                return "andi $" + rt + ", $" + rs + ", " + imm;
+            case 0x23:
+                return "lw $" + rt + ", " + imm + "($" + rs + ")";
+            case 0x2B:
+                return "sw $" + rt + ", " + imm + "($" + rs + ")";
+            case 0x30:
+                return "ll $" + rt + ", " + imm + "($" + rs + ")";
+            case 0x38:
+                return "sc $" + rt + ", " + imm + "($" + rs + ")";
+            default:
+                return dataWord(word);
+        }
+    }
+
+    private static String dataWord(int word) {
+        return String.format(".word 0x%08x", word);
+    }
+}
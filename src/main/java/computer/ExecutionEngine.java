@@ -0,0 +1,20 @@
+package computer;
+
+/**
+ * The ways a Computer can run the program in its instruction memory.
+ * Every engine gives the same registers, memory and traps.
+ */
+public enum ExecutionEngine {
+
+    /** Decodes and runs one instruction at a time. */
+    INTERPRETER,
+
+    /** Compiles hot basic blocks to JVM bytecode, interpreting cold code. */
+    JIT,
+
+    /**
+     * Runs a chain of prebuilt nodes, one per instruction. Defines no
+     * classes at runtime, so it works where the JIT is not allowed.
+     */
+    THREADED
+}
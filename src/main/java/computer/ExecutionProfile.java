@@ -0,0 +1,141 @@
+package computer;
+
+import java.util.Arrays;
+
+/**
+ * Execution counters filled in by a Computer that has the profile attached
+ * with setProfile. The counters are plain long arrays that are only ever
+ * incremented, so another thread can read them while the guest runs; such a
+ * read sees a recent, not an exact, count.
+ *
+ * A computer with no profile attached runs the normal execute loop and pays
+ * nothing for this class.
+ */
+public final class ExecutionProfile {
+
+    /** Mnemonics indexed by the predecoded handler id of the instruction. */
+    private final static String MNEMONICS[] = { "nop", "add", "and", "jr", "syscall", "j",
+            "beq", "addi", "andi", "lw", "sw", "ll", "sc" };
+
+    private final long mInstrCounts[];
+    private final long mPCCounts[];
+    private final long mBranchCounts[];
+    private long mRetired;
+
+    // Indexes into mBranchCounts
+    private final static int NOT_TAKEN = 0;
+    private final static int TAKEN = 1;
+
+    /**
+     * Creates a profile with all counters at 0.
+     * @param instrMemorySize number of instruction memory slots to count
+     */
+    public ExecutionProfile(int instrMemorySize) {
+        if (instrMemorySize <= 0) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mInstrCounts = new long[MNEMONICS.length];
+        mPCCounts = new long[instrMemorySize];
+        mBranchCounts = new long[2];
+    }
+
+    /**
+     * Counts one retired instruction.
+     * @param slot the instruction memory slot it was fetched from
+     * @param handler the predecoded handler id of the instruction
+     */
+    void retire(int slot, int handler) {
+        mRetired++;
+        mInstrCounts[handler]++;
+        mPCCounts[slot]++;
+    }
+
+    /**
+     * Counts one retired beq.
+     * @param taken whether the branch went to its target
+     */
+    void branch(boolean taken) {
+        mBranchCounts[taken ? TAKEN : NOT_TAKEN]++;
+    }
+
+    /**
+     * Returns the number of instructions that ran to completion. An
+     * instruction that traps is not counted.
+     * @return retired instructions
+     */
+    public long getRetired() {
+        return mRetired;
+    }
+
+    /**
+     * Returns how many times an instruction ran. Words that do not decode
+     * to one of the implemented instructions are counted as "nop".
+     * @param mnemonic add, and, addi, andi, lw, sw, ll, sc, beq, j, jr, syscall
+     *        or nop
+     * @return the count for the mnemonic
+     */
+    public long getCount(String mnemonic) {
+        for (int i = 0; i < MNEMONICS.length; i++) {
+            if (MNEMONICS[i].equals(mnemonic)) {
+                return mInstrCounts[i];
+            }
+        }
+        throw new IllegalArgumentException("Unknown instruction " + mnemonic);
+    }
+
+    /**
+     * Returns the number of times the instruction at a PC ran.
+     * @param pc byte address of the instruction
+     * @return the count for the PC
+     */
+    public long getPCCount(int pc) {
+        if (pc < 0 || pc % 4 != 0 || pc / 4 >= mPCCounts.length) {
+            throw new ArrayIndexOutOfBoundsException("Invalid PC " + pc);
+        }
+        return mPCCounts[pc / 4];
+    }
+
+    /**
+     * Returns the live per-PC counters, indexed by instruction memory slot
+     * (PC / 4). The array is not copied so it can be polled while the guest
+     * runs.
+     * @return counts per slot
+     */
+    public long[] getPCCounts() {
+        return mPCCounts;
+    }
+
+    /**
+     * Returns the number of beq instructions that went to their target.
+     * @return taken branches
+     */
+    public long getBranchesTaken() {
+        return mBranchCounts[TAKEN];
+    }
+
+    /**
+     * Returns the number of beq instructions that fell through.
+     * @return not taken branches
+     */
+    public long getBranchesNotTaken() {
+        return mBranchCounts[NOT_TAKEN];
+    }
+
+    /**
+     * Returns the number of instruction memory slots counted.
+     * @return the size given to the constructor
+     */
+    public int getInstrMemorySize() {
+        return mPCCounts.length;
+    }
+
+    /**
+     * Sets every counter back to 0.
+     */
+    public void reset() {
+        mRetired = 0;
+        Arrays.fill(mInstrCounts, 0);
+        Arrays.fill(mPCCounts, 0);
+        Arrays.fill(mBranchCounts, 0);
+    }
+}
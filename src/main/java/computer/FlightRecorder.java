@@ -0,0 +1,223 @@
+package computer;
+
+/**
+ * Fixed size ring buffer of the last instructions a Computer retired. Every
+ * entry is two longs in one flat array, the PC with the instruction word
+ * and the destination register with the value written to it, so recording
+ * allocates nothing. A destination of 0 means the instruction wrote no
+ * register.
+ *
+ * A new computer has a recorder. When execute or step traps, the
+ * disassembled history is attached to the exception as a suppressed
+ * FlightRecorder.History, so it shows up in the stack trace.
+ */
+public final class FlightRecorder {
+
+    /** Capacity of the recorder a new Computer starts with. */
+    public final static int DEFAULT_CAPACITY = 64;
+
+    // Longs per entry
+    final static int ENTRY = 2;
+    // Field numbers; even fields are the high half of their long
+    private final static int PC = 0;
+    private final static int WORD = 1;
+    private final static int DEST = 2;
+    private final static int VALUE = 3;
+
+    // Computer's interpreter loop writes these directly
+    final long mEntries[];
+    final int mMask;
+    long mRecorded;
+
+    /**
+     * Creates an empty recorder.
+     * @param capacity number of entries kept, rounded up to a power of two
+     */
+    public FlightRecorder(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 24)) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mEntries = new long[size * ENTRY];
+        mMask = size - 1;
+    }
+
+    /**
+     * Creates a recorder holding the same entries as another.
+     * @param other the recorder to copy
+     */
+    private FlightRecorder(FlightRecorder other) {
+        mEntries = other.mEntries.clone();
+        mMask = other.mMask;
+        mRecorded = other.mRecorded;
+    }
+
+    /**
+     * Returns a copy of this recorder, used when a Computer forks.
+     * @return the copy
+     */
+    FlightRecorder copy() {
+        return new FlightRecorder(this);
+    }
+
+    /**
+     * Records one retired instruction, overwriting the oldest entry once the
+     * buffer is full.
+     * @param pc byte address of the instruction
+     * @param word the instruction word
+     * @param dest the register it wrote, or 0 for none
+     * @param value the value of the destination register afterwards
+     */
+    void record(int pc, int word, int dest, int value) {
+        int base = ((int) mRecorded & mMask) * ENTRY;
+        mRecorded++;
+        mEntries[base] = pack(pc, word);
+        mEntries[base + 1] = pack(dest, value);
+    }
+
+    /**
+     * Packs two ints into one entry half.
+     * @param high the int kept in the upper 32 bits
+     * @param low the int kept in the lower 32 bits
+     * @return the packed long
+     */
+    static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the number of entries the buffer holds.
+     * @return capacity after rounding
+     */
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Returns how many instructions were recorded since the recorder was
+     * created or cleared, including the ones already overwritten.
+     * @return the total recorded
+     */
+    public long getRecorded() {
+        return mRecorded;
+    }
+
+    /**
+     * Returns the number of entries that can be read back.
+     * @return min(getRecorded(), getCapacity())
+     */
+    public int size() {
+        return (int) Math.min(mRecorded, mMask + 1);
+    }
+
+    /**
+     * Returns the PC of an entry.
+     * @param index 0 for the oldest entry up to size() - 1 for the newest
+     * @return the PC
+     */
+    public int getPC(int index) {
+        return field(index, PC);
+    }
+
+    /**
+     * Returns the instruction word of an entry.
+     * @param index 0 for the oldest entry up to size() - 1 for the newest
+     * @return the instruction word
+     */
+    public int getWord(int index) {
+        return field(index, WORD);
+    }
+
+    /**
+     * Returns the destination register of an entry.
+     * @param index 0 for the oldest entry up to size() - 1 for the newest
+     * @return the register written, or 0 for none
+     */
+    public int getDest(int index) {
+        return field(index, DEST);
+    }
+
+    /**
+     * Returns the value written by an entry.
+     * @param index 0 for the oldest entry up to size() - 1 for the newest
+     * @return the value of the destination register after the instruction
+     */
+    public int getValue(int index) {
+        return field(index, VALUE);
+    }
+
+    private int field(int index, int field) {
+        int size = size();
+        if (index < 0 || index >= size) {
+            throw new ArrayIndexOutOfBoundsException("Invalid entry " + index);
+        }
+        int entry = (int) ((mRecorded - size + index) & mMask);
+        long half = mEntries[entry * ENTRY + field / 2];
+        return (int) (field % 2 == 0 ? half >> 32 : half);
+    }
+
+    /**
+     * Forgets every entry.
+     */
+    public void clear() {
+        mRecorded = 0;
+    }
+
+    /**
+     * Returns the entries oldest first, one disassembled instruction per
+     * line.
+     * @return the history as text
+     */
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        int size = size();
+        out.append("Last ").append(size).append(" of ").append(mRecorded)
+                .append(" retired instructions:").append(System.lineSeparator());
+        for (int i = 0; i < size; i++) {
+            String text = Disassembler.disassemble(getWord(i));
+            if (getDest(i) != 0) {
+                text = String.format("%-24s$%d = %d", text, getDest(i), getValue(i));
+            }
+            appendLine(out, getPC(i), getWord(i), text);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Builds the History attached to a trap.
+     * @param pc the PC of the instruction that trapped
+     * @param word the instruction word, ignored when fetched is false
+     * @param fetched false when the PC itself was outside instruction memory
+     * @return the history
+     */
+    History trap(int pc, int word, boolean fetched) {
+        StringBuilder out = new StringBuilder(dump());
+        out.append("Trapped at:").append(System.lineSeparator());
+        if (fetched) {
+            appendLine(out, pc, word, Disassembler.disassemble(word));
+        } else {
+            out.append(String.format("  0x%08x  fetch outside instruction memory%n", pc));
+        }
+        return new History(out.toString());
+    }
+
+    private static void appendLine(StringBuilder out, int pc, int word, String text) {
+        out.append(String.format("  0x%08x  %08x  %s%n", pc, word, text));
+    }
+
+    /**
+     * The disassembled history of a computer, attached as a suppressed
+     * exception to the trap it led up to.
+     */
+    public static final class History extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        History(String dump) {
+            super(dump, null, false, false);
+        }
+    }
+}
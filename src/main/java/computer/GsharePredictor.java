@@ -0,0 +1,59 @@
+package computer;
+
+import java.util.Arrays;
+
+/**
+ * A table of 2-bit saturating counters indexed by the branch PC xor a
+ * global history of the latest branch outcomes, so branches whose
+ * direction follows from the ones before them get counters of their own
+ * for each history.
+ */
+public final class GsharePredictor implements BranchPredictor {
+
+    private final static byte INITIAL = 1;
+
+    private final byte mCounters[];
+    private final int mMask;
+    private final int mHistoryMask;
+    private int mHistory;
+
+    /**
+     * Creates a predictor.
+     * @param entries number of counters, a power of two
+     * @param historyBits outcomes kept in the global history, at most the
+     *        number of index bits
+     */
+    public GsharePredictor(int entries, int historyBits) {
+        if (entries <= 0 || Integer.bitCount(entries) != 1 || historyBits < 0
+                || (1L << historyBits) > entries) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mCounters = new byte[entries];
+        mMask = entries - 1;
+        mHistoryMask = (1 << historyBits) - 1;
+        reset();
+    }
+
+    @Override
+    public boolean predict(int pc, int target) {
+        return mCounters[((pc >>> 2) ^ mHistory) & mMask] >= 2;
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+        int index = ((pc >>> 2) ^ mHistory) & mMask;
+        mCounters[index] = BimodalPredictor.train(mCounters[index], taken);
+        mHistory = ((mHistory << 1) | (taken ? 1 : 0)) & mHistoryMask;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(mCounters, INITIAL);
+        mHistory = 0;
+    }
+
+    @Override
+    public String getName() {
+        return "gshare-" + mCounters.length + "-" + Integer.bitCount(mHistoryMask);
+    }
+}
@@ -0,0 +1,161 @@
+package computer;
+
+/**
+ * JitEngine runs a Computer one basic block at a time. A block starts at
+ * the target of a branch or jump and ends at the next beq, j, jr or
+ * syscall. Blocks are interpreted until they have been entered
+ * HOT_THRESHOLD times, then BlockCompiler turns them into JVM classes that
+ * are cached by their first slot. Loading an instruction into a slot drops
+ * every cached block covering it.
+ *
+ * The engine of a fork shares the tables of its parent, the way the two
+ * share instruction memory, so a block either of them compiles is used by
+ * both. Compiled blocks only depend on the instruction words, so forks
+ * running on other threads may share them as well; a race on the tables
+ * at worst loses an entry count or compiles a block twice. The first of
+ * the two to load an instruction copies the tables before dropping
+ * blocks.
+ */
+final class JitEngine {
+
+    /** Number of entries into a block before it is compiled. */
+    final static int HOT_THRESHOLD = 32;
+
+    private final Computer mComputer;
+    // Indexed by the first slot of a block
+    private CompiledBlock mBlocks[];
+    private int mBlockEnds[];
+    private int mEntryCounts[];
+    private boolean mUncompilable[];
+    // True while the tables may be shared with a fork
+    private boolean mShared;
+
+    /**
+     * Creates an engine for a computer.
+     * @param computer the computer to run
+     */
+    JitEngine(Computer computer) {
+        mComputer = computer;
+        int size = computer.getInstrMemorySize();
+        mBlocks = new CompiledBlock[size];
+        mBlockEnds = new int[size];
+        mEntryCounts = new int[size];
+        mUncompilable = new boolean[size];
+    }
+
+    /**
+     * Creates an engine for a fork that shares the tables of another.
+     * @param computer the fork to run
+     * @param parent the engine of the computer it was forked from
+     */
+    JitEngine(Computer computer, JitEngine parent) {
+        mComputer = computer;
+        mBlocks = parent.mBlocks;
+        mBlockEnds = parent.mBlockEnds;
+        mEntryCounts = parent.mEntryCounts;
+        mUncompilable = parent.mUncompilable;
+        mShared = true;
+        parent.mShared = true;
+    }
+
+    /**
+     * Runs the computer until a syscall.
+     * @return the status that stopped execution
+     */
+    int execute() {
+        Computer computer = mComputer;
+        computer.mStatus = Computer.STATUS_RUNNING;
+        while (computer.mStatus == Computer.STATUS_RUNNING) {
+            int slot = computer.mPC / 4;
+            if (slot < 0 || slot >= mBlocks.length) {
+                // Let the interpreter fail the fetch the way it always does
+                computer.executeNext();
+                continue;
+            }
+            CompiledBlock block = mBlocks[slot];
+            if (block == null && ++mEntryCounts[slot] >= HOT_THRESHOLD && !mUncompilable[slot]) {
+                block = compile(slot);
+            }
+            if (block != null) {
+                int next = block.run(computer);
+                if (next == CompiledBlock.HALTED) {
+                    computer.mStatus = Computer.STATUS_HALTED;
+                } else {
+                    computer.mPC = next;
+                }
+            } else {
+                interpretBlock(slot);
+            }
+        }
+        return computer.mStatus;
+    }
+
+    /**
+     * Interprets one block starting at a slot.
+     * @param start the first slot of the block
+     */
+    private void interpretBlock(int start) {
+        Computer computer = mComputer;
+        int limit = Math.min(mBlocks.length, start + BlockCompiler.MAX_BLOCK_LENGTH);
+        int slot = start;
+        boolean endOfBlock;
+        do {
+            endOfBlock = BlockCompiler.endsBlock(computer.mDecHandler[slot]);
+            computer.executeNextRecorded();
+            slot++;
+        } while (!endOfBlock && slot < limit && computer.mStatus == Computer.STATUS_RUNNING);
+    }
+
+    /**
+     * Compiles the block starting at a slot, falling back to the
+     * interpreter for good if the JVM rejects it.
+     * @param start the first slot of the block
+     * @return the compiled block, or null
+     */
+    private CompiledBlock compile(int start) {
+        int end = BlockCompiler.blockEnd(mComputer, start);
+        mBlockEnds[start] = end;
+        try {
+            mBlocks[start] = BlockCompiler.compile(mComputer, start, end);
+        } catch (IllegalStateException | LinkageError e) {
+            mUncompilable[start] = true;
+        }
+        return mBlocks[start];
+    }
+
+    /**
+     * Returns the number of blocks compiled and not dropped since.
+     * @return the compiled block count
+     */
+    int getCompiledBlockCount() {
+        int count = 0;
+        for (CompiledBlock block : mBlocks) {
+            if (block != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Drops every compiled block that covers a slot.
+     * @param slot the instruction memory slot that changed
+     */
+    void invalidate(int slot) {
+        if (mShared) {
+            mBlocks = mBlocks.clone();
+            mBlockEnds = mBlockEnds.clone();
+            mEntryCounts = mEntryCounts.clone();
+            mUncompilable = mUncompilable.clone();
+            mShared = false;
+        }
+        int first = Math.max(0, slot - BlockCompiler.MAX_BLOCK_LENGTH + 1);
+        for (int start = first; start <= slot; start++) {
+            if (start == slot || mBlockEnds[start] > slot) {
+                mBlocks[start] = null;
+                mEntryCounts[start] = 0;
+                mUncompilable[start] = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package computer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * MachineSnapshot is a checkpoint of the whole state of a Computer: PC, IR,
+ * status, registers, instruction memory and data memory. A snapshot is
+ * captured once and can then be restored into any number of computers or
+ * written to a file and read back.
+ *
+ * The format is big-endian ints. A fixed 48 byte header (magic, version,
+ * instruction and data memory sizes, PC, IR, status, flags, exception
+ * vector, trap cause, EPC and bad address) is followed by the 32 registers
+ * and then a section for instruction memory and one for data memory. The
+ * only flag is trap mode. A section is a region count followed by the
+ * regions, each a start address, a length and that many words. Runs of at
+ * least MIN_ZERO_RUN zero words are left out of the regions, so a mostly
+ * empty memory costs almost nothing. Words move in bulk between the
+ * snapshot's buffer and the memory arrays through an IntBuffer view.
+ * The whole snapshot is one buffer, so it can be at most 2 GB.
+ */
+public final class MachineSnapshot {
+
+    /** "MSNP", the first four bytes of a snapshot. */
+    public final static int MAGIC = 0x4D534E50;
+    /** Version of the snapshot format. */
+    public final static int VERSION = 1;
+    /** Shortest run of zero words that is left out of a region. */
+    public final static int MIN_ZERO_RUN = 4;
+
+    private final static int HEADER_INTS = 12;
+    private final static int TRAP_MODE_FLAG = 1;
+    private final static int REGISTERS = 32;
+
+    // Read only, big-endian, position 0
+    private final ByteBuffer mBytes;
+
+    private MachineSnapshot(ByteBuffer bytes) {
+        mBytes = bytes.asReadOnlyBuffer();
+    }
+
+    /**
+     * Captures the current state of a computer.
+     * @param computer the computer
+     * @return the snapshot
+     * @throws IllegalArgumentException if the encoded snapshot would not
+     *         fit in 2 GB, which a large enough paged memory can reach
+     */
+    public static MachineSnapshot capture(Computer computer) {
+        Regions instr = new Regions();
+        instr.scan(computer.mInstrMemory, 0, computer.mInstrMemory.length);
+        instr.finish(computer.mInstrMemory.length);
+        Regions data = new Regions();
+        DataMemory memory = computer.mMemory;
+        int size = memory.size();
+        int scratch[] = new int[PagedMemory.PAGE_SIZE];
+        for (int base = 0; base >= 0 && base < size; base += PagedMemory.PAGE_SIZE) {
+            int length = Math.min(PagedMemory.PAGE_SIZE, size - base);
+            int page[] = page(memory, base, length, scratch);
+            if (page == null) {
+                data.skip(length);
+            } else {
+                data.scan(page, base, length);
+            }
+        }
+        data.finish(size);
+
+        long ints = HEADER_INTS + REGISTERS + instr.ints() + data.ints();
+        if (ints > Integer.MAX_VALUE / 4) {
+            throw new IllegalArgumentException("Snapshot would be larger than 2 GB: "
+                    + ints * 4 + " bytes");
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) ints * 4);
+        IntBuffer out = bytes.asIntBuffer();
+        out.put(MAGIC).put(VERSION).put(computer.getInstrMemorySize()).put(size)
+                .put(computer.mPC).put(computer.mIR).put(computer.mStatus)
+                .put(computer.isTrapMode() ? TRAP_MODE_FLAG : 0)
+                .put(computer.getExceptionVector()).put(computer.getTrapCause())
+                .put(computer.getEPC()).put(computer.getBadAddress());
+        out.put(computer.mRegisters, 0, REGISTERS);
+        instr.write(out, computer.mInstrMemory);
+        out.put(data.mCount);
+        for (int i = 0; i < data.mCount; i++) {
+            int start = data.mStarts[i];
+            int end = start + data.mLengths[i];
+            out.put(start).put(end - start);
+            while (start < end) {
+                int base = start & ~(PagedMemory.PAGE_SIZE - 1);
+                int length = Math.min(PagedMemory.PAGE_SIZE, size - base);
+                int page[] = page(memory, base, length, scratch);
+                int n = Math.min(end, base + length) - start;
+                out.put(page, start - base, n);
+                start += n;
+            }
+        }
+        return new MachineSnapshot(bytes);
+    }
+
+    /**
+     * Returns the words of a data memory page, or null if the page is known
+     * to be all zero.
+     * @param memory the data memory
+     * @param base first address of the page
+     * @param length words in the page
+     * @param scratch array filled with the words when memory is not paged
+     * @return the page words, starting at index 0
+     */
+    private static int[] page(DataMemory memory, int base, int length, int scratch[]) {
+        if (memory instanceof PagedMemory) {
+            return ((PagedMemory) memory).page(base / PagedMemory.PAGE_SIZE, false);
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = memory.load(base + i);
+        }
+        return scratch;
+    }
+
+    /**
+     * Reads a snapshot file.
+     * @param file the file written by write
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static MachineSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < (HEADER_INTS + REGISTERS + 2) * 4 || length > Integer.MAX_VALUE
+                    || length % 4 != 0) {
+                throw new IOException("Not a snapshot file");
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) length);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes) < 0) {
+                    throw new IOException("Snapshot is truncated");
+                }
+            }
+            bytes.flip();
+            if (bytes.getInt(0) != MAGIC) {
+                throw new IOException("Not a snapshot file");
+            }
+            if (bytes.getInt(4) != VERSION) {
+                throw new IOException("Unsupported snapshot version");
+            }
+            return new MachineSnapshot(bytes);
+        }
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing any file already there.
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = mBytes.duplicate();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Returns the encoded size of the snapshot.
+     * @return size in bytes
+     */
+    public int size() {
+        return mBytes.capacity();
+    }
+
+    /**
+     * Returns the number of instruction memory slots of the captured
+     * computer.
+     * @return instruction memory size in words
+     */
+    public int getInstrMemorySize() {
+        return mBytes.getInt(8);
+    }
+
+    /**
+     * Returns the data memory size of the captured computer.
+     * @return data memory size in words
+     */
+    public int getDataMemorySize() {
+        return mBytes.getInt(12);
+    }
+
+    /**
+     * Creates a computer with paged data memory in the captured state.
+     * @return the new computer
+     */
+    public Computer restore() {
+        Computer computer = new Computer(getInstrMemorySize(), getDataMemorySize());
+        restoreInto(computer);
+        return computer;
+    }
+
+    /**
+     * Puts a computer back in the captured state, trap mode and the trap
+     * registers included. Its engine, profile and other settings are kept;
+     * its flight recorder is cleared and the link of its last ll dropped.
+     * @param computer a computer with the same memory sizes as the captured one
+     */
+    public void restoreInto(Computer computer) {
+        int size = getDataMemorySize();
+        if (computer.getInstrMemorySize() != getInstrMemorySize()
+                || computer.getDataMemorySize() != size) {
+            throw new IllegalArgumentException("Memory sizes do not match the snapshot");
+        }
+        IntBuffer in = mBytes.duplicate().asIntBuffer();
+        in.position(4);
+        computer.mPC = in.get();
+        computer.mIR = in.get();
+        computer.mStatus = in.get();
+        computer.setTrapMode((in.get() & TRAP_MODE_FLAG) != 0);
+        computer.setExceptionVector(in.get());
+        int cause = in.get();
+        int epc = in.get();
+        computer.setTrapState(cause, epc, in.get());
+        in.get(computer.mRegisters, 0, REGISTERS);
+        // An ll before the restore must not let an sc after it succeed
+        computer.clearLink();
+
+        computer.ownInstrMemory();
+        Arrays.fill(computer.mInstrMemory, 0);
+        for (int regions = in.get(); regions > 0; regions--) {
+            int start = in.get();
+            int length = in.get();
+            in.get(computer.mInstrMemory, start, length);
+        }
+        computer.instrMemoryReplaced();
+
+        DataMemory memory = computer.mMemory;
+        if (memory instanceof PagedMemory) {
+            PagedMemory paged = (PagedMemory) memory;
+            paged.clear();
+            for (int regions = in.get(); regions > 0; regions--) {
+                int start = in.get();
+                int end = start + in.get();
+                while (start < end) {
+                    int pageNumber = start / PagedMemory.PAGE_SIZE;
+                    int offset = start % PagedMemory.PAGE_SIZE;
+                    int n = Math.min(end - start, PagedMemory.PAGE_SIZE - offset);
+                    in.get(paged.page(pageNumber, true), offset, n);
+                    start += n;
+                }
+            }
+        } else {
+            int next = 0;
+            for (int regions = in.get(); regions > 0; regions--) {
+                int start = in.get();
+                int end = start + in.get();
+                for (; next < start; next++) {
+                    memory.store(next, 0);
+                }
+                for (; next < end; next++) {
+                    memory.store(next, in.get());
+                }
+            }
+            for (; next < size; next++) {
+                memory.store(next, 0);
+            }
+        }
+        if (computer.getFlightRecorder() != null) {
+            computer.getFlightRecorder().clear();
+        }
+    }
+
+    /**
+     * Finds the regions of a memory left after removing long zero runs.
+     */
+    private static final class Regions {
+        int mStarts[] = new int[16];
+        int mLengths[] = new int[16];
+        int mCount;
+        long mWords;
+        // Address of the next word scanned, start of the open region or -1
+        // and the zero words since its last nonzero word
+        private int mNext;
+        private int mStart = -1;
+        private int mZeros;
+
+        void scan(int words[], int base, int length) {
+            for (int i = 0; i < length; i++) {
+                if (words[i] != 0) {
+                    if (mStart < 0) {
+                        mStart = base + i;
+                    }
+                    mZeros = 0;
+                } else if (mStart >= 0 && ++mZeros == MIN_ZERO_RUN) {
+                    close(base + i + 1 - MIN_ZERO_RUN);
+                }
+            }
+            mNext = base + length;
+        }
+
+        void skip(int length) {
+            if (mStart >= 0) {
+                close(mNext - mZeros);
+            }
+            mNext += length;
+        }
+
+        void finish(int size) {
+            if (mStart >= 0) {
+                close(size - mZeros);
+            }
+        }
+
+        private void close(int end) {
+            if (mCount == mStarts.length) {
+                mStarts = Arrays.copyOf(mStarts, mCount * 2);
+                mLengths = Arrays.copyOf(mLengths, mCount * 2);
+            }
+            mStarts[mCount] = mStart;
+            mLengths[mCount] = end - mStart;
+            mWords += end - mStart;
+            mCount++;
+            mStart = -1;
+            mZeros = 0;
+        }
+
+        /** Ints the section takes: the count, two per region and the words. */
+        long ints() {
+            return 1 + 2L * mCount + mWords;
+        }
+
+        void write(IntBuffer out, int words[]) {
+            out.put(mCount);
+            for (int i = 0; i < mCount; i++) {
+                out.put(mStarts[i]).put(mLengths[i]).put(words, mStarts[i], mLengths[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package computer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MappedMemory is a data memory backed by a memory mapped file, for guest
+ * images too large to keep on the heap. Words are stored big-endian, the
+ * MIPS byte order, so word n of memory is bytes 4n to 4n+3 of the file.
+ *
+ * The file is mapped in chunks of CHUNK_WORDS words since a single mapping
+ * is limited to 2 GB. Nothing is copied when the memory is opened; the
+ * operating system pages the image in as it is used. Written chunks are
+ * remembered and flush writes them back to the file.
+ */
+public final class MappedMemory implements DataMemory, Closeable {
+
+    /** Words in one mapped chunk, 1 GB of file. */
+    public final static int CHUNK_WORDS = 1 << 28;
+
+    private final static int CHUNK_BITS = 28;
+    private final static int CHUNK_MASK = CHUNK_WORDS - 1;
+    private final static VarHandle WORD =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final FileChannel mChannel;
+    private final MappedByteBuffer mChunks[];
+    private final boolean mDirty[];
+    private final int mSize;
+
+    /**
+     * Maps a whole existing image file.
+     * @param file the image, whose length should be a multiple of 4
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedMemory(Path file) throws IOException {
+        this(file, wordsIn(file));
+    }
+
+    /**
+     * Maps an image file with a given number of words, growing the file
+     * with zeros if it is shorter.
+     * @param file the image
+     * @param size number of addressable words
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedMemory(Path file, int size) throws IOException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Memory size must be positive");
+        }
+        mSize = size;
+        mChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int chunks = (int) (((long) size + CHUNK_WORDS - 1) >>> CHUNK_BITS);
+        mChunks = new MappedByteBuffer[chunks];
+        mDirty = new boolean[chunks];
+        try {
+            for (int i = 0; i < chunks; i++) {
+                long start = (long) i << CHUNK_BITS;
+                long words = Math.min(CHUNK_WORDS, size - start);
+                mChunks[i] = mChannel.map(FileChannel.MapMode.READ_WRITE, start * 4, words * 4);
+            }
+        } catch (IOException e) {
+            mChannel.close();
+            throw e;
+        }
+    }
+
+    private static int wordsIn(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long words = channel.size() / 4;
+            if (words <= 0 || words > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Image must hold 1 to 2^31 - 1 words");
+            }
+            return (int) words;
+        }
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public int load(int address) {
+        if (address < 0 || address >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(address);
+        }
+        return (int) WORD.get(mChunks[address >>> CHUNK_BITS], (address & CHUNK_MASK) << 2);
+    }
+
+    @Override
+    public void store(int address, int value) {
+        if (address < 0 || address >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(address);
+        }
+        int chunk = address >>> CHUNK_BITS;
+        WORD.set(mChunks[chunk], (address & CHUNK_MASK) << 2, value);
+        mDirty[chunk] = true;
+    }
+
+    /**
+     * Writes every chunk changed since the last flush back to the file.
+     */
+    public void flush() {
+        for (int i = 0; i < mChunks.length; i++) {
+            if (mDirty[i]) {
+                mChunks[i].force();
+                mDirty[i] = false;
+            }
+        }
+    }
+
+    /**
+     * Flushes and closes the file. The memory must not be used afterwards.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        mChannel.close();
+    }
+}
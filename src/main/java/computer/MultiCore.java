@@ -0,0 +1,122 @@
+package computer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * MultiCore runs several cores, each a Computer with its own registers and
+ * PC, on one SharedMemory, with every core on a thread of its own. The
+ * cores share the boot computer's instruction memory until one of them
+ * loads an instruction, and guest programs synchronize through the shared
+ * data memory with ll and sc.
+ *
+ * Every core starts with the registers and PC of the boot computer, except
+ * that $a0 holds the number of the core, 0 for the boot computer itself,
+ * so one program can pick each core's share of the work. Cores that do not
+ * touch the same words run without any contention, as the memory takes no
+ * locks.
+ */
+public final class MultiCore {
+
+    // $a0, which holds the core number
+    private final static int CORE_REGISTER = 4;
+
+    private final Computer mCores[];
+
+    /**
+     * Creates the cores.
+     * @param boot the first core, already loaded with the program, whose
+     *        data memory must be a SharedMemory
+     * @param cores the number of cores, at least 1
+     */
+    public MultiCore(Computer boot, int cores) {
+        if (boot == null || cores <= 0) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        if (!(boot.mMemory instanceof SharedMemory)) {
+            throw new IllegalArgumentException("Cores need a SharedMemory");
+        }
+        mCores = new Computer[cores];
+        mCores[0] = boot;
+        for (int i = 1; i < cores; i++) {
+            mCores[i] = boot.sibling();
+        }
+        for (int i = 0; i < cores; i++) {
+            mCores[i].mRegisters[CORE_REGISTER] = i;
+        }
+    }
+
+    /**
+     * Returns the number of cores.
+     * @return the core count
+     */
+    public int getCoreCount() {
+        return mCores.length;
+    }
+
+    /**
+     * Returns a core, for example to read its registers after a run.
+     * @param core the core number
+     * @return the computer of the core
+     */
+    public Computer getCore(int core) {
+        return mCores[core];
+    }
+
+    /**
+     * Runs every core on a platform thread of its own until all of them
+     * halt.
+     * @throws InterruptedException if interrupted while waiting for the cores
+     */
+    public void execute() throws InterruptedException {
+        execute(Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Runs every core on a thread from a factory until all of them halt.
+     * On a JDK with virtual threads, Thread.ofVirtual().factory() runs the
+     * cores as virtual threads. If any core traps, the trap of the lowest
+     * numbered one is thrown once all have stopped, with the traps of the
+     * others added to it as suppressed exceptions; the cores that did not
+     * trap still run to their syscall.
+     * @param factory makes the thread of each core
+     * @throws InterruptedException if interrupted while waiting for the cores
+     */
+    public void execute(ThreadFactory factory) throws InterruptedException {
+        if (factory == null) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        RuntimeException traps[] = new RuntimeException[mCores.length];
+        Thread threads[] = new Thread[mCores.length];
+        for (int i = 0; i < mCores.length; i++) {
+            int core = i;
+            threads[i] = factory.newThread(() -> {
+                try {
+                    mCores[core].execute();
+                } catch (RuntimeException e) {
+                    traps[core] = e;
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        RuntimeException first = null;
+        for (RuntimeException trap : traps) {
+            if (trap == null) {
+                continue;
+            }
+            if (first == null) {
+                first = trap;
+            } else {
+                first.addSuppressed(trap);
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+}
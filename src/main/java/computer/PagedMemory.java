@@ -0,0 +1,240 @@
+package computer;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * PagedMemory is a word addressed data memory that only allocates the
+ * pages that have been written. Reads of a page that was never written
+ * return 0. Pages are found through a two level table, and the page used
+ * last is remembered so runs of accesses to the same page skip the table.
+ *
+ * Addresses run from 0 up to the size given to the constructor, which may
+ * be as large as Integer.MAX_VALUE. Memory use grows with the number of
+ * pages touched, not with the size.
+ *
+ * fork shares every table and page between the two memories. Each memory
+ * keeps a bit per page (and a table of them per table) for the ones it may
+ * write in place; the first store to any other page copies it, and its
+ * table if needed, so a fork only costs the pages it goes on to write.
+ */
+public final class PagedMemory implements DataMemory {
+
+    /** Words in a page. */
+    public final static int PAGE_SIZE = 1024;
+
+    private final static int PAGE_BITS = 10;
+    private final static int PAGE_MASK = PAGE_SIZE - 1;
+    private final static int TABLE_BITS = 10;
+    private final static int TABLE_SIZE = 1 << TABLE_BITS;
+    private final static int TABLE_MASK = TABLE_SIZE - 1;
+
+    private final int mSize;
+    private final int mDirectory[][][];
+    // Per table, a bit per page this memory may write in place; null if
+    // the table itself is shared or missing
+    private long mOwned[][];
+    private int mPageCount;
+    private int mOwnedPageCount;
+    // Lookaside entries for the page read last and the page written last
+    private int mLastPageNumber = -1;
+    private int mLastPage[];
+    private int mLastWritePageNumber = -1;
+    private int mLastWritePage[];
+
+    /**
+     * Creates an empty memory.
+     * @param size number of addressable words
+     */
+    public PagedMemory(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Memory size must be positive");
+        }
+        mSize = size;
+        int tables = ((size - 1) >>> (PAGE_BITS + TABLE_BITS)) + 1;
+        mDirectory = new int[tables][][];
+        mOwned = new long[tables][];
+    }
+
+    /**
+     * Creates a fork sharing every page of another memory.
+     * @param parent the memory to fork
+     */
+    private PagedMemory(PagedMemory parent) {
+        mSize = parent.mSize;
+        mDirectory = parent.mDirectory.clone();
+        mOwned = new long[mDirectory.length][];
+        mPageCount = parent.mPageCount;
+    }
+
+    /**
+     * Returns the number of addressable words.
+     * @return the size
+     */
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the number of pages allocated so far, shared or not.
+     * @return the page count
+     */
+    public int getPageCount() {
+        return mPageCount;
+    }
+
+    /**
+     * Returns the number of pages this memory allocated or copied since
+     * it was created or last forked, which is what it costs on top of the
+     * pages it shares.
+     * @return the private page count
+     */
+    public int getPrivatePageCount() {
+        return mOwnedPageCount;
+    }
+
+    /**
+     * Reads a word.
+     * @param address the word address
+     * @return the word, 0 if it was never written
+     */
+    @Override
+    public int load(int address) {
+        if (address < 0 || address >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(address);
+        }
+        int pageNumber = address >>> PAGE_BITS;
+        if (pageNumber != mLastPageNumber) {
+            int page[] = findPage(pageNumber, false);
+            if (page == null) {
+                return 0;
+            }
+            mLastPageNumber = pageNumber;
+            mLastPage = page;
+        }
+        return mLastPage[address & PAGE_MASK];
+    }
+
+    /**
+     * Writes a word, allocating or copying its page on the first write.
+     * @param address the word address
+     * @param value the word
+     */
+    @Override
+    public void store(int address, int value) {
+        if (address < 0 || address >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(address);
+        }
+        int pageNumber = address >>> PAGE_BITS;
+        if (pageNumber != mLastWritePageNumber) {
+            mLastWritePage = findPage(pageNumber, true);
+            mLastWritePageNumber = pageNumber;
+            // A copy replaces the page the read lookaside may hold
+            mLastPageNumber = pageNumber;
+            mLastPage = mLastWritePage;
+        }
+        mLastWritePage[address & PAGE_MASK] = value;
+    }
+
+    /**
+     * Writes a run of words a page at a time.
+     * @param address the address of the first word
+     * @param words the words from the position to the limit, which the
+     *        buffer is advanced past
+     */
+    @Override
+    public void store(int address, IntBuffer words) {
+        int count = words.remaining();
+        if (address < 0 || count > mSize - address) {
+            throw new ArrayIndexOutOfBoundsException(address);
+        }
+        int end = address + count;
+        while (address < end) {
+            int offset = address & PAGE_MASK;
+            int n = Math.min(end - address, PAGE_SIZE - offset);
+            words.get(findPage(address >>> PAGE_BITS, true), offset, n);
+            address += n;
+        }
+        // The pages written may have been copied from the ones remembered
+        mLastPageNumber = -1;
+        mLastWritePageNumber = -1;
+    }
+
+    /**
+     * Returns a copy that shares all pages with this memory until one of
+     * the two writes them.
+     * @return the fork
+     */
+    @Override
+    public PagedMemory fork() {
+        PagedMemory child = new PagedMemory(this);
+        // Every page is shared now, so this memory has to copy before writing too
+        Arrays.fill(mOwned, null);
+        mOwnedPageCount = 0;
+        mLastWritePageNumber = -1;
+        mLastWritePage = null;
+        return child;
+    }
+
+    /**
+     * Returns a page for bulk access.
+     * @param pageNumber the address divided by PAGE_SIZE
+     * @param create true to get a page that may be written, allocating or
+     *        copying it if needed
+     * @return the page, or null if it is missing and create is false
+     */
+    int[] page(int pageNumber, boolean create) {
+        return findPage(pageNumber, create);
+    }
+
+    /**
+     * Drops every page, setting all of memory back to 0.
+     */
+    void clear() {
+        Arrays.fill(mDirectory, null);
+        Arrays.fill(mOwned, null);
+        mPageCount = 0;
+        mOwnedPageCount = 0;
+        mLastPageNumber = -1;
+        mLastPage = null;
+        mLastWritePageNumber = -1;
+        mLastWritePage = null;
+    }
+
+    /**
+     * Looks a page up in the two level table.
+     * @param pageNumber the address divided by PAGE_SIZE
+     * @param create true to return a page this memory owns, allocating or
+     *        copying the page and its table as needed
+     * @return the page, or null if it is missing and create is false
+     */
+    private int[] findPage(int pageNumber, boolean create) {
+        int directoryIndex = pageNumber >>> TABLE_BITS;
+        int table[][] = mDirectory[directoryIndex];
+        if (!create) {
+            return table == null ? null : table[pageNumber & TABLE_MASK];
+        }
+        long owned[] = mOwned[directoryIndex];
+        if (owned == null) {
+            table = table == null ? new int[TABLE_SIZE][] : table.clone();
+            mDirectory[directoryIndex] = table;
+            owned = new long[TABLE_SIZE / 64];
+            mOwned[directoryIndex] = owned;
+        }
+        int index = pageNumber & TABLE_MASK;
+        int page[] = table[index];
+        if ((owned[index >>> 6] & (1L << index)) == 0) {
+            if (page == null) {
+                page = new int[PAGE_SIZE];
+                mPageCount++;
+            } else {
+                page = page.clone();
+            }
+            table[index] = page;
+            owned[index >>> 6] |= 1L << index;
+            mOwnedPageCount++;
+        }
+        return page;
+    }
+}
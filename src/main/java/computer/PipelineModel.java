@@ -0,0 +1,290 @@
+package computer;
+
+import java.util.Arrays;
+
+/**
+ * Timing model of the classic five stage MIPS pipeline (IF, ID, EX, MEM,
+ * WB), filled in by a Computer that has it attached with
+ * setPipelineModel. Instructions still run through the normal handlers;
+ * after each one retires the model works out the cycle it entered EX,
+ * which fixes every other stage since the pipeline is in order and every
+ * stage takes one cycle.
+ *
+ * An instruction enters EX one cycle after the one before it unless a
+ * hazard holds it back:
+ * <ul>
+ * <li>Data hazards. With forwarding an ALU result can be used by the next
+ * instruction's EX and a lw result one cycle later, so a load followed
+ * by a use stalls one cycle. A sw forwards the value it stores into MEM.
+ * Without forwarding operands are read in ID, in the cycle the producer
+ * is in WB at the earliest.</li>
+ * <li>Control hazards. Fetch assumes branches are not taken. A taken beq
+ * flushes the instructions fetched behind it until it resolves, in ID
+ * or EX as configured. Resolving in ID needs its operands in ID, which
+ * can add data stalls. j and jr always redirect fetch from ID.</li>
+ * </ul>
+ * Each stall cycle is counted as a load-use, other data, branch or jump
+ * stall. The first instruction takes the four cycles of filling the
+ * pipeline, so a run of n instructions with no stalls takes n + 4 cycles.
+ */
+public final class PipelineModel {
+
+    /** The stage in which beq compares its operands and redirects fetch. */
+    public enum BranchResolution {
+        /** Resolve in ID: one cycle lost on a taken branch. */
+        ID,
+        /** Resolve in EX: two cycles lost on a taken branch. */
+        EX
+    }
+
+    private final static int REGISTERS = 32;
+
+    // Offsets of the stage an operand is needed in from EX
+    private final static int ID = -1;
+    private final static int EX = 0;
+    private final static int MEM = 1;
+
+    private final boolean mForwarding;
+    private final BranchResolution mBranchResolution;
+
+    // Cycle the last instruction entered EX
+    private long mLastEx;
+    // Earliest cycle the next instruction can enter EX after a redirect
+    private long mControlReady;
+    private boolean mControlIsBranch;
+    // Per register: earliest cycle a stage may use the value by forwarding,
+    // the cycle it is written back, and whether a lw produced it
+    private final long mForwarded[] = new long[REGISTERS];
+    private final long mWritten[] = new long[REGISTERS];
+    private final boolean mLoaded[] = new boolean[REGISTERS];
+    // Scratch for the operand check of the current instruction
+    private long mDataReady;
+    private boolean mDataFromLoad;
+
+    private long mInstructions;
+    private long mLoadUseStalls;
+    private long mDataStalls;
+    private long mBranchStalls;
+    private long mJumpStalls;
+
+    /**
+     * Creates a model with forwarding and branches resolved in ID.
+     */
+    public PipelineModel() {
+        this(true, BranchResolution.ID);
+    }
+
+    /**
+     * Creates a model.
+     * @param forwarding whether results are forwarded to later stages
+     * @param branchResolution the stage beq resolves in
+     */
+    public PipelineModel(boolean forwarding, BranchResolution branchResolution) {
+        if (branchResolution == null) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mForwarding = forwarding;
+        mBranchResolution = branchResolution;
+        reset();
+    }
+
+    /**
+     * Times one retired instruction.
+     * @param computer the computer, with its PC already past the instruction
+     * @param slot the instruction memory slot it was fetched from
+     */
+    void retire(Computer computer, int slot) {
+        int handler = computer.mDecHandler[slot];
+        int rs = computer.mDecRs[slot];
+        int rt = computer.mDecRt[slot];
+        long issue = mLastEx + 1;
+        long ex = Math.max(issue, mControlReady);
+        if (ex > issue) {
+            if (mControlIsBranch) {
+                mBranchStalls += ex - issue;
+            } else {
+                mJumpStalls += ex - issue;
+            }
+        }
+
+        mDataReady = ex;
+        mDataFromLoad = false;
+        switch (handler) {
+            case Computer.HANDLER_REG_ADD:
+            case Computer.HANDLER_REG_AND:
+                need(rs, EX);
+                need(rt, EX);
+                break;
+            case Computer.HANDLER_IMM_ADD:
+            case Computer.HANDLER_IMM_AND:
+            case Computer.HANDLER_LOAD_WORD:
+            case Computer.HANDLER_LOAD_LINKED:
+                need(rs, EX);
+                break;
+            case Computer.HANDLER_STORE_WORD:
+            case Computer.HANDLER_STORE_CONDITIONAL:
+                need(rs, EX);
+                need(rt, MEM);
+                break;
+            case Computer.HANDLER_BEQ:
+                int stage = mBranchResolution == BranchResolution.ID ? ID : EX;
+                need(rs, stage);
+                need(rt, stage);
+                break;
+            case Computer.HANDLER_JUMP_REGISTER:
+                need(rs, ID);
+                break;
+            default:
+                break;
+        }
+        if (mDataReady > ex) {
+            if (mDataFromLoad) {
+                mLoadUseStalls += mDataReady - ex;
+            } else {
+                mDataStalls += mDataReady - ex;
+            }
+            ex = mDataReady;
+        }
+        mLastEx = ex;
+        mInstructions++;
+
+        int dest = computer.mDecDest[slot];
+        if (dest != 0) {
+            // ll and sc get their result in MEM, like lw
+            boolean load = handler == Computer.HANDLER_LOAD_WORD
+                    || handler == Computer.HANDLER_LOAD_LINKED
+                    || handler == Computer.HANDLER_STORE_CONDITIONAL;
+            // An ALU result is there after EX, a loaded word after MEM
+            mForwarded[dest] = load ? ex + 2 : ex + 1;
+            mWritten[dest] = ex + 2;
+            mLoaded[dest] = load;
+        }
+        if (handler == Computer.HANDLER_BEQ && computer.mPC != slot * 4 + 4) {
+            // The target is fetched the cycle after the branch resolves
+            long resolved = mBranchResolution == BranchResolution.ID ? ex - 1 : ex;
+            mControlReady = resolved + 3;
+            mControlIsBranch = true;
+        } else if (handler == Computer.HANDLER_JUMP
+                || handler == Computer.HANDLER_JUMP_REGISTER) {
+            mControlReady = ex + 2;
+            mControlIsBranch = false;
+        }
+    }
+
+    /**
+     * Raises mDataReady to the first cycle the instruction can enter EX
+     * and still have a register in the stage it needs it.
+     * @param register the register read
+     * @param stage offset of that stage from EX
+     */
+    private void need(int register, int stage) {
+        if (register == 0) {
+            return;
+        }
+        long ready = mForwarding ? mForwarded[register] - stage : mWritten[register] + 1;
+        if (ready > mDataReady) {
+            mDataReady = ready;
+            mDataFromLoad = mLoaded[register];
+        }
+    }
+
+    /**
+     * Returns whether the model forwards results.
+     * @return true with forwarding
+     */
+    public boolean isForwarding() {
+        return mForwarding;
+    }
+
+    /**
+     * Returns the stage beq resolves in.
+     * @return the branch resolution stage
+     */
+    public BranchResolution getBranchResolution() {
+        return mBranchResolution;
+    }
+
+    /**
+     * Returns the number of instructions timed.
+     * @return the instruction count
+     */
+    public long getInstructions() {
+        return mInstructions;
+    }
+
+    /**
+     * Returns the cycles from the first fetch to the last write back.
+     * @return the cycle count, 0 before any instruction
+     */
+    public long getCycles() {
+        return mInstructions == 0 ? 0 : mLastEx + 2;
+    }
+
+    /**
+     * Returns the cycles per instruction.
+     * @return the CPI, 0 before any instruction
+     */
+    public double getCPI() {
+        return mInstructions == 0 ? 0 : (double) getCycles() / mInstructions;
+    }
+
+    /**
+     * Returns the stall cycles of instructions waiting on a lw just before.
+     * @return load-use stall cycles
+     */
+    public long getLoadUseStalls() {
+        return mLoadUseStalls;
+    }
+
+    /**
+     * Returns the stall cycles of instructions waiting on any other result.
+     * @return data stall cycles
+     */
+    public long getDataStalls() {
+        return mDataStalls;
+    }
+
+    /**
+     * Returns the cycles lost to taken branches.
+     * @return branch stall cycles
+     */
+    public long getBranchStalls() {
+        return mBranchStalls;
+    }
+
+    /**
+     * Returns the cycles lost to j and jr.
+     * @return jump stall cycles
+     */
+    public long getJumpStalls() {
+        return mJumpStalls;
+    }
+
+    /**
+     * Starts over at cycle 0 with an empty pipeline.
+     */
+    public void reset() {
+        // The first instruction is fetched in cycle 1 and enters EX in 3
+        mLastEx = 2;
+        mControlReady = 0;
+        Arrays.fill(mForwarded, 0);
+        Arrays.fill(mWritten, 0);
+        Arrays.fill(mLoaded, false);
+        mInstructions = 0;
+        mLoadUseStalls = 0;
+        mDataStalls = 0;
+        mBranchStalls = 0;
+        mJumpStalls = 0;
+    }
+
+    /**
+     * Returns the counters on one line.
+     * @return a summary such as "cycles=... CPI=..."
+     */
+    @Override
+    public String toString() {
+        return String.format("instructions=%d cycles=%d CPI=%.3f load-use=%d data=%d"
+                + " branch=%d jump=%d", mInstructions, getCycles(), getCPI(),
+                mLoadUseStalls, mDataStalls, mBranchStalls, mJumpStalls);
+    }
+}
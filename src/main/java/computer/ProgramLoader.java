@@ -0,0 +1,302 @@
+package computer;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ProgramLoader fills a Computer from a program image file, mapping the
+ * file into memory and copying each segment into instruction or data
+ * memory in bulk. Words outside the segments are left as they are.
+ *
+ * A binary image is big-endian words. It may start with a header: MAGIC,
+ * VERSION, the first instruction slot and number of words of the text
+ * segment, the first address and number of words of the data segment, and
+ * a mask with a bit per register set before the run. The header is
+ * followed by the value of every register in the mask, lowest first, then
+ * the text words and then the data words. A binary without the header is
+ * all instructions, loaded from slot 0.
+ *
+ * A hex image is text holding one hex word per token, with # starting a
+ * comment. ".text n" and ".data n" switch the segment the following words
+ * go to and set the slot or address of the next one; words before either
+ * go to the text segment from slot 0. ".reg n value" sets a register.
+ *
+ * Either way the PC is set to the first instruction loaded, or to 0 if
+ * there is none.
+ */
+public final class ProgramLoader {
+
+    /** "MIPS", the first four bytes of a binary image with a header. */
+    public final static int MAGIC = 0x4D495053;
+    /** Version of the binary header. */
+    public final static int VERSION = 1;
+
+    private final static int HEADER_INTS = 7;
+
+    private ProgramLoader() {
+    }
+
+    /**
+     * Loads a hex image if the file name ends with .hex and a binary image
+     * otherwise.
+     * @param file the image
+     * @param computer the computer to fill
+     * @return the number of instruction words loaded
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static int load(Path file, Computer computer) throws IOException {
+        if (file.getFileName().toString().endsWith(".hex")) {
+            return loadHex(file, computer);
+        }
+        return loadBinary(file, computer);
+    }
+
+    /**
+     * Loads a binary image.
+     * @param file the image, with or without a header
+     * @param computer the computer to fill
+     * @return the number of instruction words loaded
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static int loadBinary(Path file, Computer computer) throws IOException {
+        MappedByteBuffer bytes = map(file);
+        if (bytes.limit() % 4 != 0) {
+            throw new IOException("Binary image is not a whole number of words");
+        }
+        IntBuffer words = bytes.asIntBuffer();
+        if (!words.hasRemaining() || words.get(0) != MAGIC) {
+            computer.loadInstr(0, words);
+            computer.mPC = 0;
+            return bytes.limit() / 4;
+        }
+        if (words.remaining() < HEADER_INTS || words.get(1) != VERSION) {
+            throw new IOException("Unsupported binary image header");
+        }
+        int textBase = words.get(2);
+        int textCount = words.get(3);
+        int dataBase = words.get(4);
+        int dataCount = words.get(5);
+        int mask = words.get(6);
+        int registers = Integer.bitCount(mask);
+        if (textCount < 0 || dataCount < 0 || (mask & 1) != 0
+                || (long) HEADER_INTS + registers + textCount + dataCount != words.remaining()) {
+            throw new IOException("Binary image header does not match its length");
+        }
+        checkSegment("Text", textBase, textCount, computer.getInstrMemorySize());
+        checkSegment("Data", dataBase, dataCount, computer.getDataMemorySize());
+        words.position(HEADER_INTS);
+        for (int register = 1; register < 32; register++) {
+            if ((mask & (1 << register)) != 0) {
+                computer.mRegisters[register] = words.get();
+            }
+        }
+        computer.loadInstr(textBase, words.slice().limit(textCount));
+        words.position(words.position() + textCount);
+        computer.mMemory.store(dataBase, words.slice().limit(dataCount));
+        computer.mPC = textBase * 4;
+        return textCount;
+    }
+
+    /**
+     * Loads a hex image.
+     * @param file the image
+     * @param computer the computer to fill
+     * @return the number of instruction words loaded
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public static int loadHex(Path file, Computer computer) throws IOException {
+        return new HexParser(map(file), computer).parse();
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Image is larger than 2 GB");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void checkSegment(String name, int base, int count, int size) {
+        if (base < 0 || count > size - base) {
+            throw new IllegalArgumentException(name + " segment does not fit in memory");
+        }
+    }
+
+    /**
+     * Reads a hex image token by token straight from the mapped bytes,
+     * collecting runs of words and storing each run in bulk when the
+     * segment changes.
+     */
+    private static final class HexParser {
+        private final MappedByteBuffer mBytes;
+        private final Computer mComputer;
+        private int mPos;
+        private int mLine = 1;
+        private int mTokenStart;
+        private boolean mData;
+        private int mAddress;
+        private int mRun[] = new int[1024];
+        private int mRunLength;
+        private int mTextWords;
+        private boolean mEntrySet;
+
+        HexParser(MappedByteBuffer bytes, Computer computer) {
+            mBytes = bytes;
+            mComputer = computer;
+        }
+
+        int parse() throws IOException {
+            while (nextToken()) {
+                if (mBytes.get(mTokenStart) != '.') {
+                    if (mRunLength == mRun.length) {
+                        mRun = Arrays.copyOf(mRun, mRunLength * 2);
+                    }
+                    mRun[mRunLength++] = hexWord();
+                    continue;
+                }
+                String directive = token();
+                if (directive.equals(".text") || directive.equals(".data")) {
+                    flush();
+                    mData = directive.equals(".data");
+                    mAddress = number();
+                } else if (directive.equals(".reg")) {
+                    int register = register();
+                    mComputer.mRegisters[register] = number();
+                } else {
+                    throw error("unknown directive " + directive);
+                }
+            }
+            flush();
+            if (!mEntrySet) {
+                mComputer.mPC = 0;
+            }
+            return mTextWords;
+        }
+
+        /**
+         * Stores the words collected since the last segment change.
+         */
+        private void flush() {
+            if (mData) {
+                checkSegment("Data", mAddress, mRunLength, mComputer.getDataMemorySize());
+                mComputer.mMemory.store(mAddress, IntBuffer.wrap(mRun, 0, mRunLength));
+            } else {
+                checkSegment("Text", mAddress, mRunLength, mComputer.getInstrMemorySize());
+                mComputer.loadInstr(mAddress, IntBuffer.wrap(mRun, 0, mRunLength));
+                if (!mEntrySet && mRunLength > 0) {
+                    mComputer.mPC = mAddress * 4;
+                    mEntrySet = true;
+                }
+                mTextWords += mRunLength;
+            }
+            mAddress += mRunLength;
+            mRunLength = 0;
+        }
+
+        /**
+         * Skips blanks and comments to the next token.
+         * @return false at the end of the file
+         */
+        private boolean nextToken() {
+            int limit = mBytes.limit();
+            while (mPos < limit) {
+                byte b = mBytes.get(mPos);
+                if (b == '#') {
+                    while (mPos < limit && mBytes.get(mPos) != '\n') {
+                        mPos++;
+                    }
+                } else if (b == '\n') {
+                    mLine++;
+                    mPos++;
+                } else if (b == ' ' || b == '\t' || b == '\r' || b == ',') {
+                    mPos++;
+                } else {
+                    break;
+                }
+            }
+            mTokenStart = mPos;
+            while (mPos < limit) {
+                byte b = mBytes.get(mPos);
+                if (b == '#' || b == '\n' || b == ' ' || b == '\t' || b == '\r' || b == ',') {
+                    break;
+                }
+                mPos++;
+            }
+            return mPos > mTokenStart;
+        }
+
+        private String token() {
+            byte text[] = new byte[mPos - mTokenStart];
+            mBytes.get(mTokenStart, text);
+            return new String(text, StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * Parses the current token as a word of up to eight hex digits.
+         */
+        private int hexWord() throws IOException {
+            int start = mTokenStart;
+            if (mPos - start > 2 && mBytes.get(start) == '0'
+                    && (mBytes.get(start + 1) | 0x20) == 'x') {
+                start += 2;
+            }
+            if (mPos - start > 8) {
+                throw error("word " + token() + " is longer than 32 bits");
+            }
+            int word = 0;
+            for (int i = start; i < mPos; i++) {
+                int digit = Character.digit(mBytes.get(i), 16);
+                if (digit < 0) {
+                    throw error("bad hex word " + token());
+                }
+                word = (word << 4) | digit;
+            }
+            return word;
+        }
+
+        /**
+         * Parses the next token as a decimal or 0x prefixed number.
+         */
+        private int number() throws IOException {
+            if (!nextToken()) {
+                throw error("number expected");
+            }
+            String token = token();
+            try {
+                if (token.startsWith("0x") || token.startsWith("0X")) {
+                    return Integer.parseUnsignedInt(token.substring(2), 16);
+                }
+                return Integer.parseInt(token);
+            } catch (NumberFormatException e) {
+                throw error("bad number " + token);
+            }
+        }
+
+        private int register() throws IOException {
+            if (nextToken() && mBytes.get(mTokenStart) == '$') {
+                mTokenStart++;
+            }
+            String token = token();
+            try {
+                int register = Integer.parseInt(token);
+                if (register > 0 && register < 32) {
+                    return register;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw error("bad register " + token);
+        }
+
+        private IOException error(String message) {
+            return new IOException("Line " + mLine + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package computer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.IntBuffer;
+
+/**
+ * SharedMemory is a data memory that several Computers running on their
+ * own threads can use at once, as the cores of a MultiCore do. It takes no
+ * locks: loads are acquire reads and stores release writes of the word,
+ * so a core that loads a flag another core stored also sees every store
+ * that core made before it, and compareAndSet, which sc uses, is atomic.
+ *
+ * The memory is one flat int array, so unlike PagedMemory it costs its
+ * full size up front and cannot fork.
+ */
+public final class SharedMemory implements DataMemory {
+
+    private final static VarHandle WORD = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int mWords[];
+
+    /**
+     * Creates a memory with every word 0.
+     * @param size number of addressable words
+     */
+    public SharedMemory(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Memory size must be positive");
+        }
+        mWords = new int[size];
+    }
+
+    @Override
+    public int size() {
+        return mWords.length;
+    }
+
+    @Override
+    public int load(int address) {
+        return (int) WORD.getAcquire(mWords, address);
+    }
+
+    @Override
+    public void store(int address, int value) {
+        WORD.setRelease(mWords, address, value);
+    }
+
+    @Override
+    public boolean compareAndSet(int address, int expected, int value) {
+        return WORD.compareAndSet(mWords, address, expected, value);
+    }
+
+    /**
+     * Copies a run of words straight into the array, then fences so that a
+     * core that loads any word stored after them sees them too.
+     */
+    @Override
+    public void store(int address, IntBuffer words) {
+        int count = words.remaining();
+        if (address < 0 || count > mWords.length - address) {
+            throw new ArrayIndexOutOfBoundsException(address);
+        }
+        words.get(mWords, address, count);
+        VarHandle.releaseFence();
+    }
+}
@@ -0,0 +1,265 @@
+package computer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * StateRenderer prints the state of a Computer in the layout of
+ * Computer.display: PC and IR, the registers, then a window of
+ * instruction and data memory, three words to a line. Everything is
+ * formatted into one reusable byte buffer and written to the stream in a
+ * single call.
+ *
+ * render prints the whole state and keeps a shadow copy of it.
+ * renderChanges compares the computer with the shadow, marks every
+ * register and memory word that differs in a BitSet and prints only
+ * those, under the same headings, before updating the shadow.
+ */
+public final class StateRenderer {
+
+    private final static int REGISTERS = 32;
+    private final static byte NEWLINE[] = System.lineSeparator().getBytes();
+
+    private final OutputStream mOut;
+    private byte mBuffer[] = new byte[8192];
+    private int mLength;
+
+    // State as of the last render
+    private boolean mRendered;
+    private int mPC;
+    private int mIR;
+    private final int mRegisters[] = new int[REGISTERS];
+    private int mInstr[] = new int[0];
+    private int mData[] = new int[0];
+    private final BitSet mDirtyRegisters = new BitSet(REGISTERS);
+    private final BitSet mDirtyInstr = new BitSet();
+    private final BitSet mDirtyData = new BitSet();
+
+    /**
+     * Creates a renderer.
+     * @param out the stream to write to, for example System.out
+     */
+    public StateRenderer(OutputStream out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mOut = out;
+    }
+
+    /**
+     * Prints the whole state of a computer.
+     * @param computer the computer
+     * @param maxInstr number of instruction memory slots to print
+     * @param maxData number of data memory words to print
+     */
+    public void render(Computer computer, int maxInstr, int maxData) {
+        if (maxInstr < 0 || maxInstr > computer.getInstrMemorySize()
+                || maxData < 0 || maxData > computer.getDataMemorySize()) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mPC = computer.mPC;
+        mIR = computer.mIR;
+        System.arraycopy(computer.mRegisters, 0, mRegisters, 0, REGISTERS);
+        if (mInstr.length != maxInstr) {
+            mInstr = new int[maxInstr];
+        }
+        System.arraycopy(computer.mInstrMemory, 0, mInstr, 0, maxInstr);
+        if (mData.length != maxData) {
+            mData = new int[maxData];
+        }
+        for (int i = 0; i < maxData; i++) {
+            mData[i] = computer.mMemory.load(i);
+        }
+        mRendered = true;
+
+        mLength = 0;
+        putNewline();
+        putHeader(true, true);
+        mDirtyRegisters.set(0, REGISTERS);
+        mDirtyInstr.set(0, maxInstr);
+        mDirtyData.set(0, maxData);
+        putSections(true);
+        flush();
+    }
+
+    /**
+     * Prints what changed since the last render, in the same windows. PC
+     * and IR are printed if either changed, and each section only if some
+     * word in it changed.
+     * @param computer the computer
+     * @return the number of registers and memory words printed
+     */
+    public int renderChanges(Computer computer) {
+        if (!mRendered) {
+            throw new IllegalStateException("Nothing rendered yet");
+        }
+        boolean pcChanged = computer.mPC != mPC;
+        boolean irChanged = computer.mIR != mIR;
+        mPC = computer.mPC;
+        mIR = computer.mIR;
+        mDirtyRegisters.clear();
+        for (int i = 0; i < REGISTERS; i++) {
+            if (computer.mRegisters[i] != mRegisters[i]) {
+                mRegisters[i] = computer.mRegisters[i];
+                mDirtyRegisters.set(i);
+            }
+        }
+        mDirtyInstr.clear();
+        for (int i = 0; i < mInstr.length; i++) {
+            if (computer.mInstrMemory[i] != mInstr[i]) {
+                mInstr[i] = computer.mInstrMemory[i];
+                mDirtyInstr.set(i);
+            }
+        }
+        mDirtyData.clear();
+        for (int i = 0; i < mData.length; i++) {
+            int word = computer.mMemory.load(i);
+            if (word != mData[i]) {
+                mData[i] = word;
+                mDirtyData.set(i);
+            }
+        }
+
+        mLength = 0;
+        if (pcChanged || irChanged) {
+            putHeader(pcChanged, irChanged);
+        }
+        putSections(false);
+        flush();
+        return mDirtyRegisters.cardinality() + mDirtyInstr.cardinality()
+                + mDirtyData.cardinality();
+    }
+
+    private void putHeader(boolean pc, boolean ir) {
+        if (pc) {
+            put("PC ");
+            putBits(mPC);
+            put("   ");
+        }
+        if (ir) {
+            put("IR ");
+            putBits(mIR);
+            put("   ");
+        }
+        putNewline();
+        putNewline();
+    }
+
+    /**
+     * Formats the dirty words of every section.
+     * @param all true to print the heading of sections with no dirty words
+     */
+    private void putSections(boolean all) {
+        putSection("Registers: ", "R", 0, mDirtyRegisters, mRegisters, all);
+        putSection("Instruction Memory: ", "IM", 3, mDirtyInstr, mInstr, all);
+        putSection("Data Memory: ", "DM", 5, mDirtyData, mData, all);
+    }
+
+    /**
+     * Formats the dirty words of one section under its heading.
+     * @param heading the heading line
+     * @param prefix put before the index of each word
+     * @param width the index is right aligned in
+     * @param dirty the indexes to print
+     * @param words the words of the section
+     * @param all true to print the heading even with no dirty words
+     */
+    private void putSection(String heading, String prefix, int width, BitSet dirty,
+            int words[], boolean all) {
+        if (!all && dirty.isEmpty()) {
+            return;
+        }
+        put(heading);
+        putNewline();
+        int column = 0;
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            put(prefix);
+            putNumber(i, width);
+            put(" ");
+            putBits(words[i]);
+            column = endCell(column);
+        }
+        putNewline();
+        putNewline();
+    }
+
+    /**
+     * Ends a cell, three to a line.
+     * @return the column of the next cell
+     */
+    private int endCell(int column) {
+        if (column == 2) {
+            putNewline();
+            return 0;
+        }
+        put("   ");
+        return column + 1;
+    }
+
+    /**
+     * Writes the buffer to the stream in one call.
+     */
+    private void flush() {
+        try {
+            mOut.write(mBuffer, 0, mLength);
+            mOut.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void room(int bytes) {
+        if (mLength + bytes > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mLength + bytes));
+        }
+    }
+
+    private void put(String ascii) {
+        room(ascii.length());
+        for (int i = 0; i < ascii.length(); i++) {
+            mBuffer[mLength++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void putNewline() {
+        room(NEWLINE.length);
+        System.arraycopy(NEWLINE, 0, mBuffer, mLength, NEWLINE.length);
+        mLength += NEWLINE.length;
+    }
+
+    /**
+     * Formats a word as 32 bits in groups of four, like BitString.display.
+     */
+    private void putBits(int word) {
+        room(39);
+        for (int i = 31; i >= 0; i--) {
+            mBuffer[mLength++] = (byte) ('0' + ((word >>> i) & 1));
+            if (i % 4 == 0 && i != 0) {
+                mBuffer[mLength++] = ' ';
+            }
+        }
+    }
+
+    /**
+     * Formats a non-negative number right aligned in a field, like %nd.
+     */
+    private void putNumber(int n, int width) {
+        int digits = 1;
+        for (int rest = n / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        room(Math.max(width, digits));
+        for (int i = digits; i < width; i++) {
+            mBuffer[mLength++] = ' ';
+        }
+        int end = mLength + digits;
+        for (int i = end - 1; i >= mLength; i--) {
+            mBuffer[i] = (byte) ('0' + n % 10);
+            n /= 10;
+        }
+        mLength = end;
+    }
+}
@@ -0,0 +1,31 @@
+package computer;
+
+/**
+ * Predictors that always give the same answer for a branch and learn
+ * nothing.
+ */
+public enum StaticPredictor implements BranchPredictor {
+
+    /** Predicts every branch not taken. */
+    NOT_TAKEN,
+    /** Predicts backward branches, usually loops, taken and forward ones not. */
+    BACKWARD_TAKEN;
+
+    @Override
+    public boolean predict(int pc, int target) {
+        return this == BACKWARD_TAKEN && target <= pc;
+    }
+
+    @Override
+    public void update(int pc, int target, boolean taken) {
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public String getName() {
+        return this == NOT_TAKEN ? "not-taken" : "backward-taken";
+    }
+}
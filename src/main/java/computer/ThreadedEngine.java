@@ -0,0 +1,447 @@
+package computer;
+
+/**
+ * ThreadedEngine turns the program in instruction memory into a chain of
+ * nodes, one per instruction, with the decoded operands held in final int
+ * fields. Each node runs its instruction and returns the node to run next,
+ * so the fetch/decode/dispatch work of the interpreter is done once when the
+ * chain is built. beq and j link straight to their target node; jr looks
+ * its target up in the node table.
+ *
+ * Unlike JitEngine no classes are defined at runtime. The nodes call the
+ * same checked Computer methods as the interpreter handlers, and every node
+ * that can trap (including and/andi writing $0) stores the PC and IR first,
+ * so traps are identical. With a flight recorder attached execute records
+ * every node once it has run.
+ */
+final class ThreadedEngine {
+
+    private final Computer mComputer;
+    private final Node mNodes[];
+    private boolean mStale = true;
+
+    /**
+     * Creates an engine for a computer.
+     * @param computer the computer to run
+     */
+    ThreadedEngine(Computer computer) {
+        mComputer = computer;
+        mNodes = new Node[computer.getInstrMemorySize()];
+    }
+
+    /**
+     * Runs the computer until a syscall.
+     * @return the status that stopped execution
+     */
+    int execute() {
+        Computer computer = mComputer;
+        if (mStale) {
+            build();
+        }
+        computer.mStatus = Computer.STATUS_RUNNING;
+        int registers[] = computer.mRegisters;
+        Node node = nodeAt(computer.mPC);
+        FlightRecorder recorder = computer.getFlightRecorder();
+        if (recorder == null) {
+            while (node != null) {
+                node = node.run(computer, registers);
+            }
+        } else {
+            // Like Computer.executeRecorded, with the position in a local
+            long entries[] = recorder.mEntries;
+            int mask = recorder.mMask;
+            long recorded = recorder.mRecorded;
+            try {
+                while (node != null) {
+                    Node retired = node;
+                    node = node.run(computer, registers);
+                    int base = ((int) recorded & mask) * FlightRecorder.ENTRY;
+                    recorded++;
+                    entries[base] = retired.mFetch;
+                    entries[base + 1] = FlightRecorder.pack(retired.mDest, registers[retired.mDest]);
+                }
+            } finally {
+                recorder.mRecorded = recorded;
+            }
+        }
+        computer.mStatus = Computer.STATUS_HALTED;
+        return computer.mStatus;
+    }
+
+    /**
+     * Marks the chain out of date after instruction memory changed.
+     * @param slot the instruction memory slot that changed
+     */
+    void invalidate(int slot) {
+        mStale = true;
+    }
+
+    /**
+     * Returns the node for a PC, or a node that fails the fetch the way
+     * the interpreter does if there is no instruction there.
+     * @param pc the PC
+     * @return the node to run
+     */
+    Node nodeAt(int pc) {
+        int slot = pc / 4;
+        if (pc < 0 || slot >= mNodes.length) {
+            return new FetchFault(pc);
+        }
+        return mNodes[slot];
+    }
+
+    /**
+     * Creates a node for every slot and then links them together.
+     */
+    private void build() {
+        Computer computer = mComputer;
+        for (int slot = 0; slot < mNodes.length; slot++) {
+            int pc4 = slot * 4 + 4;
+            int word = computer.mInstrMemory[slot];
+            int rs = computer.mDecRs[slot];
+            int rt = computer.mDecRt[slot];
+            int rd = computer.mDecRd[slot];
+            int imm = computer.mDecImm[slot];
+            Node node;
+            switch (computer.mDecHandler[slot]) {
+                case Computer.HANDLER_REG_ADD:
+                    node = new RegAdd(pc4, word, rd, rs, rt);
+                    break;
+                case Computer.HANDLER_REG_AND:
+                    node = new RegAnd(pc4, word, rd, rs, rt);
+                    break;
+                case Computer.HANDLER_IMM_ADD:
+                    node = new ImmAdd(pc4, word, rt, rs, imm);
+                    break;
+                case Computer.HANDLER_IMM_AND:
+                    node = new ImmAnd(pc4, word, rt, rs, imm);
+                    break;
+                case Computer.HANDLER_LOAD_WORD:
+                    node = new LoadWord(pc4, word, rt, rs, imm);
+                    break;
+                case Computer.HANDLER_STORE_WORD:
+                    node = new StoreWord(pc4, word, rt, rs, imm);
+                    break;
+                case Computer.HANDLER_LOAD_LINKED:
+                    node = new LoadLinked(pc4, word, rt, rs, imm);
+                    break;
+                case Computer.HANDLER_STORE_CONDITIONAL:
+                    node = new StoreConditional(pc4, word, rt, rs, imm);
+                    break;
+                case Computer.HANDLER_BEQ:
+                    node = new BranchEqual(pc4, word, rs, rt, imm);
+                    break;
+                case Computer.HANDLER_JUMP:
+                    node = new Jump(pc4, word, computer.mDecTarget[slot]);
+                    break;
+                case Computer.HANDLER_JUMP_REGISTER:
+                    node = new JumpRegister(pc4, word, rs, this);
+                    break;
+                case Computer.HANDLER_SYSCALL:
+                    node = new Syscall(pc4, word);
+                    break;
+                default:
+                    node = new Node();
+                    break;
+            }
+            node.mFetch = FlightRecorder.pack(slot * 4, word);
+            node.mDest = computer.mDecDest[slot];
+            mNodes[slot] = node;
+        }
+        for (int slot = 0; slot < mNodes.length; slot++) {
+            Node node = mNodes[slot];
+            node.mNext = nodeAt(slot * 4 + 4);
+            if (node instanceof BranchEqual) {
+                BranchEqual branch = (BranchEqual) node;
+                node.mTarget = nodeAt(branch.mPc4 + branch.mImm * 4);
+            } else if (node instanceof Jump) {
+                Jump jump = (Jump) node;
+                node.mTarget = nodeAt((jump.mPc4 & 0xF0000000) | jump.mAddress);
+            }
+        }
+        mStale = false;
+    }
+
+    /**
+     * One instruction of the chain. The base class is a no-op for
+     * instructions the computer does not implement.
+     */
+    static class Node {
+        Node mNext;
+        Node mTarget;
+        // PC and word packed as the flight recorder keeps them, and the
+        // register the instruction writes
+        long mFetch;
+        int mDest;
+
+        /**
+         * Runs the instruction.
+         * @param computer the computer to run on
+         * @param registers its register file
+         * @return the next node, or null after a syscall
+         */
+        Node run(Computer computer, int registers[]) {
+            return mNext;
+        }
+
+        /** Writes a register, going through writeRegister for $0 so it faults. */
+        static void write(Computer computer, int registers[], int register, int value) {
+            if (register == 0) {
+                computer.writeRegister(0, value);
+            } else {
+                registers[register] = value;
+            }
+        }
+    }
+
+    /** A node whose instruction can trap and so stores the PC and IR first. */
+    abstract static class TrappingNode extends Node {
+        final int mPc4;
+        final int mWord;
+
+        TrappingNode(int pc4, int word) {
+            mPc4 = pc4;
+            mWord = word;
+        }
+
+        final void storeFetchState(Computer computer) {
+            computer.mPC = mPc4;
+            computer.mIR = mWord;
+        }
+    }
+
+    static final class RegAdd extends TrappingNode {
+        private final int mRd, mRs, mRt;
+
+        RegAdd(int pc4, int word, int rd, int rs, int rt) {
+            super(pc4, word);
+            mRd = rd;
+            mRs = rs;
+            mRt = rt;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            storeFetchState(computer);
+            write(computer, registers, mRd, computer.addRegisters(registers[mRs], registers[mRt]));
+            return mNext;
+        }
+    }
+
+    /** Can only trap by writing $0. */
+    static final class RegAnd extends TrappingNode {
+        private final int mRd, mRs, mRt;
+
+        RegAnd(int pc4, int word, int rd, int rs, int rt) {
+            super(pc4, word);
+            mRd = rd;
+            mRs = rs;
+            mRt = rt;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            if (mRd == 0) {
+                storeFetchState(computer);
+            }
+            write(computer, registers, mRd, registers[mRs] & registers[mRt]);
+            return mNext;
+        }
+    }
+
+    static final class ImmAdd extends TrappingNode {
+        private final int mRt, mRs, mImm;
+
+        ImmAdd(int pc4, int word, int rt, int rs, int imm) {
+            super(pc4, word);
+            mRt = rt;
+            mRs = rs;
+            mImm = imm;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            storeFetchState(computer);
+            write(computer, registers, mRt, computer.addImmediate(registers[mRs], mImm));
+            return mNext;
+        }
+    }
+
+    /** Can only trap by writing $0. */
+    static final class ImmAnd extends TrappingNode {
+        private final int mRt, mRs, mImm;
+
+        ImmAnd(int pc4, int word, int rt, int rs, int imm) {
+            super(pc4, word);
+            mRt = rt;
+            mRs = rs;
+            mImm = imm;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            if (mRt == 0) {
+                storeFetchState(computer);
+            }
+            write(computer, registers, mRt, registers[mRs] & mImm);
+            return mNext;
+        }
+    }
+
+    static final class LoadWord extends TrappingNode {
+        private final int mRt, mRs, mImm;
+
+        LoadWord(int pc4, int word, int rt, int rs, int imm) {
+            super(pc4, word);
+            mRt = rt;
+            mRs = rs;
+            mImm = imm;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            storeFetchState(computer);
+            write(computer, registers, mRt, computer.loadWord(registers[mRs], mImm));
+            return mNext;
+        }
+    }
+
+    static final class StoreWord extends TrappingNode {
+        private final int mRt, mRs, mImm;
+
+        StoreWord(int pc4, int word, int rt, int rs, int imm) {
+            super(pc4, word);
+            mRt = rt;
+            mRs = rs;
+            mImm = imm;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            storeFetchState(computer);
+            computer.storeWord(registers[mRs], mImm, registers[mRt]);
+            return mNext;
+        }
+    }
+
+    static final class LoadLinked extends TrappingNode {
+        private final int mRt, mRs, mImm;
+
+        LoadLinked(int pc4, int word, int rt, int rs, int imm) {
+            super(pc4, word);
+            mRt = rt;
+            mRs = rs;
+            mImm = imm;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            storeFetchState(computer);
+            write(computer, registers, mRt, computer.loadLinked(registers[mRs], mImm));
+            return mNext;
+        }
+    }
+
+    static final class StoreConditional extends TrappingNode {
+        private final int mRt, mRs, mImm;
+
+        StoreConditional(int pc4, int word, int rt, int rs, int imm) {
+            super(pc4, word);
+            mRt = rt;
+            mRs = rs;
+            mImm = imm;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            storeFetchState(computer);
+            write(computer, registers, mRt,
+                    computer.storeConditional(registers[mRs], mImm, registers[mRt]));
+            return mNext;
+        }
+    }
+
+    static final class BranchEqual extends TrappingNode {
+        private final int mRs, mRt;
+        final int mImm;
+
+        BranchEqual(int pc4, int word, int rs, int rt, int imm) {
+            super(pc4, word);
+            mRs = rs;
+            mRt = rt;
+            mImm = imm;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            storeFetchState(computer);
+            int pc = computer.branchIfEqual(mPc4, registers[mRs], registers[mRt], mImm);
+            computer.mPC = pc;
+            return pc == mPc4 ? mNext : mTarget;
+        }
+    }
+
+    static final class Jump extends TrappingNode {
+        final int mAddress;
+
+        Jump(int pc4, int word, int address) {
+            super(pc4, word);
+            mAddress = address;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            storeFetchState(computer);
+            computer.mPC = computer.jumpTarget(mPc4, mAddress);
+            return mTarget;
+        }
+    }
+
+    static final class JumpRegister extends TrappingNode {
+        private final int mRs;
+        private final ThreadedEngine mEngine;
+
+        JumpRegister(int pc4, int word, int rs, ThreadedEngine engine) {
+            super(pc4, word);
+            mRs = rs;
+            mEngine = engine;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            storeFetchState(computer);
+            computer.mPC = computer.jumpRegisterTarget(registers[mRs]);
+            return mEngine.nodeAt(computer.mPC);
+        }
+    }
+
+    static final class Syscall extends TrappingNode {
+
+        Syscall(int pc4, int word) {
+            super(pc4, word);
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            storeFetchState(computer);
+            return null;
+        }
+    }
+
+    /** Stands in for a PC outside instruction memory. */
+    static final class FetchFault extends Node {
+        private final int mPc;
+
+        FetchFault(int pc) {
+            mPc = pc;
+        }
+
+        @Override
+        Node run(Computer computer, int registers[]) {
+            // The interpreter throws on this fetch
+            computer.mPC = mPc;
+            computer.executeNext();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package computer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * TraceReplayer reads a trace written by TraceWriter and checks a fresh
+ * Computer against it. The computer has to be loaded with the same program
+ * and data memory as the traced one; the replayer checks its PC and
+ * registers against the trace header and then steps it once per record.
+ * After every step the PC, all 32 registers and any memory write must
+ * match the trace. A traced trap is checked by stepping a computer in trap
+ * mode with the same exception vector into it.
+ */
+public final class TraceReplayer {
+
+    private final Path mFile;
+
+    /**
+     * Creates a replayer for a trace file.
+     * @param file the trace file
+     */
+    public TraceReplayer(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        mFile = file;
+    }
+
+    /**
+     * Replays the whole trace on a computer.
+     * @param computer a computer in the state the traced one started in
+     * @return the number of instructions checked
+     * @throws IOException if the file cannot be read or is not a trace
+     * @throws IllegalStateException at the first step where the computer
+     *         and the trace disagree
+     */
+    public long verify(Computer computer) throws IOException {
+        try (FileChannel channel = FileChannel.open(mFile, StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, ByteBuffer.allocate(TraceWriter.HEADER_BYTES));
+            if (header == null || header.getInt() != TraceWriter.MAGIC) {
+                throw new IOException("Not a trace file");
+            }
+            if (header.getInt() != TraceWriter.VERSION) {
+                throw new IOException("Unsupported trace version");
+            }
+            int registers[] = new int[32];
+            int pc = header.getInt();
+            for (int i = 0; i < registers.length; i++) {
+                registers[i] = header.getInt();
+            }
+            long step = 0;
+            check(computer, step, pc, registers);
+
+            ByteBuffer blockHeader = ByteBuffer.allocate(TraceWriter.BLOCK_HEADER_BYTES);
+            ByteBuffer payload = ByteBuffer.allocate(TraceWriter.DEFAULT_BUFFER_SIZE);
+            while (read(channel, blockHeader.clear()) != null) {
+                int length = blockHeader.getInt();
+                int records = blockHeader.getInt();
+                pc = blockHeader.getInt();
+                if (length > payload.capacity()) {
+                    payload = ByteBuffer.allocate(length);
+                }
+                payload.clear().limit(length);
+                if (read(channel, payload) == null) {
+                    throw new EOFException("Trace ends inside a block");
+                }
+                for (int i = 0; i < records; i++) {
+                    int tag = getVarint(payload);
+                    pc += unzigzag(tag >>> TraceWriter.FLAG_BITS) << 2;
+                    if (computer.mPC != pc) {
+                        throw mismatch(step, "PC is " + computer.mPC + ", trace has " + pc);
+                    }
+                    if ((tag & TraceWriter.TRAP) != 0) {
+                        int cause = getVarint(payload);
+                        computer.step();
+                        step++;
+                        registers[Computer.EPC_REGISTER] = pc;
+                        registers[Computer.CAUSE_REGISTER] = cause;
+                        pc = getVarint(payload);
+                        check(computer, step, pc, registers);
+                        continue;
+                    }
+                    int handler = computer.mDecHandler[pc / 4];
+                    computer.step();
+                    step++;
+                    if ((tag & TraceWriter.REG_WRITE) != 0) {
+                        int dest = payload.get() & 0xFF;
+                        registers[dest] = unzigzag(getVarint(payload));
+                    }
+                    boolean store = handler == Computer.HANDLER_STORE_WORD
+                            || (handler == Computer.HANDLER_STORE_CONDITIONAL
+                            && computer.mRegisters[computer.mDecRt[pc / 4]] == 1);
+                    if (((tag & TraceWriter.MEM_WRITE) != 0) != store) {
+                        throw mismatch(step, "memory write at PC " + pc
+                                + (store ? " is not in the trace" : " did not happen"));
+                    }
+                    if (store) {
+                        int address = getVarint(payload);
+                        int value = unzigzag(getVarint(payload));
+                        int actual = computer.loadWord(address, 0);
+                        if (actual != value) {
+                            throw mismatch(step, "M[" + address + "] is " + actual
+                                    + ", trace has " + value);
+                        }
+                    }
+                    pc += 4;
+                    checkRegisters(computer, step, registers);
+                }
+            }
+            return step;
+        }
+    }
+
+    /**
+     * Checks the PC and registers of the computer against the trace.
+     */
+    private static void check(Computer computer, long step, int pc, int registers[]) {
+        if (computer.mPC != pc) {
+            throw mismatch(step, "PC is " + computer.mPC + ", trace has " + pc);
+        }
+        checkRegisters(computer, step, registers);
+    }
+
+    private static void checkRegisters(Computer computer, long step, int registers[]) {
+        if (!Arrays.equals(computer.mRegisters, registers)) {
+            for (int i = 0; i < registers.length; i++) {
+                if (computer.mRegisters[i] != registers[i]) {
+                    throw mismatch(step, "$" + i + " is " + computer.mRegisters[i]
+                            + ", trace has " + registers[i]);
+                }
+            }
+        }
+    }
+
+    private static IllegalStateException mismatch(long step, String message) {
+        return new IllegalStateException("Step " + step + ": " + message);
+    }
+
+    /**
+     * Fills a buffer from the channel.
+     * @return the flipped buffer, or null at the end of the file
+     */
+    private static ByteBuffer read(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (buffer.position() == 0) {
+                    return null;
+                }
+                throw new EOFException("Trace is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    static int unzigzag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package computer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * TraceWriter streams every instruction a Computer retires to a file. It is
+ * attached with Computer.setTraceWriter and read back by TraceReplayer.
+ *
+ * The file starts with a header holding the PC and registers the computer
+ * had when the writer was attached. Then come blocks, each with a 12 byte
+ * header (payload length, record count and the PC the first record is
+ * relative to) followed by its records. A record is a varint tag holding
+ * the zigzag encoded distance in words from the PC after the previous
+ * instruction, with three low flag bits for a register write, a memory
+ * write and a trap. A register write adds the register number byte and
+ * the zigzag varint value, a memory write the varint address and the
+ * zigzag varint value. A trap is an instruction that faulted and entered
+ * the exception vector; it adds the varint cause and vector, and the next
+ * distance is from the vector. Straight-line code without a register
+ * write takes one byte per instruction.
+ *
+ * Blocks are filled in large direct buffers that a background thread
+ * writes through a FileChannel, so the computer only waits on disk when
+ * every buffer is queued. All ints in headers are big-endian.
+ */
+public final class TraceWriter implements Closeable {
+
+    /** "MIPT", the first four bytes of a trace file. */
+    public final static int MAGIC = 0x4D495054;
+    /** Version of the trace format. */
+    public final static int VERSION = 1;
+    /** Default size of each buffer in bytes. */
+    public final static int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    final static int HEADER_BYTES = 4 + 4 + 4 + 4 * 32;
+    final static int BLOCK_HEADER_BYTES = 12;
+    final static int REG_WRITE = 1;
+    final static int MEM_WRITE = 2;
+    final static int TRAP = 4;
+    final static int FLAG_BITS = 3;
+
+    // Buffers in the pool
+    private final static int BUFFERS = 4;
+    // Longest record: tag, register, value, address and value
+    private final static int MAX_RECORD_BYTES = 5 + 1 + 5 + 5 + 5;
+    // Queued after the last block to stop the writer thread
+    private final static ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel mChannel;
+    private final BlockingQueue<ByteBuffer> mFull;
+    private final BlockingQueue<ByteBuffer> mFree;
+    private final Thread mThread;
+    private volatile IOException mFailure;
+
+    private ByteBuffer mBuffer;
+    private int mBlockStart;
+    private int mBlockRecords;
+    private int mNextPC;
+    private boolean mStarted;
+    private boolean mClosed;
+
+    /**
+     * Creates a trace file, replacing any file already there.
+     * @param file the trace file
+     * @throws IOException if the file cannot be created
+     */
+    public TraceWriter(Path file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a trace file, replacing any file already there.
+     * @param file the trace file
+     * @param bufferSize bytes in each of the buffers, which bounds the block size
+     * @throws IOException if the file cannot be created
+     */
+    public TraceWriter(Path file, int bufferSize) throws IOException {
+        if (bufferSize < HEADER_BYTES + BLOCK_HEADER_BYTES + MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Buffer size too small");
+        }
+        mChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        mFull = new ArrayBlockingQueue<>(BUFFERS + 1);
+        mFree = new ArrayBlockingQueue<>(BUFFERS);
+        for (int i = 1; i < BUFFERS; i++) {
+            mFree.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        mBuffer = ByteBuffer.allocateDirect(bufferSize);
+        mThread = new Thread(this::drain, "trace-writer");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Writes the file header from the state of the computer being attached
+     * and opens the first block.
+     * @param computer the computer about to be traced
+     */
+    void start(Computer computer) {
+        if (mStarted || mClosed) {
+            throw new IllegalArgumentException("Trace writer already used");
+        }
+        mStarted = true;
+        mBuffer.putInt(MAGIC).putInt(VERSION).putInt(computer.mPC);
+        for (int i = 0; i < computer.mRegisters.length; i++) {
+            mBuffer.putInt(computer.mRegisters[i]);
+        }
+        mNextPC = computer.mPC;
+        beginBlock();
+    }
+
+    /**
+     * Records a retired instruction that wrote at most a register.
+     * @param pc byte address of the instruction
+     * @param dest the register written, or 0 for none
+     * @param value the value written
+     */
+    void record(int pc, int dest, int value) {
+        ByteBuffer buffer = room();
+        if (dest == 0) {
+            putVarint(buffer, distance(pc));
+        } else {
+            putVarint(buffer, distance(pc) | REG_WRITE);
+            buffer.put((byte) dest);
+            putVarint(buffer, zigzag(value));
+        }
+        mNextPC = pc + 4;
+        mBlockRecords++;
+    }
+
+    /**
+     * Records a retired sw.
+     * @param pc byte address of the instruction
+     * @param address the data memory word written
+     * @param value the value written
+     */
+    void recordStore(int pc, int address, int value) {
+        ByteBuffer buffer = room();
+        putVarint(buffer, distance(pc) | MEM_WRITE);
+        putVarint(buffer, address);
+        putVarint(buffer, zigzag(value));
+        mNextPC = pc + 4;
+        mBlockRecords++;
+    }
+
+    /**
+     * Records a retired sc, which writes its register and, if it stored,
+     * the memory word.
+     * @param pc byte address of the instruction
+     * @param dest the register written
+     * @param result the value written to it, 1 if the sc stored
+     * @param address the data memory word it stored to
+     * @param value the value it stored
+     */
+    void recordStoreConditional(int pc, int dest, int result, int address, int value) {
+        ByteBuffer buffer = room();
+        int tag = distance(pc) | REG_WRITE;
+        putVarint(buffer, result == 1 ? tag | MEM_WRITE : tag);
+        buffer.put((byte) dest);
+        putVarint(buffer, zigzag(result));
+        if (result == 1) {
+            putVarint(buffer, address);
+            putVarint(buffer, zigzag(value));
+        }
+        mNextPC = pc + 4;
+        mBlockRecords++;
+    }
+
+    /**
+     * Records an instruction that faulted and entered the exception
+     * vector, which wrote $k0 and $k1.
+     * @param pc byte address of the instruction
+     * @param cause the cause written to $k1
+     * @param vector the PC the computer went on at
+     */
+    void recordTrap(int pc, int cause, int vector) {
+        ByteBuffer buffer = room();
+        putVarint(buffer, distance(pc) | TRAP);
+        putVarint(buffer, cause);
+        putVarint(buffer, vector);
+        mNextPC = vector;
+        mBlockRecords++;
+    }
+
+    /**
+     * Returns the tag of a record without its flags.
+     * @param pc byte address of the instruction
+     * @return the distance from the PC after the previous instruction
+     */
+    private int distance(int pc) {
+        return zigzag((pc - mNextPC) >> 2) << FLAG_BITS;
+    }
+
+    /**
+     * Returns the buffer to write the next record to, handing the current
+     * block to the writer thread if it might not fit.
+     * @return the current buffer
+     */
+    private ByteBuffer room() {
+        if (mBuffer.remaining() < MAX_RECORD_BYTES) {
+            endBlock();
+            if (mFailure != null) {
+                throw new IllegalStateException("Trace write failed", mFailure);
+            }
+            beginBlock();
+        }
+        return mBuffer;
+    }
+
+    private void beginBlock() {
+        mBlockStart = mBuffer.position();
+        mBlockRecords = 0;
+        mBuffer.position(mBlockStart + BLOCK_HEADER_BYTES);
+        mBuffer.putInt(mBlockStart + 8, mNextPC);
+    }
+
+    /**
+     * Fills in the block header and queues the buffer for writing.
+     */
+    private void endBlock() {
+        int payload = mBuffer.position() - mBlockStart - BLOCK_HEADER_BYTES;
+        mBuffer.putInt(mBlockStart, payload);
+        mBuffer.putInt(mBlockStart + 4, mBlockRecords);
+        if (mBlockRecords == 0) {
+            // Nothing to write, drop the empty block
+            mBuffer.position(mBlockStart);
+        }
+        mBuffer.flip();
+        try {
+            mFull.put(mBuffer);
+            mBuffer = mFree.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while tracing", e);
+        }
+    }
+
+    /**
+     * Body of the writer thread.
+     */
+    private void drain() {
+        try {
+            for (ByteBuffer buffer = mFull.take(); buffer != END; buffer = mFull.take()) {
+                try {
+                    if (mFailure == null) {
+                        while (buffer.hasRemaining()) {
+                            mChannel.write(buffer);
+                        }
+                    }
+                } catch (IOException e) {
+                    mFailure = e;
+                }
+                buffer.clear();
+                mFree.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes out the last block, waits for the writer thread and closes
+     * the file. The computer should be detached first.
+     * @throws IOException if any write failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        try {
+            if (mStarted) {
+                endBlock();
+            }
+            mFull.put(END);
+            mThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing trace", e);
+        } finally {
+            mChannel.close();
+        }
+        if (mFailure != null) {
+            throw mFailure;
+        }
+    }
+
+    static int zigzag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    static void putVarint(ByteBuffer buffer, int n) {
+        while ((n & ~0x7F) != 0) {
+            buffer.put((byte) ((n & 0x7F) | 0x80));
+            n >>>= 7;
+        }
+        buffer.put((byte) n);
+    }
+}
@@ -0,0 +1,313 @@
+package computer;
+
+/**
+ * UndoJournal lets a Computer step backwards. While it is attached every
+ * instruction execute and step retire appends one entry holding what the
+ * instruction overwrote: the PC and IR before it ran, and the old values of
+ * the registers and data memory words it wrote, at most two. Entries are
+ * three longs in one flat ring buffer, so journaling allocates nothing.
+ * Undoing an entry puts those values back, so rewinding n instructions
+ * costs n entries.
+ *
+ * The ring holds a fixed number of entries and overwrites the oldest when
+ * it is full. To reach further back the journal also keeps checkpoints,
+ * copy-on-write forks of the computer taken every checkpoint interval. A
+ * rewind past the oldest entry restores the nearest checkpoint before the
+ * target and steps forward from it, which bounds the replay by the
+ * interval. Only the journal sees the replayed instructions; a profile,
+ * trace or model attached to the computer counts each instruction once.
+ * Checkpoints are capped as well; when the cap is reached the eviction
+ * policy either drops the oldest one or drops every other one, which keeps
+ * the whole run reachable at twice the spacing.
+ *
+ * An sc that stores writes both the memory word and its register, and
+ * undoing it puts both back; a failed sc only wrote its register. No undo
+ * restores an ll link. Entering the exception vector
+ * is journaled as the faulting instruction writing $k0 and $k1; undoing
+ * it leaves getTrapCause, getEPC and getBadAddress as they are.
+ *
+ * Only instructions are journaled. Changes made through setRegister,
+ * setDataMemoryAdress or loadInstr between steps are not undone, and a
+ * replay from a checkpoint runs the program as it is now.
+ */
+public final class UndoJournal {
+
+    /** What to do with the checkpoints when there are too many. */
+    public enum Eviction {
+        /** Drop the oldest checkpoint, giving up the start of the run. */
+        DROP_OLDEST,
+        /** Drop every other checkpoint, keeping the oldest. */
+        THIN
+    }
+
+    /** Entries kept by the default journal. */
+    public final static int DEFAULT_CAPACITY = 1 << 16;
+    /** Instructions between checkpoints of the default journal. */
+    public final static int DEFAULT_CHECKPOINT_INTERVAL = 1 << 14;
+    /** Checkpoints kept by the default journal. */
+    public final static int DEFAULT_MAX_CHECKPOINTS = 64;
+
+    // Longs per entry: the PC with the IR, then each target with its old value
+    private final static int ENTRY = 3;
+    // Target of an entry's second write when there is none, register 0
+    final static int NO_TARGET = ~0;
+
+    private final long mEntries[];
+    private final int mMask;
+    private final int mInterval;
+    private final int mMaxCheckpoints;
+    private final Eviction mEviction;
+
+    private Computer mComputer;
+    // Instructions retired since the journal was attached
+    private long mStep;
+    // Entries held, for the steps just before mStep
+    private int mSize;
+    // Checkpoints, oldest first
+    private final long mCheckpointSteps[];
+    private final Computer mCheckpoints[];
+    private int mCheckpointCount;
+
+    /**
+     * Creates a journal with the default capacity and checkpoints.
+     */
+    public UndoJournal() {
+        this(DEFAULT_CAPACITY, DEFAULT_CHECKPOINT_INTERVAL, DEFAULT_MAX_CHECKPOINTS,
+                Eviction.THIN);
+    }
+
+    /**
+     * Creates a journal.
+     * @param capacity number of entries kept, rounded up to a power of two
+     * @param checkpointInterval instructions between checkpoints, or 0 for
+     *        none, which also allows data memory that cannot fork
+     * @param maxCheckpoints number of checkpoints kept, at least 2
+     * @param eviction what to do when another checkpoint does not fit
+     */
+    public UndoJournal(int capacity, int checkpointInterval, int maxCheckpoints,
+            Eviction eviction) {
+        if (capacity <= 0 || capacity > (1 << 24) || checkpointInterval < 0
+                || maxCheckpoints < 2 || eviction == null) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mEntries = new long[size * ENTRY];
+        mMask = size - 1;
+        mInterval = checkpointInterval;
+        mMaxCheckpoints = maxCheckpoints;
+        mEviction = eviction;
+        mCheckpointSteps = new long[maxCheckpoints];
+        mCheckpoints = new Computer[maxCheckpoints];
+    }
+
+    /**
+     * Binds the journal to the computer being attached and takes the first
+     * checkpoint.
+     * @param computer the computer about to be journaled
+     */
+    void start(Computer computer) {
+        if (mComputer != null) {
+            throw new IllegalArgumentException("Undo journal already used");
+        }
+        if (mInterval > 0) {
+            // Fails before anything changes if the memory cannot fork
+            addCheckpoint(computer.fork());
+        }
+        mComputer = computer;
+    }
+
+    /**
+     * Appends the entry of a retired instruction.
+     * @param pc the PC before the instruction ran
+     * @param ir the IR before the instruction ran
+     * @param target the data memory address written, or the complement of
+     *        the register written, which is NO_TARGET when nothing was
+     *        written
+     * @param old the value the target had before
+     * @param second a second target written, or NO_TARGET
+     * @param secondOld the value the second target had before
+     */
+    void record(int pc, int ir, int target, int old, int second, int secondOld) {
+        int base = ((int) mStep & mMask) * ENTRY;
+        mEntries[base] = FlightRecorder.pack(pc, ir);
+        mEntries[base + 1] = FlightRecorder.pack(target, old);
+        mEntries[base + 2] = FlightRecorder.pack(second, secondOld);
+        mStep++;
+        if (mSize <= mMask) {
+            mSize++;
+        }
+        if (mInterval > 0 && mStep % mInterval == 0) {
+            addCheckpoint(mComputer.fork());
+        }
+    }
+
+    /**
+     * Returns the number of instructions retired since the journal was
+     * attached, less those stepped back over.
+     * @return the current step
+     */
+    public long getStep() {
+        return mStep;
+    }
+
+    /**
+     * Returns the number of entries the ring holds.
+     * @return capacity after rounding
+     */
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Returns the number of instructions that can be undone without a
+     * checkpoint.
+     * @return entries held
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the number of checkpoints held.
+     * @return the checkpoint count
+     */
+    public int getCheckpointCount() {
+        return mCheckpointCount;
+    }
+
+    /**
+     * Returns the earliest step the computer can be rewound to.
+     * @return the oldest reachable step
+     */
+    public long getOldestStep() {
+        long oldest = mStep - mSize;
+        if (mCheckpointCount > 0) {
+            oldest = Math.min(oldest, mCheckpointSteps[0]);
+        }
+        return oldest;
+    }
+
+    /**
+     * Rewinds the computer.
+     * @param n number of instructions to undo
+     */
+    void stepBack(long n) {
+        if (n < 0 || n > mStep - getOldestStep()) {
+            throw new IllegalArgumentException("Cannot step back " + n
+                    + " instructions, history starts at step " + getOldestStep());
+        }
+        long target = mStep - n;
+        dropCheckpointsAfter(target);
+        if (n <= mSize) {
+            for (long i = 0; i < n; i++) {
+                undo();
+            }
+        } else {
+            int last = mCheckpointCount - 1;
+            mComputer.restoreFrom(mCheckpoints[last]);
+            mStep = mCheckpointSteps[last];
+            mSize = 0;
+            // Stepping journals again, refilling the ring up to the target
+            mComputer.replayTo(target);
+        }
+        mComputer.mStatus = Computer.STATUS_RUNNING;
+    }
+
+    /**
+     * Rewinds to just before the last instruction that wrote a register.
+     * @param register the register
+     * @return the number of instructions undone, or -1 if no write to the
+     *         register is left in the journal, in which case nothing moves
+     */
+    long runBackToRegisterWrite(int register) {
+        if (register <= 0 || register >= 32) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        return runBackTo(~register);
+    }
+
+    /**
+     * Rewinds to just before the last instruction that wrote a data memory
+     * word.
+     * @param address the word address
+     * @return the number of instructions undone, or -1 if no write to the
+     *         word is left in the journal, in which case nothing moves
+     */
+    long runBackToMemoryWrite(int address) {
+        if (address < 0) {
+            throw new IllegalArgumentException("Invalid Parameters");
+        }
+        return runBackTo(address);
+    }
+
+    private long runBackTo(int target) {
+        for (int i = 1; i <= mSize; i++) {
+            int base = ((int) (mStep - i) & mMask) * ENTRY;
+            if ((int) (mEntries[base + 1] >>> 32) == target
+                    || (int) (mEntries[base + 2] >>> 32) == target) {
+                stepBack(i);
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Undoes the newest entry.
+     */
+    private void undo() {
+        mStep--;
+        mSize--;
+        int base = ((int) mStep & mMask) * ENTRY;
+        long state = mEntries[base];
+        mComputer.mPC = (int) (state >>> 32);
+        mComputer.mIR = (int) state;
+        // The second write happened last, so it is undone first
+        restore(mEntries[base + 2]);
+        restore(mEntries[base + 1]);
+    }
+
+    /**
+     * Puts back the old value of one target of an entry.
+     * @param write the target with its old value
+     */
+    private void restore(long write) {
+        int target = (int) (write >>> 32);
+        if (target >= 0) {
+            mComputer.mMemory.store(target, (int) write);
+        } else {
+            mComputer.mRegisters[~target] = (int) write;
+        }
+    }
+
+    private void addCheckpoint(Computer checkpoint) {
+        if (mCheckpointCount == mMaxCheckpoints) {
+            if (mEviction == Eviction.DROP_OLDEST) {
+                System.arraycopy(mCheckpointSteps, 1, mCheckpointSteps, 0, mCheckpointCount - 1);
+                System.arraycopy(mCheckpoints, 1, mCheckpoints, 0, mCheckpointCount - 1);
+                mCheckpointCount--;
+            } else {
+                int kept = 0;
+                for (int i = 0; i < mCheckpointCount; i += 2) {
+                    mCheckpointSteps[kept] = mCheckpointSteps[i];
+                    mCheckpoints[kept++] = mCheckpoints[i];
+                }
+                for (int i = kept; i < mCheckpointCount; i++) {
+                    mCheckpoints[i] = null;
+                }
+                mCheckpointCount = kept;
+            }
+        }
+        mCheckpointSteps[mCheckpointCount] = mStep;
+        mCheckpoints[mCheckpointCount++] = checkpoint;
+    }
+
+    private void dropCheckpointsAfter(long step) {
+        while (mCheckpointCount > 0 && mCheckpointSteps[mCheckpointCount - 1] > step) {
+            mCheckpoints[--mCheckpointCount] = null;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import computer.Assembler;
+import computer.Computer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to assemble a generated 100k line program into instruction memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AssemblerBenchmark {
+
+    private final static int LINES = 100000;
+
+    private String mSource;
+    private Computer mComputer;
+
+    @Setup
+    public void setUp() {
+        StringBuilder source = new StringBuilder();
+        source.append(".data 0\nbuffer: .space 16\n.text\n");
+        for (int i = 0; i < LINES - 4; i++) {
+            switch (i % 4) {
+                case 0:
+                    source.append("l").append(i).append(":  addi $t0, $t0, 1   # count\n");
+                    break;
+                case 1:
+                    source.append("        lw   $t1, buffer($zero)\n");
+                    break;
+                case 2:
+                    source.append("        beq  $t0, $zero, l").append(i + 2).append('\n');
+                    break;
+                default:
+                    source.append("        add  $s0, $s0, $t1\n");
+                    break;
+            }
+        }
+        source.append("l").append(LINES - 4).append(":  syscall\n");
+        mSource = source.toString();
+        mComputer = new Computer(LINES, 500);
+    }
+
+    @Benchmark
+    public int assemble() throws IOException {
+        return Assembler.assemble(new StringReader(mSource), mComputer);
+    }
+}
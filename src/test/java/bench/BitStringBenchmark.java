@@ -0,0 +1,82 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import computer.BitString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Average time of the BitString operations the simulator leans on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BitStringBenchmark {
+
+    private BitString mBits;
+    private BitString mHigh;
+    private BitString mLow;
+    private int mValue;
+
+    @Setup
+    public void setUp() {
+        mBits = new BitString();
+        mBits.setValue2sComp(0x8C0E0005);
+        mHigh = new BitString();
+        mHigh.setBits("1000110000001110".toCharArray());
+        mLow = new BitString();
+        mLow.setBits("0000000000000101".toCharArray());
+        mValue = 0x12345;
+    }
+
+    @Benchmark
+    public BitString setValue() {
+        mBits.setValue(mValue);
+        return mBits;
+    }
+
+    @Benchmark
+    public BitString setValue2sComp() {
+        mBits.setValue2sComp(-mValue);
+        return mBits;
+    }
+
+    @Benchmark
+    public int getValue2sComp() {
+        return mBits.getValue2sComp();
+    }
+
+    @Benchmark
+    public BitString valueOfCached() {
+        return BitString.valueOf(mValue & 0x3FF);
+    }
+
+    @Benchmark
+    public BitString newValue() {
+        BitString bits = new BitString();
+        bits.setValue2sComp(mValue & 0x3FF);
+        return bits;
+    }
+
+    @Benchmark
+    public BitString substring() {
+        return mBits.substring(6, 5);
+    }
+
+    @Benchmark
+    public BitString append() {
+        return mHigh.append(mLow);
+    }
+}
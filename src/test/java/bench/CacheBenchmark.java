@@ -0,0 +1,56 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import computer.Cache;
+import computer.Cache.Replacement;
+import computer.CacheModel;
+import computer.Computer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Interpreter throughput of the memory loop with split L1 caches and a
+ * shared L2 attached, in simulated instructions per second, for each
+ * replacement policy. Compare with ProgramBenchmark.memoryLoop on the
+ * interpreter for the cost of the model.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CacheBenchmark {
+
+    @Param({ "LRU", "PLRU", "RANDOM" })
+    public Replacement replacement;
+
+    private Computer mMemoryLoop;
+
+    @Setup
+    public void setUp() {
+        mMemoryLoop = new Computer(Programs.INSTR_SLOTS, 500);
+        Programs.loadMemoryLoop(mMemoryLoop);
+        Cache l2 = new Cache(4096, 32, 8, replacement, null);
+        mMemoryLoop.setCacheModel(new CacheModel(Programs.INSTR_SLOTS,
+                new Cache(256, 16, 2, replacement, l2), new Cache(256, 16, 4, replacement, l2)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Programs.MEMORY_LOOP_RETIRED)
+    public int memoryLoop() {
+        mMemoryLoop.setRegister(10, Programs.MEMORY_WORDS);
+        return mMemoryLoop.execute();
+    }
+}
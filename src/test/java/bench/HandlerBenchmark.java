@@ -0,0 +1,129 @@
+package bench;
+
+import static bench.Programs.*;
+
+import java.util.concurrent.TimeUnit;
+
+import computer.Computer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Average time of each executeXxx handler on its own. Every handler gets its
+ * own computer with the instruction in slot 0, which is the slot a fresh
+ * computer decodes from, so the handler can be called without a fetch. The
+ * operands are picked so that repeating the instruction never traps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HandlerBenchmark {
+
+    private Computer mRegAdd;
+    private Computer mRegAnd;
+    private Computer mImmAdd;
+    private Computer mImmAnd;
+    private Computer mLoadWord;
+    private Computer mStoreWord;
+    private Computer mBranchTaken;
+    private Computer mBranchNotTaken;
+    private Computer mJump;
+    private Computer mJumpRegister;
+
+    @Setup
+    public void setUp() {
+        mRegAdd = computer(rType(ADD, 9, 10, 11));
+        mRegAnd = computer(rType(AND, 9, 10, 11));
+        mImmAdd = computer(iType(ADDI, 9, 11, 100));
+        mImmAnd = computer(iType(ANDI, 9, 11, 0xFF));
+        mLoadWord = computer(iType(LW, 12, 11, 4));
+        mStoreWord = computer(iType(SW, 12, 9, 4));
+        /* An offset of 0 leaves the PC where it is when taken. */
+        mBranchTaken = computer(iType(BEQ, 9, 9, 0));
+        mBranchNotTaken = computer(iType(BEQ, 9, 10, 0));
+        mJump = computer(jType(J, 0));
+        mJumpRegister = computer(rType(JR, 13, 0, 0));
+    }
+
+    private static Computer computer(int word) {
+        Computer computer = new Computer();
+        computer.loadInstr(0, word);
+        computer.setRegister(9, 12345);
+        computer.setRegister(10, 0x0F0F);
+        computer.setRegister(12, 100);
+        computer.setRegister(13, 0);
+        computer.setDataMemoryAdress(104, 42);
+        return computer;
+    }
+
+    @Benchmark
+    public Computer regAdd() {
+        mRegAdd.executeRegAdd();
+        return mRegAdd;
+    }
+
+    @Benchmark
+    public Computer regAnd() {
+        mRegAnd.executeRegAnd();
+        return mRegAnd;
+    }
+
+    @Benchmark
+    public Computer immAdd() {
+        mImmAdd.executeImmAdd();
+        return mImmAdd;
+    }
+
+    @Benchmark
+    public Computer immAnd() {
+        mImmAnd.executeImmAnd();
+        return mImmAnd;
+    }
+
+    @Benchmark
+    public Computer loadWord() {
+        mLoadWord.executeImmLoadWord();
+        return mLoadWord;
+    }
+
+    @Benchmark
+    public Computer storeWord() {
+        mStoreWord.executeImmStoreWord();
+        return mStoreWord;
+    }
+
+    @Benchmark
+    public Computer branchTaken() {
+        mBranchTaken.executeImmBEQ();
+        return mBranchTaken;
+    }
+
+    @Benchmark
+    public Computer branchNotTaken() {
+        mBranchNotTaken.executeImmBEQ();
+        return mBranchNotTaken;
+    }
+
+    @Benchmark
+    public Computer jump() {
+        mJump.executeJJump();
+        return mJump;
+    }
+
+    @Benchmark
+    public Computer jumpRegister() {
+        mJumpRegister.executeJJumpRegister();
+        return mJumpRegister;
+    }
+}
@@ -0,0 +1,59 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import computer.Computer;
+import computer.ExecutionEngine;
+import computer.MultiCore;
+import computer.SharedMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time for every core of a MultiCore to run the tight loop, which shares
+ * no data, on threads of its own. With at least as many host cores as
+ * simulated ones the time should stay close to that of one core.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MultiCoreBenchmark {
+
+    private final static int ITERATIONS = 100_000;
+
+    @Param({ "1", "2", "4" })
+    public int cores;
+
+    @Param({ "INTERPRETER", "JIT" })
+    public ExecutionEngine engine;
+
+    private MultiCore mCores;
+
+    @Setup
+    public void setUp() {
+        Computer boot = new Computer(Programs.INSTR_SLOTS, new SharedMemory(500));
+        Programs.loadTightLoop(boot);
+        boot.setExecutionEngine(engine);
+        mCores = new MultiCore(boot, cores);
+    }
+
+    @Benchmark
+    public void tightLoop() throws InterruptedException {
+        for (int i = 0; i < cores; i++) {
+            mCores.getCore(i).setRegister(8, ITERATIONS);
+        }
+        mCores.execute();
+    }
+}
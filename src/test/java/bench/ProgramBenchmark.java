@@ -0,0 +1,75 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import computer.Computer;
+import computer.ExecutionEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole-program execute throughput. Each benchmark counts one operation per
+ * retired guest instruction, so the score is simulated instructions per
+ * second for every engine.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProgramBenchmark {
+
+    @Param({ "INTERPRETER", "JIT", "THREADED" })
+    public ExecutionEngine engine;
+
+    private Computer mStraightLine;
+    private Computer mTightLoop;
+    private Computer mMemoryLoop;
+
+    @Setup
+    public void setUp() {
+        mStraightLine = computer();
+        Programs.loadStraightLine(mStraightLine);
+        mTightLoop = computer();
+        Programs.loadTightLoop(mTightLoop);
+        mMemoryLoop = computer();
+        Programs.loadMemoryLoop(mMemoryLoop);
+    }
+
+    private Computer computer() {
+        Computer computer = new Computer(Programs.INSTR_SLOTS, 500);
+        computer.setExecutionEngine(engine);
+        return computer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Programs.STRAIGHT_LINE_RETIRED)
+    public int straightLine() {
+        return mStraightLine.execute();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Programs.TIGHT_LOOP_RETIRED)
+    public int tightLoop() {
+        mTightLoop.setRegister(8, Programs.LOOP_ITERATIONS);
+        return mTightLoop.execute();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Programs.MEMORY_LOOP_RETIRED)
+    public int memoryLoop() {
+        mMemoryLoop.setRegister(10, Programs.MEMORY_WORDS);
+        return mMemoryLoop.execute();
+    }
+}
@@ -0,0 +1,132 @@
+package bench;
+
+import computer.Computer;
+
+/**
+ * Guest programs used by the benchmarks, encoded straight to machine words so
+ * that setting up a benchmark does not go through BitString.
+ */
+final class Programs {
+
+    final static int ADD = 0x20;
+    final static int AND = 0x24;
+    final static int SYSCALL = 0x0C;
+    final static int JR = 0x08;
+    final static int ADDI = 0x08;
+    final static int ANDI = 0x0C;
+    final static int BEQ = 0x04;
+    final static int J = 0x02;
+    final static int LW = 0x23;
+    final static int SW = 0x2B;
+
+    /** Instruction memory slots of the computers the benchmarks build. */
+    final static int INSTR_SLOTS = 200;
+
+    /** Iterations of the tight loop per execute. */
+    final static int LOOP_ITERATIONS = 1000;
+
+    /** Words walked by the memory loop per execute. */
+    final static int MEMORY_WORDS = 400;
+
+    /*
+     * Instructions retired by one execute after the first. Every execute
+     * after the first starts on the trailing j back to slot 0.
+     */
+    final static int STRAIGHT_LINE_RETIRED = INSTR_SLOTS;
+    final static int TIGHT_LOOP_RETIRED = 3 * LOOP_ITERATIONS + 1;
+    final static int MEMORY_LOOP_RETIRED = 6 * MEMORY_WORDS + 1;
+
+    private Programs() {
+    }
+
+    static int rType(int funct, int rs, int rt, int rd) {
+        return (rs << 21) | (rt << 16) | (rd << 11) | funct;
+    }
+
+    static int iType(int opcode, int rs, int rt, int imm) {
+        return (opcode << 26) | (rs << 21) | (rt << 16) | (imm & 0xFFFF);
+    }
+
+    static int jType(int opcode, int target) {
+        return (opcode << 26) | ((target >>> 2) & 0x03FFFFFF);
+    }
+
+    /**
+     * A run of add/and/addi/andi that fills instruction memory and ends in
+     * syscall. The slot after the syscall jumps back to 0 so the next execute
+     * runs the program again. The computer must have INSTR_SLOTS
+     * slots of instruction memory.
+     * @param computer the computer to load
+     */
+    static void loadStraightLine(Computer computer) {
+        int halt = INSTR_SLOTS - 2;
+        for (int slot = 0; slot < halt; slot++) {
+            int rd = 16 + slot % 8;
+            switch (slot % 4) {
+                case 0:
+                    computer.loadInstr(slot, rType(ADD, 9, 10, rd));
+                    break;
+                case 1:
+                    computer.loadInstr(slot, rType(AND, 9, 10, rd));
+                    break;
+                case 2:
+                    computer.loadInstr(slot, iType(ADDI, 9, rd, 7));
+                    break;
+                default:
+                    computer.loadInstr(slot, iType(ANDI, 10, rd, 0xFF));
+                    break;
+            }
+        }
+        computer.loadInstr(halt, SYSCALL);
+        computer.loadInstr(halt + 1, jType(J, 0));
+        computer.setRegister(9, 12345);
+        computer.setRegister(10, 0x0F0F);
+    }
+
+    /*
+     * loop: addi $8, $8, -1
+     *       beq  $8, $0, done
+     *       j    loop
+     * done: syscall
+     *       j    loop
+     */
+    /**
+     * A countdown loop with a beq exit and a j back-edge. $8 has to be reset
+     * to LOOP_ITERATIONS before every execute.
+     * @param computer the computer to load
+     */
+    static void loadTightLoop(Computer computer) {
+        computer.loadInstr(0, iType(ADDI, 8, 8, -1));
+        computer.loadInstr(1, iType(BEQ, 8, 0, 1));
+        computer.loadInstr(2, jType(J, 0));
+        computer.loadInstr(3, SYSCALL);
+        computer.loadInstr(4, jType(J, 0));
+    }
+
+    /*
+     * loop: lw   $9, 0($10)
+     *       addi $9, $9, 1
+     *       sw   $9, 0($10)
+     *       addi $10, $10, -1
+     *       beq  $10, $0, done
+     *       j    loop
+     * done: syscall
+     *       j    loop
+     */
+    /**
+     * Walks MEMORY_WORDS words of data memory from the top down, bumping each
+     * one with lw/addi/sw. $10 has to be reset to MEMORY_WORDS before every
+     * execute.
+     * @param computer the computer to load
+     */
+    static void loadMemoryLoop(Computer computer) {
+        computer.loadInstr(0, iType(LW, 10, 9, 0));
+        computer.loadInstr(1, iType(ADDI, 9, 9, 1));
+        computer.loadInstr(2, iType(SW, 10, 9, 0));
+        computer.loadInstr(3, iType(ADDI, 10, 10, -1));
+        computer.loadInstr(4, iType(BEQ, 10, 0, 1));
+        computer.loadInstr(5, jType(J, 0));
+        computer.loadInstr(6, SYSCALL);
+        computer.loadInstr(7, jType(J, 0));
+    }
+}
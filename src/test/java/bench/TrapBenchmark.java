@@ -0,0 +1,79 @@
+package bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import computer.Assembler;
+import computer.Computer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Guest faults per second for a loop whose every iteration loads from
+ * outside data memory. thrown catches the exception of each fault on the
+ * host and executes again; trapped runs in trap mode with a guest handler
+ * that skips the faulting load.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TrapBenchmark {
+
+    private final static int FAULTS = 100;
+
+    private final static String PROGRAM = String.join("\n",
+            "loop:    lw   $t0, 1000($zero)",
+            "         addi $t1, $t1, -1",
+            "         beq  $t1, $zero, done",
+            "         j    loop",
+            "done:    syscall",
+            "         j    loop",
+            "handler: addi $k0, $k0, 4",
+            "         jr   $k0");
+
+    private Computer mThrown;
+    private Computer mTrapped;
+
+    @Setup
+    public void setUp() throws IOException {
+        mThrown = new Computer();
+        Assembler.assemble(new StringReader(PROGRAM), mThrown);
+        mTrapped = new Computer();
+        Assembler.assemble(new StringReader(PROGRAM), mTrapped);
+        mTrapped.setTrapMode(true);
+        mTrapped.setExceptionVector(24);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FAULTS)
+    public int thrown() {
+        mThrown.setRegister(9, FAULTS);
+        while (true) {
+            try {
+                return mThrown.execute();
+            } catch (ArrayIndexOutOfBoundsException e) {
+                // The PC is already past the load
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FAULTS)
+    public int trapped() {
+        mTrapped.setRegister(9, FAULTS);
+        return mTrapped.execute();
+    }
+}
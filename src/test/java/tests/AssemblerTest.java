@@ -0,0 +1,146 @@
+package tests;
+
+import computer.Assembler;
+import computer.Computer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests assembling source straight into a computer.
+ */
+public class AssemblerTest {
+
+    private static Computer assemble(String... lines) throws IOException {
+        Computer computer = new Computer();
+        Assembler.assemble(new StringReader(String.join("\n", lines)), computer);
+        return computer;
+    }
+
+    /**
+     * The program Simulator runs assembles to the words it used to be
+     * hand-assembled to.
+     */
+    @Test
+    public void testSimulatorProgram() throws IOException {
+        Computer computer = assemble(
+                "        add     $a0, $a1, $a2",
+                "        and     $t0, $t1, $t2",
+                "        addi    $a3, $v0, 5",
+                "        andi    $t3, $t4, 10",
+                "        lw      $t6, 5($t7)",
+                "        sw      $s0, 3($s1)",
+                "        beq     $s2, $s3, testBeq",
+                "        add     $a0, $t1, $t2",
+                "testBeq:",
+                "        j       testJump",
+                "        add     $a0, $t1, $t2",
+                "testJump:",
+                "        jr      $t9",
+                "        add     $a0, $t1, $t2",
+                "testJumpRegister:",
+                "        syscall");
+        int expected[] = { 0x00A62020, 0x012A4024, 0x20470005, 0x318B000A, 0x8DEE0005,
+                0xAE300003, 0x12530001, 0x012A2020, 0x0800000A, 0x012A2020, 0x03200008,
+                0x012A2020, 0x0000000C };
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("slot " + i, expected[i], computer.getInstr(i).getValue());
+        }
+    }
+
+    @Test
+    public void testLabelsAndData() throws IOException {
+        Computer computer = assemble(
+                "# sum the values into total",
+                ".data 100",
+                "count:  .word 4",
+                "values: .word 10, 20, 0x1E, -1",
+                "        .space 2",
+                "total:  .word 0",
+                "where:  .word values, done",
+                ".text 8",
+                "main:   lw   $t0, count",
+                "        addi $t1, $zero, values",
+                "loop:   lw   $t2, 0($t1)",
+                "        add  $s0, $s0, $t2",
+                "        addi $t1, $t1, 1",
+                "        addi $t0, $t0, -1",
+                "        beq  $t0, $0, done",
+                "        j    loop",
+                "done:   sw   $s0, total($zero)",
+                "        syscall");
+        assertEquals(32, computer.getMyPC().getValue());
+        assertEquals(0, computer.getInstr(0).getValue());
+        assertEquals(101, computer.getDataMemoryAddress(108).getValue());
+        assertEquals(16 * 4, computer.getDataMemoryAddress(109).getValue());
+        assertEquals(Computer.STATUS_HALTED, computer.execute());
+        assertEquals(59, computer.getDataMemoryAddress(107).getValue());
+    }
+
+    @Test
+    public void testRegisterNames() throws IOException {
+        Computer computer = assemble("add $ra, $zero, $31", "add $sp, $gp, $fp", "syscall");
+        assertEquals(0x001FF820, computer.getInstr(0).getValue());
+        assertEquals(0x039EE820, computer.getInstr(1).getValue());
+    }
+
+    @Test
+    public void testErrorsHaveLineNumbers() {
+        assertError("Line 2: bad register $32", "nop", "add $1, $2, $32");
+        assertError("Line 3: undefined text label nowhere", "nop", "", "j nowhere");
+        assertError("Line 1: immediate 40000 does not fit in 16 bits", "addi $1, $1, 40000");
+        assertError("Line 1: unknown instruction mul", "mul $1, $2, $3");
+        assertError("Line 2: comma expected", "", "lw $1 4($2)");
+    }
+
+    private static void assertError(String message, String... lines) {
+        try {
+            assemble(lines);
+            fail("Expected " + message);
+        } catch (IOException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    /**
+     * A generated program of 100k lines assembles in one go.
+     */
+    @Test
+    public void testLargeProgram() throws IOException {
+        int lines = 100000;
+        Reader source = new Reader() {
+            private int mLine;
+            private String mText = "";
+            private int mPos;
+
+            @Override
+            public int read(char buffer[], int offset, int length) {
+                if (mPos == mText.length()) {
+                    if (mLine == lines) {
+                        return -1;
+                    }
+                    mText = mLine == lines - 1 ? "        syscall\n"
+                            : "l" + mLine + ":  addi $t0, $t0, 1   # count\n";
+                    mPos = 0;
+                    mLine++;
+                }
+                int n = Math.min(length, mText.length() - mPos);
+                mText.getChars(mPos, mPos + n, buffer, offset);
+                mPos += n;
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Computer computer = new Computer(lines, 500);
+        assertEquals(lines, Assembler.assemble(source, computer));
+        computer.execute();
+        assertEquals(lines - 1, computer.getRegister(8).getValue());
+    }
+}
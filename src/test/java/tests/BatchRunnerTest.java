@@ -0,0 +1,119 @@
+package tests;
+
+import computer.BatchRunner;
+import computer.Computer;
+import computer.ExecutionEngine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests running many computers through BatchRunner.
+ */
+public class BatchRunnerTest {
+
+    /*
+     * add  $4, $5, $6
+     * sw   $4, 3($0)
+     * syscall
+     */
+    private final static int PROGRAM[] = { 0b00000000101001100010000000100000,
+            0b10101100000001000000000000000011, 0b00000000000000000000000000001100 };
+
+    private List<BatchRunner.Result> runAll(BatchRunner runner, int runs)
+            throws InterruptedException {
+        List<BatchRunner.Result> results = new ArrayList<>();
+        runner.run(LongStream.range(0, runs).mapToObj(id -> new BatchRunner.Spec(id)
+                .setRegister(5, (int) id).setRegister(6, 10)), results::add);
+        return results;
+    }
+
+    /**
+     * Every spec gets its own result with its own registers and memory.
+     */
+    @Test
+    public void testParallelRuns() throws InterruptedException {
+        List<BatchRunner.Result> results = runAll(new BatchRunner(PROGRAM, 4, 8), 1000);
+        assertEquals(1000, results.size());
+        boolean seen[] = new boolean[1000];
+        for (BatchRunner.Result result : results) {
+            int id = (int) result.getId();
+            assertFalse(seen[id]);
+            seen[id] = true;
+            assertEquals(Computer.STATUS_HALTED, result.getStatus());
+            assertEquals(id + 10, result.getComputer().getRegister(4).getValue2sComp());
+            assertEquals(id + 10, result.getComputer().getDataMemoryAddress(3).getValue2sComp());
+        }
+    }
+
+    /**
+     * Runs forked from one JIT computer give the interpreter's results.
+     */
+    @Test
+    public void testJitRuns() throws InterruptedException {
+        BatchRunner runner = new BatchRunner(PROGRAM, 4, 8);
+        runner.setExecutionEngine(ExecutionEngine.JIT);
+        List<BatchRunner.Result> results = runAll(runner, 200);
+        assertEquals(200, results.size());
+        for (BatchRunner.Result result : results) {
+            assertEquals(Computer.STATUS_HALTED, result.getStatus());
+            assertEquals(result.getId() + 10,
+                    result.getComputer().getDataMemoryAddress(3).getValue2sComp());
+        }
+    }
+
+    /**
+     * With a parallelism of 1 results come back in spec order.
+     */
+    @Test
+    public void testSingleThreadedInOrder() throws InterruptedException {
+        List<BatchRunner.Result> results = runAll(new BatchRunner(PROGRAM, 1, 1), 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, results.get(i).getId());
+        }
+    }
+
+    /**
+     * A guest trap is reported in the result instead of stopping the batch.
+     */
+    @Test
+    public void testTrapReported() throws InterruptedException {
+        List<BatchRunner.Result> results = new ArrayList<>();
+        new BatchRunner(PROGRAM, 2, 2).run(LongStream.range(0, 2).mapToObj(id ->
+                new BatchRunner.Spec(id).setRegister(5, Integer.MAX_VALUE).setRegister(6, 1)),
+                results::add);
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).getTrap() instanceof IllegalArgumentException);
+    }
+
+    /**
+     * A spec the computer cannot take fails only its own run.
+     */
+    @Test
+    public void testBadSpecReported() throws InterruptedException {
+        List<BatchRunner.Result> results = new ArrayList<>();
+        BatchRunner runner = new BatchRunner(PROGRAM, 2, 2);
+        runner.setMemorySizes(PROGRAM.length, 16);
+        runner.run(LongStream.range(0, 4).mapToObj(id -> new BatchRunner.Spec(id)
+                .setRegister(5, 1).setDataMemory(id == 2 ? 16 : 0, 7)), results::add);
+        assertEquals(4, results.size());
+        for (BatchRunner.Result result : results) {
+            if (result.getId() == 2) {
+                assertTrue(result.getTrap() instanceof IllegalArgumentException);
+                assertEquals(Computer.STATUS_RUNNING, result.getStatus());
+            } else {
+                assertNull(result.getTrap());
+                assertEquals(Computer.STATUS_HALTED, result.getStatus());
+            }
+        }
+        try {
+            new BatchRunner.Spec(0).setDataMemory(-1, 7);
+            fail("Negative address accepted");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
@@ -145,6 +145,17 @@ public class BitStringTest {
 		assertEquals(bitString.getValue2sComp(), -32768);
 	}
 
+	/** Checks 2s complement values survive a round trip at the full 32 bits. */
+	@Test
+	public void testValue2sCompRoundTrip() {
+		BitString bitString = new BitString();
+		int[] values = { 0, 1, -1, 12345, -12345, Integer.MAX_VALUE, Integer.MIN_VALUE };
+		for (int value : values) {
+			bitString.setValue2sComp(value);
+			assertEquals(value, bitString.getValue2sComp());
+		}
+	}
+
 	@Test
 	public void testAppend() {
 		char fourBits[] = { '0', '0', '0', '0' };
@@ -309,4 +320,77 @@ public class BitStringTest {
             assertEquals(64, bitString.getAddr());
     }
     
+	/** Test that valueOf shares small values and holds large ones. */
+	@Test
+	public void testValueOf() {
+		assertSame(BitString.valueOf(0), BitString.valueOf(0));
+		assertSame(BitString.valueOf(-1), BitString.valueOf(-1));
+		assertSame(BitString.valueOf(1023), BitString.valueOf(1023));
+		assertEquals(-1, BitString.valueOf(-1).getValue2sComp());
+		assertEquals(32, BitString.valueOf(5).getLength());
+		BitString big = BitString.valueOf(0x8C0E0005);
+		assertEquals(0x8C0E0005, big.getValue());
+		assertTrue(big.isImmutable());
+		BitString bitString = new BitString();
+		bitString.setValue2sComp(5);
+		assertEquals(bitString, BitString.valueOf(5));
+		assertFalse(bitString.isImmutable());
+	}
+
+	/** Test that every mutator refuses to change a valueOf BitString. */
+	@Test
+	public void testValueOfImmutable() {
+		BitString bitString = BitString.valueOf(5);
+		try {
+			bitString.setValue(6);
+			fail("setValue changed an immutable BitString");
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			bitString.setValue2sComp(6);
+			fail("setValue2sComp changed an immutable BitString");
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			bitString.setBits("110".toCharArray());
+			fail("setBits changed an immutable BitString");
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			bitString.invert();
+			fail("invert changed an immutable BitString");
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			bitString.addOne();
+			fail("addOne changed an immutable BitString");
+		} catch (UnsupportedOperationException e) {
+		}
+		assertEquals(5, BitString.valueOf(5).getValue());
+		BitString copy = bitString.copy();
+		copy.addOne();
+		assertEquals(6, copy.getValue());
+		assertEquals(5, bitString.getValue());
+	}
+
+	/** Test that equals and hashCode follow the bits and not the format. */
+	@Test
+	public void testEqualsFormat() {
+		BitString plain = new BitString();
+		plain.setValue(5);
+		BitString rFormat = new BitString(true, false, false);
+		rFormat.setValue(5);
+		BitString iFormat = new BitString(false, true, false);
+		iFormat.setValue(5);
+		assertEquals(plain, BitString.valueOf(5));
+		assertEquals(plain.hashCode(), BitString.valueOf(5).hashCode());
+		assertEquals(plain, rFormat);
+		assertEquals(rFormat, iFormat);
+		assertEquals(rFormat.hashCode(), iFormat.hashCode());
+		iFormat.setValue(6);
+		assertNotEquals(rFormat, iFormat);
+		assertEquals(rFormat, rFormat.copy());
+		assertEquals(rFormat.hashCode(), rFormat.copy().hashCode());
+	}
+
 }
@@ -0,0 +1,131 @@
+package tests;
+
+import computer.Assembler;
+import computer.BimodalPredictor;
+import computer.BranchPredictionModel;
+import computer.BranchTargetBuffer;
+import computer.Computer;
+import computer.GsharePredictor;
+import computer.StaticPredictor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the branch predictors and running them side by side on a Computer.
+ */
+public class BranchPredictorTest {
+
+    private static BranchPredictionModel run(String... lines) throws IOException {
+        Computer computer = new Computer();
+        Assembler.assemble(new StringReader(String.join("\n", lines)), computer);
+        BranchPredictionModel model = new BranchPredictionModel(computer.getInstrMemorySize(),
+                new BranchTargetBuffer(16), StaticPredictor.NOT_TAKEN,
+                StaticPredictor.BACKWARD_TAKEN, new BimodalPredictor(16),
+                new GsharePredictor(256, 4));
+        computer.setBranchPredictionModel(model);
+        assertEquals(Computer.STATUS_HALTED, computer.execute());
+        return model;
+    }
+
+    @Test
+    public void testStatic() {
+        assertFalse(StaticPredictor.NOT_TAKEN.predict(8, 4));
+        assertTrue(StaticPredictor.BACKWARD_TAKEN.predict(8, 4));
+        assertFalse(StaticPredictor.BACKWARD_TAKEN.predict(8, 12));
+    }
+
+    @Test
+    public void testBimodalSaturates() {
+        BimodalPredictor predictor = new BimodalPredictor(4);
+        assertFalse(predictor.predict(0, 0));
+        predictor.update(0, 0, true);
+        assertTrue(predictor.predict(0, 0));
+        predictor.update(0, 0, true);
+        predictor.update(0, 0, true);
+        predictor.update(0, 0, false);
+        // Still taken after one not taken
+        assertTrue(predictor.predict(0, 0));
+        // Another PC has its own counter
+        assertFalse(predictor.predict(4, 0));
+        predictor.reset();
+        assertFalse(predictor.predict(0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGshareHistoryTooLong() {
+        new GsharePredictor(16, 5);
+    }
+
+    @Test
+    public void testLoop() throws IOException {
+        BranchPredictionModel model = run(
+                "      addi $t1, $zero, 10",
+                "loop: addi $t1, $t1, -1",
+                "      beq  $t1, $zero, done",
+                "      beq  $zero, $zero, loop",
+                "done: syscall");
+        assertEquals(19, model.getBranches());
+        assertEquals(10, model.getBranches(8));
+        // Not taken misses the nine loop backs and the exit
+        assertEquals(10, model.getMispredictions(0));
+        assertEquals(9, model.getMispredictions(0, 12));
+        // Backward taken only misses the exit
+        assertEquals(1, model.getMispredictions(1));
+        assertEquals(1, model.getMispredictions(1, 8));
+        // Bimodal also misses the first loop back
+        assertEquals(2, model.getMispredictions(2));
+        assertEquals(1.0 / 9, model.getMispredictionRate(2, 12), 1e-9);
+        assertEquals(0, model.getJumps());
+    }
+
+    @Test
+    public void testAlternating() throws IOException {
+        BranchPredictionModel model = run(
+                "      addi $t1, $zero, 40",
+                "loop: andi $t2, $t1, 1",
+                "      beq  $t2, $zero, even",
+                "      addi $s0, $s0, 1",
+                "even: addi $t1, $t1, -1",
+                "      beq  $t1, $zero, done",
+                "      j    loop",
+                "done: syscall");
+        assertEquals(40, model.getBranches(8));
+        // Bimodal flips between weak states and misses every time
+        assertEquals(40, model.getMispredictions(2, 8));
+        // The global history tells gshare which way it went last time
+        assertTrue(model.getMispredictions(3, 8) <= 8);
+        assertTrue(model.getMispredictionRate(3) < model.getMispredictionRate(2));
+        // The target buffer misses only the first j
+        assertEquals(39, model.getJumps());
+        assertEquals(1, model.getTargetMisses());
+        assertEquals(1, model.getTargetMisses(24));
+        model.reset();
+        assertEquals(0, model.getBranches());
+    }
+
+    @Test
+    public void testTargetBuffer() {
+        BranchTargetBuffer buffer = new BranchTargetBuffer(4);
+        assertEquals(-1, buffer.predict(8));
+        buffer.update(8, 100);
+        assertEquals(100, buffer.predict(8));
+        // 24 maps to the same entry and replaces it
+        buffer.update(24, 40);
+        assertEquals(-1, buffer.predict(8));
+        assertEquals(40, buffer.predict(24));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testBadPC() {
+        new BranchPredictionModel(4, null, StaticPredictor.NOT_TAKEN).getBranches(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoPredictors() {
+        new BranchPredictionModel(4, null);
+    }
+}
@@ -0,0 +1,198 @@
+package tests;
+
+import computer.Assembler;
+import computer.Cache;
+import computer.Cache.Replacement;
+import computer.CacheModel;
+import computer.Computer;
+import computer.DataMemory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the set-associative cache and the cache model of a Computer.
+ */
+public class CacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadGeometry() {
+        new Cache(96, 16, 2, Replacement.LRU, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPLRUNeedsPowerOfTwoWays() {
+        new Cache(16 * 3 * 4, 16, 3, Replacement.PLRU, null);
+    }
+
+    @Test
+    public void testGeometry() {
+        Cache cache = new Cache(1024, 16, 4, Replacement.LRU, null);
+        assertEquals(16, cache.getSets());
+        assertEquals(4, cache.getWays());
+        assertEquals(16, cache.getLineSize());
+        assertEquals(1024, cache.getSize());
+    }
+
+    @Test
+    public void testDirectMappedConflicts() {
+        // Two sets of one 16 byte line
+        Cache cache = new Cache(32, 16, 1, Replacement.LRU, null);
+        assertFalse(cache.access(0));
+        assertTrue(cache.access(12));
+        assertFalse(cache.access(16));
+        assertFalse(cache.access(32));
+        assertFalse(cache.access(0));
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(0.8, cache.getMissRate(), 1e-9);
+    }
+
+    @Test
+    public void testLRU() {
+        // One set of four lines
+        Cache cache = new Cache(64, 16, 4, Replacement.LRU, null);
+        for (int line = 0; line < 4; line++) {
+            cache.access(line * 16);
+        }
+        cache.access(0);
+        cache.access(64);
+        // Line 1 was the least recently used
+        assertFalse(cache.access(16));
+        assertTrue(cache.access(0));
+        assertTrue(cache.access(64));
+    }
+
+    @Test
+    public void testPLRU() {
+        Cache cache = new Cache(64, 16, 4, Replacement.PLRU, null);
+        for (int line = 0; line < 4; line++) {
+            cache.access(line * 16);
+        }
+        // Using line 1 points the root at the other half, where line 3
+        // was used after line 2, so line 2 goes
+        cache.access(16);
+        cache.access(64);
+        assertTrue(cache.access(0));
+        assertTrue(cache.access(16));
+        assertTrue(cache.access(48));
+        assertFalse(cache.access(32));
+    }
+
+    @Test
+    public void testRandomRepeats() {
+        Cache first = new Cache(256, 16, 8, Replacement.RANDOM, null);
+        Cache second = new Cache(256, 16, 8, Replacement.RANDOM, null);
+        for (int i = 0; i < 1000; i++) {
+            int address = (i * 7919) % 1024;
+            assertEquals(first.access(address), second.access(address));
+        }
+        assertEquals(first.getEvictions(), second.getEvictions());
+        first.reset();
+        assertEquals(0, first.getHits() + first.getMisses());
+        assertFalse(first.access(0));
+    }
+
+    @Test
+    public void testSecondLevel() {
+        Cache l2 = new Cache(256, 16, 4, Replacement.LRU, null);
+        Cache l1 = new Cache(32, 16, 1, Replacement.LRU, l2);
+        l1.access(0);
+        l1.access(32);
+        l1.access(0);
+        assertEquals(3, l1.getMisses());
+        assertEquals(2, l2.getMisses());
+        assertEquals(1, l2.getHits());
+    }
+
+    @Test
+    public void testModel() throws IOException {
+        String program[] = { ".data 0", ".word 1, 2, 3, 4, 5, 6, 7, 8", ".text",
+                "      addi $t1, $zero, 8",
+                "loop: addi $t1, $t1, -1",
+                "      lw   $t0, 0($t1)",
+                "      add  $s0, $s0, $t0",
+                "      sw   $s0, 0($t1)",
+                "      beq  $t1, $zero, done",
+                "      j    loop",
+                "done: syscall" };
+        Computer computer = new Computer();
+        Assembler.assemble(new StringReader(String.join("\n", program)), computer);
+        Cache l2 = new Cache(1024, 16, 4, Replacement.LRU, null);
+        CacheModel model = new CacheModel(computer.getInstrMemorySize(),
+                new Cache(256, 16, 2, Replacement.LRU, l2),
+                new Cache(256, 16, 2, Replacement.PLRU, l2));
+        computer.setCacheModel(model);
+        assertEquals(Computer.STATUS_HALTED, computer.execute());
+        assertEquals(36, computer.getRegister(16).getValue());
+
+        // Eight words in two 16 byte lines, each missed by one lw
+        Cache data = model.getDataCache();
+        assertEquals(2, data.getMisses());
+        assertEquals(14, data.getHits());
+        assertEquals(2, model.getDataMisses(8));
+        assertEquals(6, model.getDataHits(8));
+        assertEquals(8, model.getDataHits(16));
+        assertEquals(0, model.getDataMisses(16));
+        // Eight instructions in two lines
+        assertEquals(2, model.getInstrCache().getMisses());
+        assertEquals(1, model.getFetchMisses(0));
+        assertEquals(1, model.getFetchMisses(16));
+        assertEquals(4, l2.getMisses());
+
+        model.reset();
+        assertEquals(0, model.getDataHits(16));
+        assertEquals(0, l2.getMisses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testModelTooSmall() {
+        Computer computer = new Computer();
+        computer.setCacheModel(new CacheModel(1, new Cache(32, 16, 1, Replacement.LRU, null),
+                new Cache(32, 16, 1, Replacement.LRU, null)));
+    }
+
+    @Test
+    public void testDataMemoryLimit() {
+        CacheModel model = new CacheModel(200, new Cache(32, 16, 1, Replacement.LRU, null),
+                new Cache(32, 16, 1, Replacement.LRU, null));
+        /* Data starts at byte 1024, after 800 bytes of instructions */
+        assertEquals((1L << 30) - 256, model.getMaxDataMemorySize());
+        new Computer(200, sized(1 << 29)).setCacheModel(model);
+        try {
+            new Computer(200, sized(1 << 30)).setCacheModel(model);
+            fail("Data memory past 4 GB accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private static DataMemory sized(int words) {
+        return new DataMemory() {
+            @Override
+            public int size() {
+                return words;
+            }
+
+            @Override
+            public int load(int address) {
+                return 0;
+            }
+
+            @Override
+            public void store(int address, int value) {
+            }
+        };
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testBadPC() {
+        CacheModel model = new CacheModel(4, new Cache(32, 16, 1, Replacement.LRU, null),
+                new Cache(32, 16, 1, Replacement.LRU, null));
+        model.getDataHits(2);
+    }
+}
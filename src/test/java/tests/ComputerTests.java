@@ -68,6 +68,26 @@ public class ComputerTests {
         assertEquals(test, computerTest.getInstr(5));
     }
 
+    /**
+     * Checks that loading over an instruction slot replaces what execute runs.
+     * 1. Load add $9, $10, $11 and then overwrite it with and $9, $10, $11
+     * 2. Execute and see if $9 holds the and result
+     */
+    @Test
+    public void testReloadInstr() {
+        computerTest.setRegister(10, 6);
+        computerTest.setRegister(11, 3);
+        BitString addInstr = new BitString();
+        addInstr.setBits("00000001010010110100100000100000".toCharArray());
+        BitString andInstr = new BitString();
+        andInstr.setBits("00000001010010110100100000100100".toCharArray());
+        computerTest.loadInstr(0, addInstr);
+        computerTest.loadInstr(0, andInstr);
+        computerTest.loadInstr(1, halt);
+        computerTest.execute();
+        assertEquals(2, computerTest.getRegister(9).getValue2sComp());
+    }
+
     /**
      * Check if we can set registers out of bounds.
      */
@@ -104,6 +124,36 @@ public class ComputerTests {
     }
 
 
+    /**
+     * Check that a BitString returned by getRegister cannot be changed,
+     * so changing it cannot change the register itself.
+     */
+    @Test
+    public void testGetRegisterIsView() {
+        computerTest.setRegister(4, 7);
+        try {
+            computerTest.getRegister(4).setValue(9);
+            fail("Register view was mutable");
+        } catch (UnsupportedOperationException e) {
+        }
+        assertEquals(7, computerTest.getRegister(4).getValue2sComp());
+        BitString copy = computerTest.getRegister(4).copy();
+        copy.setValue(9);
+        assertEquals(7, computerTest.getRegister(4).getValue2sComp());
+    }
+
+    /**
+     * Check that small words share one view between registers and memory.
+     */
+    @Test
+    public void testViewsAreShared() {
+        computerTest.setRegister(4, 7);
+        computerTest.setRegister(5, 7);
+        computerTest.setDataMemoryAdress(3, 7);
+        assertSame(computerTest.getRegister(4), computerTest.getRegister(5));
+        assertSame(computerTest.getRegister(4), computerTest.getDataMemoryAddress(3));
+    }
+
     /**
      * Check setting an illegal instruction memory address.
      */
@@ -143,6 +193,23 @@ public class ComputerTests {
         }
     }
     
+    /**
+     * Checks that step runs a single instruction and reports the halt.
+     */
+    @Test
+    public void testStep() {
+        computerTest.setRegister(10, 5);
+        computerTest.setRegister(11, 12);
+        BitString addInstr = new BitString();
+        addInstr.setBits("00000001010010110100100000100000".toCharArray());
+        computerTest.loadInstr(0, addInstr);
+        computerTest.loadInstr(1, halt);
+        assertEquals(Computer.STATUS_RUNNING, computerTest.step());
+        assertEquals(4, computerTest.getMyPC().getValue());
+        assertEquals(17, computerTest.getRegister(9).getValue2sComp());
+        assertEquals(Computer.STATUS_HALTED, computerTest.step());
+    }
+
     /**
      * Tests basic functionality of register add.
      * 1. Load instr add $9, $10, $11
@@ -387,6 +454,8 @@ public class ComputerTests {
         beqInstr.setBits("00010001001010100000000000011111".toCharArray());
         computerTest.loadInstr(0, beqInstr);
         computerTest.loadInstr(1, halt);
+        /* Branch target is PC + 4 + 31 * 4 = 128, which is slot 32. */
+        computerTest.loadInstr(32, halt);
         computerTest.execute();
         int newPC = computerTest.getMyPC().getValue();
         assertNotEquals(currentPC, newPC);
@@ -511,6 +580,24 @@ public class ComputerTests {
         return concatenation;
     }
 
+    /**
+     * Checks that a BitString with an instruction format equals the view
+     * of it Computer returns.
+     */
+    @Test
+    public void testFormattedEqualsView() {
+        BitString addi = new BitString(false, true, false);
+        addi.setBits("00100001000010001111111111111111".toCharArray());
+        computerTest.loadInstr(0, addi);
+        assertEquals(addi, computerTest.getInstr(0));
+        assertEquals(addi.hashCode(), computerTest.getInstr(0).hashCode());
+        BitString add = new BitString(true, false, false);
+        add.setValue(5);
+        computerTest.setRegister(4, add);
+        assertEquals(add, computerTest.getRegister(4));
+        assertEquals(add.hashCode(), computerTest.getRegister(4).hashCode());
+    }
+
     /**
      *
      */
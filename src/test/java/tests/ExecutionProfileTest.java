@@ -0,0 +1,106 @@
+package tests;
+
+import computer.Computer;
+import computer.ExecutionEngine;
+import computer.ExecutionProfile;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the execution counters a profile collects.
+ */
+public class ExecutionProfileTest {
+
+    /*
+     * loop: addi $8, $8, -1
+     *       lw   $9, 4($0)
+     *       sw   $9, 5($0)
+     *       beq  $8, $0, done
+     *       j    loop
+     * done: syscall
+     */
+    private final static int LOOP[] = { 0x2108FFFF, 0x8C090004, 0xAC090005, 0x11000001,
+            0x08000000, 0x0000000C };
+
+    private Computer computer;
+    private ExecutionProfile profile;
+
+    @Before
+    public void setUp() {
+        computer = new Computer();
+        for (int i = 0; i < LOOP.length; i++) {
+            computer.loadInstr(i, LOOP[i]);
+        }
+        computer.setRegister(8, 10);
+        profile = new ExecutionProfile(computer.getInstrMemorySize());
+        computer.setProfile(profile);
+    }
+
+    @Test
+    public void testCounts() {
+        assertEquals(Computer.STATUS_HALTED, computer.execute());
+        assertEquals(10 * 4 + 9 + 1, profile.getRetired());
+        assertEquals(10, profile.getCount("addi"));
+        assertEquals(10, profile.getCount("lw"));
+        assertEquals(10, profile.getCount("sw"));
+        assertEquals(10, profile.getCount("beq"));
+        assertEquals(9, profile.getCount("j"));
+        assertEquals(1, profile.getCount("syscall"));
+        assertEquals(0, profile.getCount("add"));
+        assertEquals(1, profile.getBranchesTaken());
+        assertEquals(9, profile.getBranchesNotTaken());
+        assertEquals(10, profile.getPCCount(0));
+        assertEquals(9, profile.getPCCount(16));
+        assertEquals(1, profile.getPCCounts()[5]);
+        assertEquals(0, profile.getPCCounts()[6]);
+    }
+
+    @Test
+    public void testOtherEnginesAreProfiled() {
+        computer.setExecutionEngine(ExecutionEngine.JIT);
+        computer.execute();
+        assertEquals(50, profile.getRetired());
+    }
+
+    @Test
+    public void testStep() {
+        computer.step();
+        computer.step();
+        assertEquals(2, profile.getRetired());
+        assertEquals(1, profile.getCount("lw"));
+    }
+
+    @Test
+    public void testTrapIsNotRetired() {
+        computer.loadInstr(1, 0x8C0903E8); // lw $9, 1000($0)
+        try {
+            computer.execute();
+            fail("Expected the load to trap");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            assertEquals(1, profile.getRetired());
+            assertEquals(0, profile.getPCCount(4));
+        }
+    }
+
+    @Test
+    public void testDetachAndReset() {
+        computer.setProfile(null);
+        computer.execute();
+        assertNull(computer.getProfile());
+        assertEquals(0, profile.getRetired());
+        profile.reset();
+        assertEquals(0, profile.getPCCount(0));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testProfileTooSmall() {
+        computer.setProfile(new ExecutionProfile(10));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testUnknownMnemonic() {
+        profile.getCount("mul");
+    }
+}
@@ -0,0 +1,172 @@
+package tests;
+
+import computer.Computer;
+import computer.Disassembler;
+import computer.ExecutionEngine;
+import computer.FlightRecorder;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the flight recorder ring buffer and the history attached to traps.
+ */
+public class FlightRecorderTest {
+
+    /*
+     *       addi $8, $0, 3
+     * loop: lw   $9, 4($0)
+     *       sw   $9, 5($0)
+     *       addi $8, $8, -1
+     *       beq  $8, $0, done
+     *       j    loop
+     * done: syscall
+     */
+    private final static int LOOP[] = { 0x20080003, 0x8C090004, 0xAC090005, 0x2108FFFF,
+            0x11000001, 0x08000001, 0x0000000C };
+
+    private Computer computer;
+
+    @Before
+    public void setUp() {
+        computer = new Computer();
+        for (int i = 0; i < LOOP.length; i++) {
+            computer.loadInstr(i, LOOP[i]);
+        }
+        computer.setDataMemoryAdress(4, 42);
+    }
+
+    @Test
+    public void testRecordsRetiredInstructions() {
+        computer.execute();
+        FlightRecorder recorder = computer.getFlightRecorder();
+        assertEquals(1 + 3 * 4 + 2 + 1, recorder.getRecorded());
+        assertEquals(recorder.getRecorded(), recorder.size());
+        assertEquals(0, recorder.getPC(0));
+        assertEquals(8, recorder.getDest(0));
+        assertEquals(3, recorder.getValue(0));
+        assertEquals(9, recorder.getDest(1));
+        assertEquals(42, recorder.getValue(1));
+        assertEquals(0, recorder.getDest(2));
+        int last = recorder.size() - 1;
+        assertEquals(24, recorder.getPC(last));
+        assertEquals(0x0000000C, recorder.getWord(last));
+    }
+
+    @Test
+    public void testWrapsAround() {
+        FlightRecorder recorder = new FlightRecorder(3);
+        assertEquals(4, recorder.getCapacity());
+        computer.setFlightRecorder(recorder);
+        computer.execute();
+        assertEquals(16, recorder.getRecorded());
+        assertEquals(4, recorder.size());
+        /* The last four are sw, addi, the taken beq and syscall */
+        assertEquals(8, recorder.getPC(0));
+        assertEquals(12, recorder.getPC(1));
+        assertEquals(0, recorder.getValue(1));
+        assertEquals(16, recorder.getPC(2));
+        assertEquals(24, recorder.getPC(3));
+        recorder.clear();
+        assertEquals(0, recorder.size());
+    }
+
+    @Test
+    public void testTrapGetsHistory() {
+        computer.loadInstr(2, 0xAC0903E8); // sw $9, 1000($0)
+        try {
+            computer.execute();
+            fail("Expected the store to trap");
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, e.getSuppressed().length);
+            String dump = e.getSuppressed()[0].getMessage();
+            assertTrue(dump, dump.startsWith("Last 2 of 2 retired instructions:"));
+            assertTrue(dump, dump.contains("lw $9, 4($0)"));
+            assertTrue(dump, dump.contains("$9 = 42"));
+            assertTrue(dump, dump.contains("Trapped at:"));
+            assertTrue(dump, dump.contains("0x00000008  ac0903e8  sw $9, 1000($0)"));
+        }
+    }
+
+    /**
+     * Runs the loop long enough to be compiled, ending in a trap, and
+     * checks every engine records what the interpreter records.
+     */
+    @Test
+    public void testEveryEngineRecords() {
+        String dumps[] = new String[ExecutionEngine.values().length];
+        FlightRecorder recorders[] = new FlightRecorder[dumps.length];
+        for (ExecutionEngine engine : ExecutionEngine.values()) {
+            Computer computer = new Computer();
+            for (int i = 0; i < LOOP.length; i++) {
+                computer.loadInstr(i, LOOP[i]);
+            }
+            computer.loadInstr(0, 0x20080064); // addi $8, $0, 100
+            computer.loadInstr(6, 0xAC0903E8); // sw $9, 1000($0)
+            computer.setDataMemoryAdress(4, 42);
+            computer.setExecutionEngine(engine);
+            try {
+                computer.execute();
+                fail("Expected the store to trap");
+            } catch (IllegalArgumentException e) {
+                dumps[engine.ordinal()] = e.getSuppressed()[0].getMessage();
+            }
+            recorders[engine.ordinal()] = computer.getFlightRecorder();
+        }
+        FlightRecorder expected = recorders[ExecutionEngine.INTERPRETER.ordinal()];
+        assertEquals(1 + 100 * 4 + 99, expected.getRecorded());
+        for (ExecutionEngine engine : ExecutionEngine.values()) {
+            FlightRecorder actual = recorders[engine.ordinal()];
+            assertEquals(engine.name(), expected.getRecorded(), actual.getRecorded());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(engine.name(), expected.getPC(i), actual.getPC(i));
+                assertEquals(engine.name(), expected.getWord(i), actual.getWord(i));
+                assertEquals(engine.name(), expected.getDest(i), actual.getDest(i));
+                assertEquals(engine.name(), expected.getValue(i), actual.getValue(i));
+            }
+            assertEquals(engine.name(), dumps[0], dumps[engine.ordinal()]);
+        }
+    }
+
+    @Test
+    public void testFetchTrapGetsHistory() {
+        computer = new Computer(2, 10);
+        computer.loadInstr(0, 0x20080003);
+        computer.loadInstr(1, 0x20090004);
+        computer.setExecutionEngine(ExecutionEngine.THREADED);
+        try {
+            computer.execute();
+            fail("Expected the fetch to trap");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            String dump = e.getSuppressed()[0].getMessage();
+            assertTrue(dump, dump.contains("0x00000008  fetch outside instruction memory"));
+        }
+    }
+
+    @Test
+    public void testDisassemble() {
+        assertEquals("add $4, $5, $6", Disassembler.disassemble(0x00A62020));
+        assertEquals("and $12, $9, $10", Disassembler.disassemble(0x012A6024));
+        assertEquals("andi $11, $12, 10", Disassembler.disassemble(0x318B000A));
+        assertEquals("addi $8, $8, -1", Disassembler.disassemble(0x2108FFFF));
+        assertEquals("beq $8, $0, 1", Disassembler.disassemble(0x11000001));
+        assertEquals("j 0x0004", Disassembler.disassemble(0x08000001));
+        assertEquals("jr $31", Disassembler.disassemble(0x03E00008));
+        assertEquals("syscall", Disassembler.disassemble(0x0000000C));
+        assertEquals(".word 0xfc000000", Disassembler.disassemble(0xFC000000));
+    }
+
+    @Test
+    public void testRecordingOff() {
+        computer.setFlightRecorder(null);
+        assertNull(computer.getFlightRecorder());
+        computer.loadInstr(2, 0xAC0903E8); // sw $9, 1000($0)
+        try {
+            computer.execute();
+            fail("Expected the store to trap");
+        } catch (IllegalArgumentException e) {
+            assertEquals(0, e.getSuppressed().length);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package tests;
+
+import computer.Computer;
+import computer.ExecutionEngine;
+import computer.MappedMemory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import static tests.LoopProgram.loopComputer;
+
+/**
+ * Tests forking a computer part way through a program.
+ */
+public class ForkTest {
+
+    @Test
+    public void testForkRunsLikeParent() {
+        Computer parent = loopComputer(20);
+        for (int i = 0; i < 30; i++) {
+            parent.step();
+        }
+        Computer child = parent.fork();
+        assertEquals(parent.getMyPC(), child.getMyPC());
+        parent.execute();
+        child.execute();
+        for (int i = 0; i <= 20; i++) {
+            assertEquals(parent.getDataMemoryAddress(i).getValue(),
+                    child.getDataMemoryAddress(i).getValue());
+        }
+        assertEquals(parent.getRegister(9).getValue(), child.getRegister(9).getValue());
+    }
+
+    @Test
+    public void testChildrenDiverge() {
+        Computer parent = loopComputer(20);
+        Computer first = parent.fork();
+        Computer second = parent.fork();
+        first.setRegister(10, 5);
+        second.setExecutionEngine(ExecutionEngine.THREADED);
+        first.execute();
+        second.execute();
+        assertEquals(10, parent.getDataMemoryAddress(1).getValue());
+        assertEquals(100, parent.getDataMemoryAddress(10).getValue());
+        assertEquals(13, first.getDataMemoryAddress(1).getValue());
+        assertEquals(100, first.getDataMemoryAddress(10).getValue());
+        assertEquals(103, second.getDataMemoryAddress(10).getValue());
+        assertEquals(20, parent.getRegister(10).getValue());
+    }
+
+    @Test
+    public void testInstructionsCopiedOnWrite() {
+        Computer parent = loopComputer(4);
+        Computer child = parent.fork();
+        /* addi $9, $9, 5 in the child only */
+        child.loadInstr(1, 0x21290005);
+        assertEquals(0x21290003, parent.getInstr(1).getValue());
+        parent.execute();
+        child.execute();
+        assertEquals(13, parent.getDataMemoryAddress(1).getValue());
+        assertEquals(15, child.getDataMemoryAddress(1).getValue());
+        /* The parent still owns its copy after the child took its own */
+        parent.loadInstr(1, 0x21290007);
+        assertEquals(0x21290005, child.getInstr(1).getValue());
+    }
+
+    @Test
+    public void testJitForksShareBlocks() {
+        Computer parent = loopComputer(40);
+        parent.setExecutionEngine(ExecutionEngine.JIT);
+        Computer same = parent.fork();
+        Computer changed = parent.fork();
+        /* Compiles the loop into the tables the forks share */
+        parent.execute();
+        /* addi $9, $9, 5 must not run the block compiled with 3 */
+        changed.loadInstr(1, 0x21290005);
+        same.execute();
+        changed.execute();
+        assertEquals(13, same.getDataMemoryAddress(1).getValue());
+        assertEquals(403, same.getDataMemoryAddress(40).getValue());
+        assertEquals(15, changed.getDataMemoryAddress(1).getValue());
+        assertEquals(405, changed.getDataMemoryAddress(40).getValue());
+        assertEquals(403, parent.getDataMemoryAddress(40).getValue());
+    }
+
+    @Test
+    public void testForkIsCheap() {
+        Computer parent = new Computer(200, Integer.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            parent.setDataMemoryAdress(i * 4096, i);
+        }
+        Computer children[] = new Computer[1000];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = parent.fork();
+        }
+        children[7].setDataMemoryAdress(4096, 99);
+        assertEquals(99, children[7].getDataMemoryAddress(4096).getValue());
+        assertEquals(1, children[8].getDataMemoryAddress(4096).getValue());
+        assertEquals(1, parent.getDataMemoryAddress(4096).getValue());
+    }
+
+    @Test (expected = UnsupportedOperationException.class)
+    public void testMappedMemoryCannotFork() throws IOException {
+        Path image = Files.createTempFile("image", ".bin");
+        try (MappedMemory memory = new MappedMemory(image, 500)) {
+            new Computer(200, memory).fork();
+        } finally {
+            Files.delete(image);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package tests;
+
+import computer.Assembler;
+import computer.BitString;
+import computer.Computer;
+import computer.ExecutionEngine;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the JIT engine gives the same results and traps as the
+ * interpreter.
+ */
+public class JitEngineTest {
+
+    /*
+     * loop: add  $4, $5, $6
+     *       and  $12, $9, $10
+     *       andi $11, $12, 10
+     *       lw   $14, 5($0)
+     *       sw   $14, 6($0)
+     *       addi $8, $8, -1
+     *       beq  $8, $0, done
+     *       j    loop
+     * done: syscall
+     */
+    private final static String LOOP[] = { "00000000101001100010000000100000",
+            "00000001001010100110000000100100", "00110001100010110000000000001010",
+            "10001100000011100000000000000101", "10101100000011100000000000000110",
+            "00100001000010001111111111111111", "00010001000000000000000000000001",
+            "00001000000000000000000000000000", "00000000000000000000000000001100" };
+
+    private Computer loopComputer(ExecutionEngine engine, int iterations) {
+        Computer computer = new Computer();
+        computer.setExecutionEngine(engine);
+        for (int i = 0; i < LOOP.length; i++) {
+            BitString instr = new BitString();
+            instr.setBits(LOOP[i].toCharArray());
+            computer.loadInstr(i, instr);
+        }
+        computer.setRegister(5, 1);
+        computer.setRegister(6, 2);
+        computer.setRegister(9, 7);
+        computer.setRegister(10, 3);
+        computer.setRegister(8, iterations);
+        computer.setDataMemoryAdress(5, 42);
+        return computer;
+    }
+
+    /**
+     * Runs the loop long enough to be compiled and compares every register
+     * and the PC with the interpreter.
+     */
+    @Test
+    public void testLoopMatchesInterpreter() {
+        Computer interpreted = loopComputer(ExecutionEngine.INTERPRETER, 1000);
+        Computer compiled = loopComputer(ExecutionEngine.JIT, 1000);
+        interpreted.execute();
+        assertEquals(Computer.STATUS_HALTED, compiled.execute());
+        for (int i = 0; i < 32; i++) {
+            assertEquals(interpreted.getRegister(i), compiled.getRegister(i));
+        }
+        assertEquals(interpreted.getMyPC(), compiled.getMyPC());
+        assertEquals(42, compiled.getDataMemoryAddress(6).getValue2sComp());
+    }
+
+    /**
+     * Puts jr $31 after the syscall of the loop so running again restarts
+     * the loop, which is compiled by then.
+     */
+    private void restartLoop(Computer computer, int iterations) {
+        BitString jr = new BitString();
+        jr.setBits("00000011111000000000000000001000".toCharArray());
+        computer.loadInstr(9, jr);
+        computer.setRegister(8, iterations);
+    }
+
+    /**
+     * Lets a compiled block overflow in add and checks the trap and the PC
+     * it leaves behind.
+     */
+    @Test
+    public void testOverflowInCompiledBlock() {
+        Computer computer = loopComputer(ExecutionEngine.JIT, 1000);
+        computer.execute();
+        restartLoop(computer, 1000);
+        computer.setRegister(5, Integer.MAX_VALUE);
+        try {
+            computer.execute();
+            fail("Compiled add does not trap on overflow.");
+        } catch (IllegalArgumentException ie) {
+        }
+        assertEquals(4, computer.getMyPC().getValue());
+    }
+
+    /**
+     * Replaces an instruction inside a compiled block and checks that the
+     * new instruction is the one that runs.
+     */
+    @Test
+    public void testLoadInstrInvalidatesBlock() {
+        Computer computer = loopComputer(ExecutionEngine.JIT, 1000);
+        computer.execute();
+        assertEquals(3, computer.getRegister(4).getValue2sComp());
+        // Replace add $4, $5, $6 with and $4, $5, $6
+        BitString and = new BitString();
+        and.setBits("00000000101001100010000000100100".toCharArray());
+        computer.loadInstr(0, and);
+        restartLoop(computer, 1000);
+        computer.execute();
+        assertEquals(0, computer.getRegister(4).getValue2sComp());
+    }
+
+    /**
+     * Runs an ll/sc increment loop long enough to be compiled and checks
+     * that the block holding the sc compiles and matches the interpreter.
+     */
+    @Test
+    public void testLinkedBlockCompiles() throws IOException {
+        Computer interpreted = linkedComputer(ExecutionEngine.INTERPRETER);
+        Computer compiled = linkedComputer(ExecutionEngine.JIT);
+        interpreted.execute();
+        assertEquals(Computer.STATUS_HALTED, compiled.execute());
+        // The loop up to the beq and the j back to it
+        assertEquals(2, compiled.getCompiledBlockCount());
+        for (int i = 0; i < 32; i++) {
+            assertEquals(interpreted.getRegister(i), compiled.getRegister(i));
+        }
+        assertEquals(interpreted.getMyPC(), compiled.getMyPC());
+        assertEquals(1000, compiled.getDataMemoryAddress(3).getValue2sComp());
+    }
+
+    private Computer linkedComputer(ExecutionEngine engine) throws IOException {
+        Computer computer = new Computer();
+        Assembler.assemble(new StringReader(String.join("\n",
+                "loop: ll   $t0, 3($zero)",
+                "      addi $t0, $t0, 1",
+                "      sc   $t0, 3($zero)",
+                "      addi $t1, $t1, -1",
+                "      beq  $t1, $zero, done",
+                "      j    loop",
+                "done: syscall")), computer);
+        computer.setExecutionEngine(engine);
+        computer.setRegister(9, 1000);
+        return computer;
+    }
+}
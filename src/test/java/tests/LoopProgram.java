@@ -0,0 +1,43 @@
+package tests;
+
+import computer.Computer;
+
+/**
+ * The program the trace, fork, undo and loader tests run: it adds 3 to
+ * each of a run of data memory words, walking down from the last.
+ */
+final class LoopProgram {
+
+    /*
+     * loop: lw   $9, 0($10)
+     *       addi $9, $9, 3
+     *       sw   $9, 0($10)
+     *       addi $10, $10, -1
+     *       beq  $10, $0, done
+     *       j    loop
+     * done: syscall
+     */
+    static final int LOOP[] = { 0x8D490000, 0x21290003, 0xAD490000, 0x214AFFFF,
+            0x11400001, 0x08000000, 0x0000000C };
+
+    private LoopProgram() {
+    }
+
+    /**
+     * Returns a computer loaded with the loop over M[1] to M[words], where
+     * M[i] starts as i * 10.
+     * @param words number of words the loop updates
+     * @return the computer, ready to run from PC 0
+     */
+    static Computer loopComputer(int words) {
+        Computer computer = new Computer();
+        for (int i = 0; i < LOOP.length; i++) {
+            computer.loadInstr(i, LOOP[i]);
+        }
+        computer.setRegister(10, words);
+        for (int i = 1; i <= words; i++) {
+            computer.setDataMemoryAdress(i, i * 10);
+        }
+        return computer;
+    }
+}
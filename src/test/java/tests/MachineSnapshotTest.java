@@ -0,0 +1,250 @@
+package tests;
+
+import computer.Computer;
+import computer.DataMemory;
+import computer.ExecutionEngine;
+import computer.MachineSnapshot;
+import computer.MappedMemory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests capturing, saving and restoring the whole state of a computer.
+ */
+public class MachineSnapshotTest {
+
+    /*
+     * loop: lw   $9, 0($10)
+     *       addi $9, $9, 3
+     *       sw   $9, 0($10)
+     *       addi $10, $10, -1
+     *       beq  $10, $0, done
+     *       j    loop
+     * done: syscall
+     */
+    private final static int LOOP[] = { 0x8D490000, 0x21290003, 0xAD490000, 0x214AFFFF,
+            0x11400001, 0x08000000, 0x0000000C };
+
+    private static void load(Computer computer) {
+        for (int i = 0; i < LOOP.length; i++) {
+            computer.loadInstr(i, LOOP[i]);
+        }
+        computer.setRegister(10, 20);
+        for (int i = 1; i <= 20; i++) {
+            computer.setDataMemoryAdress(i, i % 7 == 0 ? 0 : i);
+        }
+        computer.setDataMemoryAdress(450, 77);
+    }
+
+    private static void assertSameState(Computer expected, Computer actual) {
+        assertEquals(expected.getMyPC(), actual.getMyPC());
+        for (int i = 0; i < 32; i++) {
+            assertEquals("$" + i, expected.getRegister(i), actual.getRegister(i));
+        }
+        for (int i = 0; i < expected.getInstrMemorySize(); i++) {
+            assertEquals("slot " + i, expected.getInstr(i), actual.getInstr(i));
+        }
+        for (int i = 0; i < expected.getDataMemorySize(); i++) {
+            assertEquals("M[" + i + "]", expected.getDataMemoryAddress(i),
+                    actual.getDataMemoryAddress(i));
+        }
+    }
+
+    @Test
+    public void testRestoreMidRun() {
+        Computer computer = new Computer();
+        load(computer);
+        for (int i = 0; i < 25; i++) {
+            computer.step();
+        }
+        MachineSnapshot snapshot = MachineSnapshot.capture(computer);
+        Computer copy = snapshot.restore();
+        assertSameState(computer, copy);
+        computer.execute();
+        copy.execute();
+        assertSameState(computer, copy);
+        assertEquals(4, copy.getDataMemoryAddress(1).getValue());
+    }
+
+    @Test
+    public void testRestoreIntoUsedComputer() {
+        Computer computer = new Computer();
+        load(computer);
+        MachineSnapshot snapshot = MachineSnapshot.capture(computer);
+        computer.setExecutionEngine(ExecutionEngine.JIT);
+        computer.execute();
+        computer.loadInstr(150, 0x20080001);
+        computer.setDataMemoryAdress(300, 9);
+
+        Computer fresh = new Computer();
+        load(fresh);
+        snapshot.restoreInto(computer);
+        assertSameState(fresh, computer);
+        assertEquals(ExecutionEngine.JIT, computer.getExecutionEngine());
+        computer.execute();
+        fresh.execute();
+        assertSameState(fresh, computer);
+    }
+
+    @Test
+    public void testFileRoundTrip() throws IOException {
+        Computer computer = new Computer();
+        load(computer);
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            MachineSnapshot.capture(computer).write(file);
+            MachineSnapshot snapshot = MachineSnapshot.read(file);
+            assertEquals(Files.size(file), snapshot.size());
+            assertSameState(computer, snapshot.restore());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testZeroRunsElided() {
+        Computer computer = new Computer(200, Integer.MAX_VALUE);
+        computer.setDataMemoryAdress(5, 1);
+        computer.setDataMemoryAdress(Integer.MAX_VALUE - 1, 2);
+        MachineSnapshot snapshot = MachineSnapshot.capture(computer);
+        /* Header, registers, two empty-ish sections with one word regions */
+        assertEquals(4 * (12 + 32 + 1 + 1 + 2 * 3), snapshot.size());
+        Computer copy = snapshot.restore();
+        assertEquals(1, copy.getDataMemoryAddress(5).getValue());
+        assertEquals(2, copy.getDataMemoryAddress(Integer.MAX_VALUE - 1).getValue());
+        assertEquals(0, copy.getDataMemoryAddress(6).getValue());
+    }
+
+    @Test
+    public void testMappedMemory() throws IOException {
+        Path image = Files.createTempFile("image", ".bin");
+        try (MappedMemory memory = new MappedMemory(image, 500)) {
+            Computer computer = new Computer(200, memory);
+            load(computer);
+            MachineSnapshot snapshot = MachineSnapshot.capture(computer);
+            computer.execute();
+            snapshot.restoreInto(computer);
+            Computer fresh = new Computer();
+            load(fresh);
+            assertSameState(fresh, computer);
+            assertEquals(77, memory.load(450));
+        } finally {
+            Files.delete(image);
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testSizesMustMatch() {
+        MachineSnapshot.capture(new Computer()).restoreInto(new Computer(100, 500));
+    }
+
+    @Test (expected = IOException.class)
+    public void testNotASnapshot() throws IOException {
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            Files.write(file, new byte[400]);
+            MachineSnapshot.read(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * A memory with no zero words past 2^29 cannot fit in one snapshot.
+     */
+    @Test
+    public void testTooLargeRejected() {
+        DataMemory full = new DataMemory() {
+            @Override
+            public int size() {
+                return (1 << 29) + 1;
+            }
+
+            @Override
+            public int load(int address) {
+                return 1;
+            }
+
+            @Override
+            public void store(int address, int value) {
+            }
+        };
+        try {
+            MachineSnapshot.capture(new Computer(200, full));
+            fail("Snapshot over 2 GB captured");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("2 GB"));
+        }
+    }
+
+    /**
+     * An ll run before a restore does not link the restored state.
+     */
+    @Test
+    public void testRestoreDropsLink() {
+        /* ll $8, 0($0); sc $9, 0($0); syscall */
+        int program[] = { 0xC0080000, 0xE0090000, 0x0000000C };
+        Computer captured = new Computer();
+        Computer reused = new Computer();
+        for (int i = 0; i < program.length; i++) {
+            captured.loadInstr(i, program[i]);
+            reused.loadInstr(i, program[i]);
+        }
+        captured.step();
+        captured.setRegister(9, 5);
+        MachineSnapshot snapshot = MachineSnapshot.capture(captured);
+        reused.step();
+        snapshot.restoreInto(reused);
+        reused.step();
+        assertEquals(0, reused.getRegister(9).getValue());
+        assertEquals(0, reused.getDataMemoryAddress(0).getValue());
+    }
+
+    /**
+     * Trap mode, the vector and the trap registers are restored, replacing
+     * those of a used computer.
+     */
+    @Test
+    public void testTrapStateRestored() throws IOException {
+        /* lw $9, 1000($0); syscall; addi $8, $0, 1 at the vector */
+        int program[] = { 0x8C0903E8, 0x0000000C, 0x20080001 };
+        Computer captured = new Computer();
+        for (int i = 0; i < program.length; i++) {
+            captured.loadInstr(i, program[i]);
+        }
+        captured.setTrapMode(true);
+        captured.setExceptionVector(8);
+        captured.step();
+        Computer reused = new Computer();
+        MachineSnapshot snapshot = MachineSnapshot.capture(captured);
+        snapshot.restoreInto(reused);
+        assertTrue(reused.isTrapMode());
+        assertEquals(8, reused.getExceptionVector());
+        assertEquals(Computer.CAUSE_ADDRESS_LOAD, reused.getTrapCause());
+        assertEquals(0, reused.getEPC());
+        assertEquals(1000, reused.getBadAddress());
+
+        Computer fresh = new Computer();
+        fresh.setTrapMode(true);
+        fresh.setExceptionVector(4);
+        MachineSnapshot.capture(fresh).restoreInto(reused);
+        assertEquals(4, reused.getExceptionVector());
+        assertEquals(Computer.CAUSE_NONE, reused.getTrapCause());
+        assertEquals(0, reused.getBadAddress());
+
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            snapshot.write(file);
+            Computer copy = MachineSnapshot.read(file).restore();
+            assertTrue(copy.isTrapMode());
+            assertEquals(1000, copy.getBadAddress());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package tests;
+
+import computer.BitString;
+import computer.Computer;
+import computer.MappedMemory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests data memory backed by a mapped image file.
+ */
+public class MappedMemoryTest {
+
+    /**
+     * Words of an image file are read big-endian and written back on flush.
+     */
+    @Test
+    public void testImageReadAndFlush() throws IOException {
+        Path image = Files.createTempFile("image", ".bin");
+        try {
+            Files.write(image, ByteBuffer.allocate(16).putInt(0, 7).putInt(12, -2).array());
+            try (MappedMemory memory = new MappedMemory(image)) {
+                assertEquals(4, memory.size());
+                assertEquals(7, memory.load(0));
+                assertEquals(-2, memory.load(3));
+                memory.store(1, 0x01020304);
+                memory.flush();
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(image));
+            assertEquals(0x01020304, bytes.getInt(4));
+        } finally {
+            Files.delete(image);
+        }
+    }
+
+    /**
+     * Runs lw and sw on a computer whose data memory is a mapped file.
+     * 1. lw $11, 2($0)
+     * 2. sw $11, 3($0)
+     */
+    @Test
+    public void testComputerOnMappedMemory() throws IOException {
+        Path image = Files.createTempFile("image", ".bin");
+        try (MappedMemory memory = new MappedMemory(image, 1000)) {
+            memory.store(2, 99);
+            Computer computer = new Computer(8, memory);
+            String program[] = { "10001100000010110000000000000010",
+                    "10101100000010110000000000000011", "00000000000000000000000000001100" };
+            for (int i = 0; i < program.length; i++) {
+                BitString instr = new BitString();
+                instr.setBits(program[i].toCharArray());
+                computer.loadInstr(i, instr);
+            }
+            computer.execute();
+            assertEquals(99, computer.getRegister(11).getValue2sComp());
+            assertEquals(99, memory.load(3));
+        } finally {
+            Files.delete(image);
+        }
+    }
+}
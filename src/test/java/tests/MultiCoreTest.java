@@ -0,0 +1,117 @@
+package tests;
+
+import computer.Assembler;
+import computer.Computer;
+import computer.Disassembler;
+import computer.ExecutionEngine;
+import computer.MultiCore;
+import computer.SharedMemory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests ll and sc, SharedMemory and running cores on threads.
+ */
+public class MultiCoreTest {
+
+    /** Adds 1 to M[0] INCREMENTS times with an ll/sc retry loop. */
+    private final static String COUNTER[] = {
+            "      addi $t1, $zero, 1000",
+            "loop: ll   $t0, 0($zero)",
+            "      addi $t0, $t0, 1",
+            "      sc   $t0, 0($zero)",
+            "      beq  $t0, $zero, loop",
+            "      addi $t1, $t1, -1",
+            "      beq  $t1, $zero, done",
+            "      j    loop",
+            "done: syscall" };
+
+    private static Computer boot(String... lines) throws IOException {
+        Computer computer = new Computer(200, new SharedMemory(64));
+        Assembler.assemble(new StringReader(String.join("\n", lines)), computer);
+        return computer;
+    }
+
+    @Test
+    public void testStoreConditional() throws IOException {
+        Computer computer = boot(
+                "sc   $t0, 1($zero)",      // no link: fails
+                "ll   $t1, 1($zero)",
+                "addi $t2, $zero, 7",
+                "sw   $t2, 1($zero)",
+                "sc   $t2, 1($zero)",      // word changed: fails
+                "ll   $t1, 1($zero)",
+                "addi $t3, $zero, 9",
+                "sc   $t3, 2($zero)",      // other word: fails
+                "ll   $t1, 1($zero)",
+                "addi $t4, $zero, 5",
+                "sc   $t4, 1($zero)",      // stores
+                "sc   $t1, 1($zero)",      // link used up: fails
+                "syscall");
+        computer.execute();
+        assertEquals(0, computer.getRegister(8).getValue());
+        assertEquals(0, computer.getRegister(10).getValue());
+        assertEquals(0, computer.getRegister(11).getValue());
+        assertEquals(1, computer.getRegister(12).getValue());
+        assertEquals(0, computer.getRegister(9).getValue());
+        assertEquals(5, computer.getDataMemoryAddress(1).getValue());
+        assertEquals(0, computer.getDataMemoryAddress(2).getValue());
+    }
+
+    @Test
+    public void testDisassemble() {
+        assertEquals("ll $8, 4($9)", Disassembler.disassemble(0xC1280004));
+        assertEquals("sc $8, -1($9)", Disassembler.disassemble(0xE128FFFF));
+    }
+
+    @Test
+    public void testCoreNumbers() throws IOException, InterruptedException {
+        MultiCore cores = new MultiCore(boot("sw $a0, 8($a0)", "syscall"), 4);
+        assertEquals(4, cores.getCoreCount());
+        cores.execute();
+        for (int core = 0; core < 4; core++) {
+            assertEquals(core, cores.getCore(core).getRegister(4).getValue());
+            assertEquals(core, cores.getCore(0).getDataMemoryAddress(8 + core).getValue());
+        }
+    }
+
+    @Test
+    public void testAtomicCounter() throws IOException, InterruptedException {
+        for (ExecutionEngine engine : ExecutionEngine.values()) {
+            Computer boot = boot(COUNTER);
+            boot.setExecutionEngine(engine);
+            MultiCore cores = new MultiCore(boot, 4);
+            cores.execute();
+            assertEquals(engine.toString(), 4000, boot.getDataMemoryAddress(0).getValue());
+        }
+    }
+
+    @Test
+    public void testTrap() throws IOException, InterruptedException {
+        // Core 2 stores past the end of memory
+        MultiCore cores = new MultiCore(boot(
+                "addi $t0, $zero, 2",
+                "beq  $a0, $t0, bad",
+                "syscall",
+                "bad: sw $t0, 100($zero)",
+                "syscall"), 3);
+        try {
+            cores.execute();
+            fail("core 2 should trap");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        // The other cores still ran to their syscall
+        assertEquals(12, cores.getCore(0).getMyPC().getValue());
+        assertEquals(12, cores.getCore(1).getMyPC().getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNeedsSharedMemory() {
+        new MultiCore(new Computer(), 2);
+    }
+}
@@ -0,0 +1,95 @@
+package tests;
+
+import computer.BitString;
+import computer.Computer;
+import computer.PagedMemory;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the paged data memory.
+ */
+public class PagedMemoryTest {
+
+    /**
+     * Reads of untouched memory are 0 and allocate nothing.
+     */
+    @Test
+    public void testUntouchedReadsZero() {
+        PagedMemory memory = new PagedMemory(Integer.MAX_VALUE);
+        assertEquals(0, memory.load(0));
+        assertEquals(0, memory.load(0x7FFFFFFC));
+        assertEquals(0, memory.getPageCount());
+    }
+
+    /**
+     * Writes far apart allocate one page each and read back.
+     */
+    @Test
+    public void testPagesAllocatedOnWrite() {
+        PagedMemory memory = new PagedMemory(Integer.MAX_VALUE);
+        memory.store(0x10010000, 7);
+        memory.store(0x7FFFFFFC, -3);
+        memory.store(0x10010001, 8);
+        assertEquals(2, memory.getPageCount());
+        assertEquals(7, memory.load(0x10010000));
+        assertEquals(8, memory.load(0x10010001));
+        assertEquals(-3, memory.load(0x7FFFFFFC));
+        assertEquals(0, memory.load(0x10010000 + PagedMemory.PAGE_SIZE));
+    }
+
+    /**
+     * A fork shares pages until one side writes them.
+     */
+    @Test
+    public void testForkCopiesOnWrite() {
+        PagedMemory memory = new PagedMemory(Integer.MAX_VALUE);
+        memory.store(5, 1);
+        memory.store(0x10010000, 2);
+        PagedMemory fork = memory.fork();
+        assertEquals(0, fork.getPrivatePageCount());
+        assertEquals(1, fork.load(5));
+        fork.store(5, 3);
+        assertEquals(1, fork.getPrivatePageCount());
+        assertEquals(3, fork.load(5));
+        assertEquals(1, memory.load(5));
+        memory.store(0x10010000, 4);
+        assertEquals(1, memory.getPrivatePageCount());
+        assertEquals(2, fork.load(0x10010000));
+        fork.store(0x7FFFFFFC, 6);
+        assertEquals(3, fork.getPageCount());
+        assertEquals(0, memory.load(0x7FFFFFFC));
+    }
+
+    /**
+     * Addresses outside the memory are rejected.
+     */
+    @Test (expected = ArrayIndexOutOfBoundsException.class)
+    public void testOutOfRange() {
+        PagedMemory memory = new PagedMemory(500);
+        memory.store(500, 1);
+    }
+
+    /**
+     * Runs sw and lw near the top of a full size data memory.
+     * 1. sw $9, 0($10) with $10 = 0x7FFFFFFC
+     * 2. lw $11, 0($10)
+     */
+    @Test
+    public void testComputerHighAddresses() {
+        Computer computer = new Computer(16, Integer.MAX_VALUE);
+        String program[] = { "10101101010010010000000000000000",
+                "10001101010010110000000000000000", "00000000000000000000000000001100" };
+        for (int i = 0; i < program.length; i++) {
+            BitString instr = new BitString();
+            instr.setBits(program[i].toCharArray());
+            computer.loadInstr(i, instr);
+        }
+        computer.setRegister(9, 1234);
+        computer.setRegister(10, 0x7FFFFFFC);
+        computer.execute();
+        assertEquals(1234, computer.getRegister(11).getValue2sComp());
+        assertEquals(1234, computer.getDataMemoryAddress(0x7FFFFFFC).getValue2sComp());
+    }
+}
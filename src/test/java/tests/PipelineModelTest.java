@@ -0,0 +1,115 @@
+package tests;
+
+import computer.Assembler;
+import computer.Computer;
+import computer.PipelineModel;
+import computer.PipelineModel.BranchResolution;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the cycle counts of the five stage pipeline model.
+ */
+public class PipelineModelTest {
+
+    private static PipelineModel time(PipelineModel model, String... lines) throws IOException {
+        Computer computer = new Computer();
+        Assembler.assemble(new StringReader(String.join("\n", lines)), computer);
+        computer.setPipelineModel(model);
+        assertEquals(Computer.STATUS_HALTED, computer.execute());
+        return model;
+    }
+
+    @Test
+    public void testNoHazards() throws IOException {
+        PipelineModel model = time(new PipelineModel(),
+                "addi $t0, $zero, 1", "addi $t1, $zero, 2", "addi $t2, $zero, 3",
+                "addi $t3, $zero, 4", "syscall");
+        assertEquals(5, model.getInstructions());
+        assertEquals(9, model.getCycles());
+        assertEquals(1.8, model.getCPI(), 1e-9);
+    }
+
+    @Test
+    public void testForwarding() throws IOException {
+        String program[] = { "addi $t0, $zero, 1", "add $t1, $t0, $t0", "add $t2, $t0, $t1",
+                "syscall" };
+        PipelineModel forwarded = time(new PipelineModel(), program);
+        assertEquals(8, forwarded.getCycles());
+        assertEquals(0, forwarded.getDataStalls());
+        /* Each add waits for the write back of the one before it */
+        PipelineModel stalled = time(new PipelineModel(false, BranchResolution.ID), program);
+        assertEquals(4, stalled.getDataStalls());
+        assertEquals(12, stalled.getCycles());
+    }
+
+    @Test
+    public void testLoadUse() throws IOException {
+        String program[] = { "lw $t0, 4($zero)", "add $t1, $t0, $t0", "sw $t0, 5($zero)",
+                "syscall" };
+        PipelineModel forwarded = time(new PipelineModel(), program);
+        assertEquals(1, forwarded.getLoadUseStalls());
+        assertEquals(9, forwarded.getCycles());
+        PipelineModel stalled = time(new PipelineModel(false, BranchResolution.EX), program);
+        assertEquals(2, stalled.getLoadUseStalls());
+    }
+
+    @Test
+    public void testBranches() throws IOException {
+        String program[] = { "addi $t0, $zero, 1", "beq $zero, $zero, skip", "nop",
+                "skip: beq $t0, $zero, 5",
+                "j end", "nop", "end: syscall" };
+        /* One taken branch, one not taken and a jump */
+        PipelineModel id = time(new PipelineModel(true, BranchResolution.ID), program);
+        assertEquals(1, id.getBranchStalls());
+        assertEquals(1, id.getJumpStalls());
+        assertEquals(5 + 4 + 2, id.getCycles());
+        PipelineModel ex = time(new PipelineModel(true, BranchResolution.EX), program);
+        assertEquals(2, ex.getBranchStalls());
+        assertEquals(5 + 4 + 3, ex.getCycles());
+    }
+
+    @Test
+    public void testBranchOperandsInID() throws IOException {
+        String program[] = { "addi $t0, $zero, 1", "beq $t0, $zero, 1", "lw $t1, 0($zero)",
+                "beq $t1, $t0, 1", "syscall" };
+        PipelineModel id = time(new PipelineModel(true, BranchResolution.ID), program);
+        assertEquals(1, id.getDataStalls());
+        assertEquals(2, id.getLoadUseStalls());
+        PipelineModel ex = time(new PipelineModel(true, BranchResolution.EX), program);
+        assertEquals(0, ex.getDataStalls());
+        assertEquals(1, ex.getLoadUseStalls());
+    }
+
+    @Test
+    public void testLoopResultsUnchanged() throws IOException {
+        String program[] = { ".data 1", ".word 10, 20, 30", ".text",
+                "      addi $t1, $zero, 3",
+                "loop: lw   $t0, 0($t1)",
+                "      add  $s0, $s0, $t0",
+                "      addi $t1, $t1, -1",
+                "      beq  $t1, $zero, done",
+                "      j    loop",
+                "done: syscall" };
+        Computer computer = new Computer();
+        Assembler.assemble(new StringReader(String.join("\n", program)), computer);
+        PipelineModel model = new PipelineModel();
+        computer.setPipelineModel(model);
+        computer.execute();
+        assertEquals(60, computer.getRegister(16).getValue());
+        assertEquals(1 + 3 * 5 - 1 + 1, model.getInstructions());
+        /* A load-use stall per iteration, a jump on the first two and the taken exit */
+        assertEquals(3, model.getLoadUseStalls());
+        assertEquals(2, model.getJumpStalls());
+        assertEquals(1, model.getBranchStalls());
+        /* addi feeds the beq right behind it */
+        assertEquals(3, model.getDataStalls());
+        assertEquals(model.getInstructions() + 4 + 3 + 2 + 1 + 3, model.getCycles());
+        model.reset();
+        assertEquals(0, model.getCycles());
+    }
+}
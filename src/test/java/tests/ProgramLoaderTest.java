@@ -0,0 +1,132 @@
+package tests;
+
+import computer.Computer;
+import computer.ProgramLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import static tests.LoopProgram.LOOP;
+
+/**
+ * Tests loading program images from binary and hex files.
+ */
+public class ProgramLoaderTest {
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("images");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private Path write(String name, int... words) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(words.length * 4);
+        bytes.asIntBuffer().put(words);
+        return Files.write(dir.resolve(name), bytes.array());
+    }
+
+    @Test
+    public void testRawBinary() throws IOException {
+        Computer computer = new Computer();
+        computer.setRegister(10, 2);
+        computer.setDataMemoryAdress(1, 5);
+        computer.setDataMemoryAdress(2, 6);
+        assertEquals(7, ProgramLoader.load(write("loop.bin", LOOP), computer));
+        assertEquals(0x214AFFFF, computer.getInstr(3).getValue());
+        computer.execute();
+        assertEquals(8, computer.getDataMemoryAddress(1).getValue());
+        assertEquals(9, computer.getDataMemoryAddress(2).getValue());
+    }
+
+    @Test
+    public void testBinaryWithHeader() throws IOException {
+        int image[] = new int[7 + 1 + LOOP.length + 3];
+        int header[] = { ProgramLoader.MAGIC, ProgramLoader.VERSION, 0, LOOP.length, 1, 3,
+                1 << 10, 3 };
+        System.arraycopy(header, 0, image, 0, header.length);
+        System.arraycopy(LOOP, 0, image, header.length, LOOP.length);
+        image[header.length + LOOP.length] = -10;
+        image[header.length + LOOP.length + 1] = 20;
+        image[header.length + LOOP.length + 2] = 30;
+        Computer computer = new Computer();
+        assertEquals(LOOP.length, ProgramLoader.load(write("loop.bin", image), computer));
+        assertEquals(3, computer.getRegister(10).getValue());
+        computer.execute();
+        assertEquals(-7, computer.getDataMemoryAddress(1).getValue2sComp());
+        assertEquals(23, computer.getDataMemoryAddress(2).getValue());
+        assertEquals(33, computer.getDataMemoryAddress(3).getValue());
+    }
+
+    @Test
+    public void testHex() throws IOException {
+        String text = "# the loop, one word per line\n"
+                + ".reg $10 2\n"
+                + ".text 4\n"
+                + "8d490000 21290003\n"
+                + "0xad490000, 214affff # two on a line\n"
+                + "11400001\n08000004\n0000000c\n"
+                + ".data 0x1\n5\n6\n";
+        Path file = Files.write(dir.resolve("loop.hex"), text.getBytes(StandardCharsets.US_ASCII));
+        Computer computer = new Computer();
+        assertEquals(7, ProgramLoader.load(file, computer));
+        assertEquals(16, computer.getMyPC().getValue());
+        assertEquals(0, computer.getInstr(0).getValue());
+        computer.execute();
+        assertEquals(8, computer.getDataMemoryAddress(1).getValue());
+        assertEquals(9, computer.getDataMemoryAddress(2).getValue());
+    }
+
+    @Test
+    public void testHexError() throws IOException {
+        Path file = Files.write(dir.resolve("bad.hex"), "0\n1\n12345xyz\n".getBytes());
+        try {
+            ProgramLoader.loadHex(file, new Computer());
+            fail("Expected a parse error");
+        } catch (IOException e) {
+            assertEquals("Line 3: bad hex word 12345xyz", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLargeImage() throws IOException {
+        int words[] = new int[1 << 20];
+        for (int i = 0; i < words.length - 1; i++) {
+            /* addi $8, $8, 1 */
+            words[i] = 0x21080001;
+        }
+        words[words.length - 1] = 0x0000000C;
+        Computer computer = new Computer(words.length, 500);
+        assertEquals(words.length, ProgramLoader.load(write("big.bin", words), computer));
+        computer.execute();
+        assertEquals(words.length - 1, computer.getRegister(8).getValue());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testTooLarge() throws IOException {
+        ProgramLoader.load(write("loop.bin", LOOP), new Computer(4, 500));
+    }
+
+    @Test (expected = IOException.class)
+    public void testHeaderLengthChecked() throws IOException {
+        ProgramLoader.load(write("bad.bin", ProgramLoader.MAGIC, ProgramLoader.VERSION,
+                0, 5, 0, 0, 0, 0x0000000C), new Computer());
+    }
+}
@@ -0,0 +1,93 @@
+package tests;
+
+import computer.Computer;
+import computer.StateRenderer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests rendering computer state in full and as changes.
+ */
+public class StateRendererTest {
+
+    private final static String NL = System.lineSeparator();
+
+    /**
+     * Counts the writes made to a byte array stream.
+     */
+    private static final class CountingStream extends ByteArrayOutputStream {
+        int mWrites;
+
+        @Override
+        public synchronized void write(byte bytes[], int offset, int length) {
+            mWrites++;
+            super.write(bytes, offset, length);
+        }
+    }
+
+    @Test
+    public void testFullRenderShowsIR() {
+        Computer computer = new Computer();
+        /* addi $8, $0, 5 then syscall */
+        computer.loadInstr(0, 0x20080005);
+        computer.loadInstr(1, 0x0000000C);
+        computer.execute();
+        CountingStream out = new CountingStream();
+        new StateRenderer(out).render(computer, 2, 1);
+        String text = out.toString();
+        assertEquals(1, out.mWrites);
+        assertTrue(text.startsWith(NL + "PC 0000 0000 0000 0000 0000 0000 0000 1000   "
+                + "IR 0000 0000 0000 0000 0000 0000 0000 1100   " + NL + NL
+                + "Registers: " + NL + "R0 0000"));
+        assertTrue(text.contains("R8 0000 0000 0000 0000 0000 0000 0000 0101" + NL));
+        assertTrue(text.endsWith("Instruction Memory: " + NL
+                + "IM  0 0010 0000 0000 1000 0000 0000 0000 0101   "
+                + "IM  1 0000 0000 0000 0000 0000 0000 0000 1100   " + NL + NL
+                + "Data Memory: " + NL
+                + "DM    0 0000 0000 0000 0000 0000 0000 0000 0000   " + NL + NL));
+    }
+
+    @Test
+    public void testChangesOnly() {
+        Computer computer = new Computer();
+        /* addi $8, $0, 5; sw $8, 3($0) */
+        computer.loadInstr(0, 0x20080005);
+        computer.loadInstr(1, 0xAC080003);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateRenderer renderer = new StateRenderer(out);
+        renderer.render(computer, 4, 8);
+        out.reset();
+
+        computer.step();
+        assertEquals(1, renderer.renderChanges(computer));
+        assertEquals("PC 0000 0000 0000 0000 0000 0000 0000 0100   "
+                + "IR 0010 0000 0000 1000 0000 0000 0000 0101   " + NL + NL
+                + "Registers: " + NL
+                + "R8 0000 0000 0000 0000 0000 0000 0000 0101   " + NL + NL, out.toString());
+        out.reset();
+
+        computer.step();
+        assertEquals(1, renderer.renderChanges(computer));
+        assertTrue(out.toString().endsWith("Data Memory: " + NL
+                + "DM    3 0000 0000 0000 0000 0000 0000 0000 0101   " + NL + NL));
+        assertFalse(out.toString().contains("Registers"));
+        out.reset();
+
+        assertEquals(0, renderer.renderChanges(computer));
+        assertEquals("", out.toString());
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void testChangesNeedRender() {
+        new StateRenderer(OutputStream.nullOutputStream()).renderChanges(new Computer());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testWindowChecked() {
+        new StateRenderer(OutputStream.nullOutputStream()).render(new Computer(), 201, 0);
+    }
+}
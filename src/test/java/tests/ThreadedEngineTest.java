@@ -0,0 +1,92 @@
+package tests;
+
+import computer.BitString;
+import computer.Computer;
+import computer.ExecutionEngine;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the threaded engine gives the same results and traps as the
+ * interpreter.
+ */
+public class ThreadedEngineTest {
+
+    /*
+     *       add  $4, $5, $6
+     *       and  $12, $9, $10
+     *       andi $11, $12, 10
+     *       lw   $14, 5($0)
+     *       sw   $14, 6($0)
+     *       addi $8, $8, -1
+     *       beq  $8, $0, done
+     *       jr   $31
+     * done: syscall
+     */
+    private final static String LOOP[] = { "00000000101001100010000000100000",
+            "00000001001010100110000000100100", "00110001100010110000000000001010",
+            "10001100000011100000000000000101", "10101100000011100000000000000110",
+            "00100001000010001111111111111111", "00010001000000000000000000000001",
+            "00000011111000000000000000001000", "00000000000000000000000000001100" };
+
+    private Computer loopComputer(ExecutionEngine engine) {
+        Computer computer = new Computer();
+        computer.setExecutionEngine(engine);
+        for (int i = 0; i < LOOP.length; i++) {
+            BitString instr = new BitString();
+            instr.setBits(LOOP[i].toCharArray());
+            computer.loadInstr(i, instr);
+        }
+        computer.setRegister(5, 1);
+        computer.setRegister(6, 2);
+        computer.setRegister(9, 7);
+        computer.setRegister(10, 3);
+        computer.setRegister(8, 100);
+        computer.setDataMemoryAdress(5, 42);
+        return computer;
+    }
+
+    /**
+     * Runs the loop and compares every register and the PC with the
+     * interpreter.
+     */
+    @Test
+    public void testLoopMatchesInterpreter() {
+        Computer interpreted = loopComputer(ExecutionEngine.INTERPRETER);
+        Computer threaded = loopComputer(ExecutionEngine.THREADED);
+        interpreted.execute();
+        assertEquals(Computer.STATUS_HALTED, threaded.execute());
+        for (int i = 0; i < 32; i++) {
+            assertEquals(interpreted.getRegister(i), threaded.getRegister(i));
+        }
+        assertEquals(interpreted.getMyPC(), threaded.getMyPC());
+        assertEquals(42, threaded.getDataMemoryAddress(6).getValue2sComp());
+    }
+
+    /**
+     * Checks an overflowing add traps and leaves the PC after the add.
+     */
+    @Test
+    public void testOverflowTrap() {
+        Computer threaded = loopComputer(ExecutionEngine.THREADED);
+        threaded.setRegister(5, Integer.MAX_VALUE);
+        try {
+            threaded.execute();
+            fail("Threaded add does not trap on overflow.");
+        } catch (IllegalArgumentException ie) {
+        }
+        assertEquals(4, threaded.getMyPC().getValue());
+    }
+
+    /**
+     * Checks that running off the end of instruction memory fails the
+     * fetch like the interpreter.
+     */
+    @Test (expected = ArrayIndexOutOfBoundsException.class)
+    public void testRunOffEnd() {
+        Computer threaded = new Computer();
+        threaded.setExecutionEngine(ExecutionEngine.THREADED);
+        threaded.execute();
+    }
+}
@@ -0,0 +1,131 @@
+package tests;
+
+import computer.Assembler;
+import computer.Computer;
+import computer.ExecutionProfile;
+import computer.TraceReplayer;
+import computer.TraceWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import static tests.LoopProgram.loopComputer;
+
+/**
+ * Tests writing an execution trace and replaying it against a fresh
+ * computer.
+ */
+public class TraceTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("trace", ".bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    private static Computer linkedComputer() throws IOException {
+        Computer computer = new Computer();
+        Assembler.assemble(new StringReader(String.join("\n",
+                "ll   $t0, 3($zero)",
+                "addi $t0, $t0, 4",
+                "sc   $t0, 3($zero)",
+                "sc   $t0, 3($zero)",
+                "syscall")), computer);
+        return computer;
+    }
+
+    @Test
+    public void testReplayStoreConditional() throws IOException {
+        Computer computer = linkedComputer();
+        try (TraceWriter trace = new TraceWriter(file)) {
+            computer.setTraceWriter(trace);
+            computer.execute();
+            computer.setTraceWriter(null);
+        }
+        assertEquals(4, computer.getDataMemoryAddress(3).getValue());
+        assertEquals(5, new TraceReplayer(file).verify(linkedComputer()));
+    }
+
+    @Test
+    public void testReplayMatches() throws IOException {
+        Computer computer = loopComputer(100);
+        ExecutionProfile profile = new ExecutionProfile(computer.getInstrMemorySize());
+        computer.setProfile(profile);
+        try (TraceWriter trace = new TraceWriter(file)) {
+            computer.setTraceWriter(trace);
+            assertEquals(Computer.STATUS_HALTED, computer.execute());
+            computer.setTraceWriter(null);
+        }
+        assertEquals(100 * 6, profile.getRetired());
+        assertEquals(100 * 6, new TraceReplayer(file).verify(loopComputer(100)));
+        /* Header plus a few bytes per instruction */
+        assertTrue(Files.size(file) < 152 + 12 + 100 * 6 * 4);
+    }
+
+    @Test
+    public void testManyBlocks() throws IOException {
+        Computer computer = loopComputer(400);
+        try (TraceWriter trace = new TraceWriter(file, 200)) {
+            computer.setTraceWriter(trace);
+            computer.execute();
+        }
+        assertEquals(400 * 6, new TraceReplayer(file).verify(loopComputer(400)));
+    }
+
+    @Test
+    public void testStepsAreTraced() throws IOException {
+        Computer computer = loopComputer(1);
+        try (TraceWriter trace = new TraceWriter(file)) {
+            computer.setTraceWriter(trace);
+            computer.step();
+            computer.step();
+            computer.step();
+        }
+        assertEquals(3, new TraceReplayer(file).verify(loopComputer(1)));
+    }
+
+    @Test
+    public void testMismatchIsReported() throws IOException {
+        Computer computer = loopComputer(10);
+        try (TraceWriter trace = new TraceWriter(file)) {
+            computer.setTraceWriter(trace);
+            computer.execute();
+        }
+        Computer other = loopComputer(10);
+        other.setDataMemoryAdress(7, 1);
+        try {
+            new TraceReplayer(file).verify(other);
+            fail("Expected the replay to diverge");
+        } catch (IllegalStateException e) {
+            assertEquals("Step 19: $9 is 1, trace has 70", e.getMessage());
+        }
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void testStartStateChecked() throws IOException {
+        Computer computer = loopComputer(10);
+        try (TraceWriter trace = new TraceWriter(file)) {
+            computer.setTraceWriter(trace);
+            computer.execute();
+        }
+        new TraceReplayer(file).verify(loopComputer(9));
+    }
+
+    @Test (expected = IOException.class)
+    public void testNotATrace() throws IOException {
+        Files.write(file, new byte[200]);
+        new TraceReplayer(file).verify(new Computer());
+    }
+}
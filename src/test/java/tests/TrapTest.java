@@ -0,0 +1,171 @@
+package tests;
+
+import computer.Assembler;
+import computer.Computer;
+import computer.ExecutionEngine;
+import computer.TraceReplayer;
+import computer.TraceWriter;
+import computer.UndoJournal;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests trap mode: guest faults reported through the cause, EPC and bad
+ * address with every engine, and the guest exception vector.
+ */
+public class TrapTest {
+
+    private static Computer trapping(ExecutionEngine engine, String... lines)
+            throws IOException {
+        Computer computer = new Computer();
+        Assembler.assemble(new StringReader(String.join("\n", lines)), computer);
+        computer.setExecutionEngine(engine);
+        computer.setTrapMode(true);
+        return computer;
+    }
+
+    private static void assertTrap(String program, int cause, int epc, int badAddress)
+            throws IOException {
+        for (ExecutionEngine engine : ExecutionEngine.values()) {
+            String lines[] = { "addi $t0, $zero, 1", "addi $t1, $zero, 0x7fff", program,
+                    "syscall" };
+            Computer computer = trapping(engine, lines);
+            assertEquals(engine.toString(), Computer.STATUS_TRAPPED, computer.execute());
+            assertEquals(engine.toString(), cause, computer.getTrapCause());
+            assertEquals(engine.toString(), epc, computer.getEPC());
+            assertEquals(engine.toString(), badAddress, computer.getBadAddress());
+            // The PC is left at the faulting instruction
+            assertEquals(engine.toString(), epc, computer.getMyPC().getValue());
+        }
+    }
+
+    @Test
+    public void testCauses() throws IOException {
+        assertTrap("lw $t2, 600($t0)", Computer.CAUSE_ADDRESS_LOAD, 8, 601);
+        assertTrap("sw $t2, -2($t0)", Computer.CAUSE_ADDRESS_STORE, 8, -1);
+        assertTrap("add $zero, $t0, $t0", Computer.CAUSE_REGISTER_ZERO, 8, 0);
+        assertTrap("beq $t0, $t0, 500", Computer.CAUSE_ADDRESS_LOAD, 8, 12 + 2000);
+        assertTrap("jr $t1", Computer.CAUSE_ADDRESS_LOAD, 8, 0x7fff);
+        assertTrap("j 1000", Computer.CAUSE_ADDRESS_LOAD, 8, 1000);
+    }
+
+    @Test
+    public void testOverflow() throws IOException {
+        for (ExecutionEngine engine : ExecutionEngine.values()) {
+            Computer computer = trapping(engine, "add $t2, $t0, $t0", "syscall");
+            computer.setRegister(8, Integer.MAX_VALUE);
+            assertEquals(Computer.STATUS_TRAPPED, computer.execute());
+            assertEquals(Computer.CAUSE_OVERFLOW, computer.getTrapCause());
+            // The destination is not written
+            assertEquals(0, computer.getRegister(10).getValue());
+        }
+    }
+
+    @Test
+    public void testFetchFault() throws IOException {
+        for (ExecutionEngine engine : ExecutionEngine.values()) {
+            Computer computer = trapping(engine, "j 796");
+            assertEquals(Computer.STATUS_TRAPPED, computer.execute());
+            assertEquals(Computer.CAUSE_ADDRESS_LOAD, computer.getTrapCause());
+            assertEquals(800, computer.getEPC());
+            assertEquals(800, computer.getBadAddress());
+        }
+    }
+
+    /*
+     * Faults five times, each time entering the handler at 28, which
+     * returns past the faulting lw.
+     */
+    private final static String VECTORED[] = {
+            "main:    addi $t1, $zero, 5",
+            "loop:    lw   $t0, 1000($zero)",
+            "         addi $s0, $s0, 1",
+            "         addi $t1, $t1, -1",
+            "         beq  $t1, $zero, done",
+            "         j    loop",
+            "done:    syscall",
+            "handler: addi $s1, $s1, 1",
+            "         addi $k0, $k0, 4",
+            "         jr   $k0" };
+
+    private static Computer vectored() throws IOException {
+        Computer computer = trapping(ExecutionEngine.INTERPRETER, VECTORED);
+        computer.setExceptionVector(28);
+        return computer;
+    }
+
+    @Test
+    public void testExceptionVector() throws IOException {
+        for (ExecutionEngine engine : ExecutionEngine.values()) {
+            Computer computer = trapping(engine, VECTORED);
+            computer.setExceptionVector(28);
+            assertEquals(Computer.STATUS_HALTED, computer.execute());
+            assertEquals(5, computer.getRegister(16).getValue());
+            assertEquals(5, computer.getRegister(17).getValue());
+            assertEquals(Computer.CAUSE_ADDRESS_LOAD, computer.getRegister(27).getValue());
+            assertEquals(4, computer.getEPC());
+        }
+    }
+
+    @Test
+    public void testTraceAndJournal() throws IOException {
+        Path file = Files.createTempFile("trap", ".trace");
+        try {
+            Computer computer = vectored();
+            try (TraceWriter trace = new TraceWriter(file)) {
+                computer.setTraceWriter(trace);
+                assertEquals(Computer.STATUS_HALTED, computer.execute());
+                computer.setTraceWriter(null);
+            }
+            assertEquals(1 + 5 * 8, new TraceReplayer(file).verify(vectored()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        Computer computer = vectored();
+        computer.setUndoJournal(new UndoJournal());
+        computer.step();
+        computer.step();
+        assertEquals(28, computer.getMyPC().getValue());
+        assertEquals(4, computer.getRegister(26).getValue());
+        computer.step();
+        /* Back to just before the faulting lw */
+        computer.stepBack(2);
+        assertEquals(4, computer.getMyPC().getValue());
+        assertEquals(0, computer.getRegister(26).getValue());
+        assertEquals(0, computer.getRegister(27).getValue());
+        assertEquals(1, computer.runBackToRegisterWrite(9));
+        assertEquals(0, computer.getMyPC().getValue());
+    }
+
+    @Test
+    public void testStep() throws IOException {
+        Computer computer = trapping(ExecutionEngine.INTERPRETER, "lw $t0, 1000($zero)",
+                "syscall");
+        assertEquals(Computer.STATUS_TRAPPED, computer.step());
+        assertEquals(0, computer.getMyPC().getValue());
+        computer.setExceptionVector(4);
+        assertEquals(Computer.STATUS_RUNNING, computer.step());
+        assertEquals(4, computer.getMyPC().getValue());
+        assertEquals(0, computer.getRegister(26).getValue());
+        assertEquals(Computer.STATUS_HALTED, computer.step());
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testDefaultThrows() throws IOException {
+        Computer computer = trapping(ExecutionEngine.INTERPRETER, "lw $t0, 1000($zero)");
+        computer.setTrapMode(false);
+        computer.execute();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadVector() {
+        new Computer().setExceptionVector(2);
+    }
+}
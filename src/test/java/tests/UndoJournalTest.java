@@ -0,0 +1,179 @@
+package tests;
+
+import computer.Computer;
+import computer.ExecutionProfile;
+import computer.UndoJournal;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static tests.LoopProgram.loopComputer;
+
+/**
+ * Tests stepping a computer backwards through its undo journal.
+ */
+public class UndoJournalTest {
+
+    private static void assertSameState(Computer expected, Computer actual) {
+        assertEquals(expected.getMyPC(), actual.getMyPC());
+        for (int i = 0; i < 32; i++) {
+            assertEquals("$" + i, expected.getRegister(i).getValue(),
+                    actual.getRegister(i).getValue());
+        }
+        for (int i = 0; i < expected.getDataMemorySize(); i++) {
+            assertEquals("M[" + i + "]", expected.getDataMemoryAddress(i).getValue(),
+                    actual.getDataMemoryAddress(i).getValue());
+        }
+    }
+
+    /**
+     * Runs a computer for some steps and returns forks taken along the way.
+     */
+    private static Computer[] run(Computer computer, int steps) {
+        Computer states[] = new Computer[steps + 1];
+        for (int i = 0; i < steps; i++) {
+            states[i] = computer.fork();
+            computer.step();
+        }
+        states[steps] = computer.fork();
+        return states;
+    }
+
+    @Test
+    public void testStepBackFromJournal() {
+        Computer computer = loopComputer(20);
+        computer.setUndoJournal(new UndoJournal());
+        Computer states[] = run(computer, 50);
+        computer.stepBack(1);
+        assertSameState(states[49], computer);
+        computer.stepBack(30);
+        assertSameState(states[19], computer);
+        assertEquals(19, computer.getUndoJournal().getStep());
+        computer.step();
+        assertSameState(states[20], computer);
+        computer.stepBack(20);
+        assertSameState(states[0], computer);
+    }
+
+    @Test
+    public void testStepBackAfterHalt() {
+        Computer computer = loopComputer(5);
+        computer.setUndoJournal(new UndoJournal());
+        Computer start = computer.fork();
+        assertEquals(Computer.STATUS_HALTED, computer.execute());
+        assertEquals(5 * 6, computer.getUndoJournal().getStep());
+        computer.stepBack(5 * 6);
+        assertSameState(start, computer);
+        assertEquals(Computer.STATUS_HALTED, computer.execute());
+        assertEquals(23, computer.getDataMemoryAddress(2).getValue());
+    }
+
+    @Test
+    public void testStepBackThroughCheckpoint() {
+        Computer computer = loopComputer(40);
+        computer.setUndoJournal(new UndoJournal(16, 10, 64, UndoJournal.Eviction.THIN));
+        Computer states[] = run(computer, 200);
+        assertEquals(16, computer.getUndoJournal().size());
+        computer.stepBack(150);
+        assertSameState(states[50], computer);
+        computer.stepBack(47);
+        assertSameState(states[3], computer);
+        computer.stepBack(3);
+        assertSameState(states[0], computer);
+    }
+
+    @Test
+    public void testReplayNotProfiled() {
+        Computer computer = loopComputer(40);
+        ExecutionProfile profile = new ExecutionProfile(computer.getInstrMemorySize());
+        computer.setProfile(profile);
+        computer.setUndoJournal(new UndoJournal(16, 10, 64, UndoJournal.Eviction.THIN));
+        Computer states[] = run(computer, 100);
+        assertEquals(100, profile.getRetired());
+        computer.stepBack(55);
+        assertSameState(states[45], computer);
+        assertEquals(100, profile.getRetired());
+        assertSame(profile, computer.getProfile());
+        computer.step();
+        assertEquals(101, profile.getRetired());
+    }
+
+    @Test
+    public void testRunBackToWrite() {
+        Computer computer = loopComputer(20);
+        computer.setUndoJournal(new UndoJournal());
+        Computer states[] = run(computer, 40);
+        /* The last sw was to M[14] at step 38 */
+        assertEquals(2, computer.runBackToMemoryWrite(14));
+        assertSameState(states[38], computer);
+        assertEquals(8, computer.getMyPC().getValue());
+        /* addi $9 just before it */
+        assertEquals(1, computer.runBackToRegisterWrite(9));
+        assertSameState(states[37], computer);
+        assertEquals(-1, computer.runBackToMemoryWrite(400));
+        assertSameState(states[37], computer);
+    }
+
+    @Test
+    public void testStepBackOverSc() {
+        /* ll $8, 0($0); sc $9, 0($0); syscall */
+        int program[] = { 0xC0080000, 0xE0090000, 0x0000000C };
+        Computer computer = new Computer();
+        for (int i = 0; i < program.length; i++) {
+            computer.loadInstr(i, program[i]);
+        }
+        computer.setRegister(9, 5);
+        computer.setDataMemoryAdress(0, 7);
+        computer.setUndoJournal(new UndoJournal());
+        Computer states[] = run(computer, 2);
+        assertEquals(1, computer.getRegister(9).getValue());
+        assertEquals(5, computer.getDataMemoryAddress(0).getValue());
+        computer.stepBack(1);
+        assertSameState(states[1], computer);
+        computer.step();
+        /* The sc is the last write to both its word and its register */
+        assertEquals(1, computer.runBackToRegisterWrite(9));
+        assertSameState(states[1], computer);
+    }
+
+    @Test
+    public void testFailedScWritesNoMemory() {
+        /* sw $9, 0($0); sc $9, 0($0); syscall, the sc without a link */
+        int program[] = { 0xAC090000, 0xE0090000, 0x0000000C };
+        Computer computer = new Computer();
+        for (int i = 0; i < program.length; i++) {
+            computer.loadInstr(i, program[i]);
+        }
+        computer.setRegister(9, 5);
+        computer.setUndoJournal(new UndoJournal());
+        Computer states[] = run(computer, 2);
+        assertEquals(0, computer.getRegister(9).getValue());
+        /* The sw is the last write to M[0], not the failed sc */
+        assertEquals(2, computer.runBackToMemoryWrite(0));
+        assertSameState(states[0], computer);
+    }
+
+    @Test
+    public void testThinningKeepsStart() {
+        Computer computer = loopComputer(40);
+        computer.setUndoJournal(new UndoJournal(4, 4, 4, UndoJournal.Eviction.THIN));
+        Computer states[] = run(computer, 100);
+        assertTrue(computer.getUndoJournal().getCheckpointCount() <= 4);
+        assertEquals(0, computer.getUndoJournal().getOldestStep());
+        computer.stepBack(100);
+        assertSameState(states[0], computer);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testDroppedHistory() {
+        Computer computer = loopComputer(40);
+        computer.setUndoJournal(new UndoJournal(4, 4, 4, UndoJournal.Eviction.DROP_OLDEST));
+        run(computer, 100);
+        assertEquals(88, computer.getUndoJournal().getOldestStep());
+        computer.stepBack(13);
+    }
+
+    @Test (expected = IllegalStateException.class)
+    public void testNoJournal() {
+        loopComputer(1).stepBack(1);
+    }
+}